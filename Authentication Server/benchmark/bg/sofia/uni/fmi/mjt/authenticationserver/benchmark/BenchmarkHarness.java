@@ -0,0 +1,73 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs and measures the operations of the benchmarks. Every operation is run as many times for a warmup as it is
+ * measured, and its results are added to a sink, which the benchmark prints, so they are not optimized away.
+ */
+public final class BenchmarkHarness {
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final int BYTES_PER_MIB = 1024 * 1024;
+    private static long sink;
+
+    private BenchmarkHarness() {
+    }
+
+    /**
+     * @return the iterations given as the first argument or the default iterations if there are no arguments
+     */
+    public static int getIterations(String[] args, int defaultIterations) {
+        return args.length == 0 ? defaultIterations : Integer.parseInt(args[0]);
+    }
+
+    /**
+     * @param property - the system property of the period, in seconds
+     */
+    public static long getPeriodNanos(String property, long defaultSeconds) {
+        return TimeUnit.SECONDS.toNanos(Long.getLong(property, defaultSeconds));
+    }
+
+    /**
+     * Measure the operation on the current thread after a warmup of as many iterations
+     */
+    public static Measurement measure(int iterations, Operation operation) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            sink += operation.run();
+        }
+
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        return new Measurement(elapsed / (double) iterations, allocated / iterations);
+    }
+
+    /**
+     * @return the heap used after a garbage collection, in MiB
+     */
+    public static long getUsedHeapMiB() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) / BYTES_PER_MIB;
+    }
+
+    public static long getChecksum() {
+        return sink;
+    }
+
+    public record Measurement(double nanosPerOperation, long bytesPerOperation) {
+    }
+
+    @FunctionalInterface
+    public interface Operation {
+        int run() throws Exception;
+    }
+}
@@ -0,0 +1,75 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.benchmark.BenchmarkHarness;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
+
+/**
+ * Compares the previous parsing of the commands with {@link CommandDispatcher}. The previous parsing split the
+ * request, resolved the command with a linear scan of the descriptions and a concatenation for the login commands,
+ * and then split the request again in the command constructor. Reports the time and the heap allocation per
+ * operation for every kind of command.
+ *
+ * <p>Usage: {@code CommandDispatchBenchmark [iterations]} - the default is 1000000 measured operations per case,
+ * after as many warmup operations.</p>
+ */
+public class CommandDispatchBenchmark {
+    private static final int DEFAULT_ITERATIONS = 1_000_000;
+    private static final String[] COMMANDS = {
+        "register --username benchmark --password secret --first-name First --last-name Last --email user@mail.com",
+        "login --username benchmark --password secret",
+        "login --session-id 1b4f0e98-56a2-4b43-9a53-5a5d4e7f7c4d",
+        "update-user --session-id 1b4f0e98-56a2-4b43-9a53-5a5d4e7f7c4d --new-first-name Name --new-email new@mail.com",
+        "download-database --session-id 1b4f0e98-56a2-4b43-9a53-5a5d4e7f7c4d"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int iterations = BenchmarkHarness.getIterations(args, DEFAULT_ITERATIONS);
+
+        System.out.printf("%-40s %12s %14s%n", "case", "ns/op", "alloc (B/op)");
+        for (String command : COMMANDS) {
+            String name = command.substring(0, command.indexOf(' ', command.indexOf(' ') + 1));
+            run(name + " / split", iterations, () -> parseBySplit(command));
+            run(name + " / tokens", iterations, () -> parseByTokens(command));
+        }
+        System.out.println("checksum " + BenchmarkHarness.getChecksum());
+    }
+
+    private static void run(String name, int iterations, BenchmarkHarness.Operation operation) throws Exception {
+        BenchmarkHarness.Measurement measurement = BenchmarkHarness.measure(iterations, operation);
+        System.out.printf("%-40s %12.1f %14d%n", name, measurement.nanosPerOperation(),
+            measurement.bytesPerOperation());
+    }
+
+    /**
+     * The parsing before the dispatch table, reduced to the work it did before the command was executed.
+     */
+    private static int parseBySplit(String message) throws InvalidCommand {
+        String blankSpace = " ";
+        String[] words = message.split(blankSpace);
+        String command = words[0];
+        if (command.equals("login")) {
+            command += blankSpace + words[1];
+        }
+        CommandBehavior behavior = CommandBehavior.getCommandByDescription(command);
+        if (behavior == null) {
+            throw new InvalidCommand("Invalid command format.");
+        }
+
+        String[] commandWords = message.split(blankSpace);
+        int checksum = behavior.ordinal();
+        for (int i = 2; i < commandWords.length; i += 2) {
+            checksum += commandWords[i].length();
+        }
+        return checksum;
+    }
+
+    private static int parseByTokens(String message) throws InvalidCommand {
+        CommandTokens command = CommandTokens.of(message);
+        int checksum = CommandDispatcher.getCommandBehavior(command).ordinal();
+        for (int i = 0; i < command.getParameterCount(); i++) {
+            checksum += command.getValue(i).length();
+        }
+        return checksum;
+    }
+}
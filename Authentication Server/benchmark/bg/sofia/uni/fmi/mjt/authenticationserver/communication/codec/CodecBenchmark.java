@@ -0,0 +1,61 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.communication.codec;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.benchmark.BenchmarkHarness;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandBehavior;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandStatus;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandType;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Input;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Output;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Measures {@link MessageCodec}. Every operation encodes a message and decodes it back. Reports the time and the
+ * heap allocation per operation and the encoded size. The messages are no longer serializable, so the Java
+ * serialization they were sent with before is not measured next to the codec.
+ *
+ * <p>Usage: {@code CodecBenchmark [iterations]} - the default is 200000 measured operations per case,
+ * after as many warmup operations.</p>
+ */
+public class CodecBenchmark {
+    private static final int DEFAULT_ITERATIONS = 200_000;
+    private static final Input INPUT = new Input(1, "login --username benchmark-user --password benchmark-password",
+        CommandType.UNSECURE);
+    private static final Output OUTPUT = new Output(1,
+        "The login is successful. Your current session Id is: 1b4f0e98-56a2-4b43-9a53-5a5d4e7f7c4d.",
+        CommandStatus.SUCCESSFUL, CommandBehavior.LOGIN_BY_USERNAME, false);
+    private static final ByteBuffer BUFFER = ByteBuffer.allocateDirect(4096);
+
+    public static void main(String[] args) throws Exception {
+        int iterations = BenchmarkHarness.getIterations(args, DEFAULT_ITERATIONS);
+
+        System.out.printf("%-26s %12s %14s %12s%n", "case", "ns/op", "alloc (B/op)", "size (B)");
+        run("input / codec", iterations, MessageCodec.encodedSize(INPUT), () -> roundTripCodec(INPUT).hashCode());
+        run("output / codec", iterations, MessageCodec.encodedSize(OUTPUT), () -> roundTripCodec(OUTPUT).hashCode());
+        System.out.println("checksum " + BenchmarkHarness.getChecksum());
+    }
+
+    private static void run(String name, int iterations, int size, BenchmarkHarness.Operation operation)
+        throws Exception {
+        BenchmarkHarness.Measurement measurement = BenchmarkHarness.measure(iterations, operation);
+        System.out.printf("%-26s %12.1f %14d %12d%n", name, measurement.nanosPerOperation(),
+            measurement.bytesPerOperation(), size);
+    }
+
+    private static Input roundTripCodec(Input input) throws IOException {
+        BUFFER.clear();
+        MessageCodec.encode(input, BUFFER);
+        return (Input) MessageCodec.decodeRequest(BUFFER.flip());
+    }
+
+    private static Output roundTripCodec(Output output) throws IOException {
+        BUFFER.clear();
+        MessageCodec.encode(output, BUFFER);
+        return (Output) MessageCodec.decodeResponse(BUFFER.flip());
+    }
+}
@@ -0,0 +1,247 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.benchmark.BenchmarkHarness;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandType;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.codec.MessageCodec;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Input;
+
+import java.io.IOException;
+
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the selector based server modes with the virtual-thread-per-connection mode.
+ * Every client connection sends a request, waits for the response and sends the next one. The requests are
+ * logouts with an unknown session, so the measurement is dominated by the networking and not by the commands.
+ *
+ * <p>Usage: {@code ServerModeBenchmark [connections...]} - the default connection counts are 1000, 10000
+ * and 50000. Every connection takes a file descriptor on both the client and the server side and at most
+ * {@value #CONNECTIONS_PER_ADDRESS} connections are opened from one local address, so the file descriptor limit
+ * of the process has to be above twice the largest count. The warmup and the measurement periods can be changed
+ * with the {@code benchmark.warmup} and {@code benchmark.measurement} system properties (in seconds).</p>
+ */
+public class ServerModeBenchmark {
+    private static final int PORT = 9998;
+    private static final int[] DEFAULT_CONNECTIONS = {1_000, 10_000, 50_000};
+    private static final ServerMode[] MODES = {ServerMode.MULTI_REACTOR, ServerMode.VIRTUAL_THREADS};
+    private static final int CLIENT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int CONNECTIONS_PER_ADDRESS = 20_000;
+    private static final long WARMUP_NANOS = BenchmarkHarness.getPeriodNanos("benchmark.warmup", 5);
+    private static final long MEASUREMENT_NANOS = BenchmarkHarness.getPeriodNanos("benchmark.measurement", 15);
+
+    public static void main(String[] args) throws Exception {
+        int[] connectionCounts = args.length == 0 ? DEFAULT_CONNECTIONS :
+            Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        byte[] request = frame(new Input("logout --session-id benchmark", CommandType.SECURE));
+
+        System.out.printf("%-16s %12s %14s %12s %12s %14s%n",
+            "mode", "connections", "requests/s", "p50 (us)", "p99 (us)", "heap (MiB)");
+        for (ServerMode mode : MODES) {
+            for (int connections : connectionCounts) {
+                Result result = run(mode, connections, request);
+                System.out.printf("%-16s %12d %14.0f %12d %12d %14d%n", mode.getModeDescription(), connections,
+                    result.throughput(), result.p50Micros(), result.p99Micros(), result.heapMiB());
+            }
+        }
+        System.exit(0);
+    }
+
+    private static Result run(ServerMode mode, int connections, byte[] request) throws Exception {
+        Server server = new Server(ServerConfiguration.builder(PORT).setMode(mode).build());
+        Thread serverThread = new Thread(server::startServer, "benchmark-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        TimeUnit.SECONDS.sleep(1);
+
+        List<ClientLoop> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENT_THREADS; i++) {
+            clients.add(new ClientLoop(request));
+        }
+        for (int i = 0; i < connections; i++) {
+            clients.get(i % CLIENT_THREADS).connect(i / CONNECTIONS_PER_ADDRESS);
+        }
+        long heapMiB = BenchmarkHarness.getUsedHeapMiB();
+
+        List<Thread> clientThreads = new ArrayList<>();
+        for (ClientLoop client : clients) {
+            Thread thread = new Thread(client, "benchmark-client");
+            clientThreads.add(thread);
+            thread.start();
+        }
+        TimeUnit.NANOSECONDS.sleep(WARMUP_NANOS);
+        clients.forEach(ClientLoop::startMeasurement);
+        TimeUnit.NANOSECONDS.sleep(MEASUREMENT_NANOS);
+        clients.forEach(ClientLoop::stop);
+        for (Thread thread : clientThreads) {
+            thread.join();
+        }
+
+        server.shutdown();
+        serverThread.join(TimeUnit.SECONDS.toMillis(5));
+        return Result.of(clients, heapMiB);
+    }
+
+    private static byte[] frame(Input input) {
+        int size = MessageCodec.encodedSize(input);
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + size).putInt(size);
+        MessageCodec.encode(input, frame);
+        return frame.array();
+    }
+
+    private record Result(double throughput, long p50Micros, long p99Micros, long heapMiB) {
+        static Result of(List<ClientLoop> clients, long heapMiB) {
+            long[] latencies = clients.stream()
+                .flatMapToLong(client -> Arrays.stream(client.latencies, 0, client.measured))
+                .sorted()
+                .toArray();
+            if (latencies.length == 0) {
+                return new Result(0, 0, 0, heapMiB);
+            }
+            double seconds = MEASUREMENT_NANOS / (double) TimeUnit.SECONDS.toNanos(1);
+            final double median = 0.5;
+            final double tail = 0.99;
+            return new Result(latencies.length / seconds, percentile(latencies, median),
+                percentile(latencies, tail), heapMiB);
+        }
+
+        private static long percentile(long[] sortedLatencies, double percentile) {
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.round(percentile * sortedLatencies.length));
+            return TimeUnit.NANOSECONDS.toMicros(sortedLatencies[index]);
+        }
+    }
+
+    private static class ClientLoop implements Runnable {
+        private final Selector selector;
+        private final byte[] request;
+        private volatile boolean measuring;
+        private volatile boolean working;
+        private long[] latencies;
+        private int measured;
+
+        ClientLoop(byte[] request) throws IOException {
+            this.selector = Selector.open();
+            this.request = request;
+            this.latencies = new long[1024];
+            this.working = true;
+        }
+
+        void connect(int localAddressIndex) throws IOException {
+            SocketChannel channel = SocketChannel.open();
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.bind(new InetSocketAddress("127.0.0." + (localAddressIndex + 1), 0));
+            channel.connect(new InetSocketAddress("localhost", PORT));
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(request));
+        }
+
+        void startMeasurement() {
+            measuring = true;
+        }
+
+        void stop() {
+            working = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    send(key);
+                }
+                while (working) {
+                    selector.select();
+                    Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+                    while (keyIterator.hasNext()) {
+                        SelectionKey key = keyIterator.next();
+                        keyIterator.remove();
+                        if (key.isValid() && key.isWritable()) {
+                            send(key);
+                        } else if (key.isValid() && key.isReadable()) {
+                            receive(key);
+                        }
+                    }
+                }
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            } catch (IOException e) {
+                throw new IllegalStateException("The benchmark client failed.", e);
+            }
+        }
+
+        private void send(SelectionKey key) throws IOException {
+            Connection connection = (Connection) key.attachment();
+            if (!connection.request.hasRemaining()) {
+                connection.request.rewind();
+                connection.sentAt = System.nanoTime();
+            }
+            ((SocketChannel) key.channel()).write(connection.request);
+            key.interestOps(connection.request.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        private void receive(SelectionKey key) throws IOException {
+            Connection connection = (Connection) key.attachment();
+            if (((SocketChannel) key.channel()).read(connection.response) < 0) {
+                key.cancel();
+                return;
+            }
+            while (connection.hasCompleteResponse()) {
+                if (measuring) {
+                    record(System.nanoTime() - connection.sentAt);
+                }
+                send(key);
+            }
+        }
+
+        private void record(long latency) {
+            if (measured == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[measured++] = latency;
+        }
+    }
+
+    private static class Connection {
+        private static final int RESPONSE_BUFFER_SIZE = 4096;
+        private final ByteBuffer request;
+        private final ByteBuffer response;
+        private long sentAt;
+
+        Connection(byte[] request) {
+            this.request = ByteBuffer.wrap(request);
+            this.request.position(this.request.limit());
+            this.response = ByteBuffer.allocate(RESPONSE_BUFFER_SIZE);
+        }
+
+        boolean hasCompleteResponse() {
+            if (response.position() < Integer.BYTES) {
+                return false;
+            }
+            int frameSize = Integer.BYTES + response.getInt(0);
+            if (response.position() < frameSize) {
+                return false;
+            }
+            response.flip().position(frameSize);
+            response.compact();
+            return true;
+        }
+    }
+}
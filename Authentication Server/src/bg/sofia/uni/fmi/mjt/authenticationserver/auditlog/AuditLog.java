@@ -7,6 +7,7 @@ import java.io.PrintWriter;
 import java.io.FileWriter;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.event.Event;
@@ -40,7 +41,7 @@ public class AuditLog {
         }
     }
 
-    public void log(Optional<Event> event) {
+    public synchronized void log(Optional<Event> event) {
         if (event.isPresent()) {
             Event actualEvent = event.get();
             String eventJson = gson.toJson(actualEvent);
@@ -49,6 +50,19 @@ public class AuditLog {
         }
     }
 
+    /**
+     * Writes the events in their order with a single flush.
+     */
+    public synchronized void logAll(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        for (Event event : events) {
+            writer.println(gson.toJson(event));
+        }
+        writer.flush();
+    }
+
     public static AuditLog getInstance() {
         return AUDIT_LOG;
     }
@@ -61,29 +61,79 @@ public abstract class BasicCommand implements Command {
     }
 
     protected void setAuthenticationToUser(Database database, UserAuthentication authentication, String username) {
-        database.getUsers().get(username).setAuthentication(authentication);
+        database.setAuthentication(username, authentication);
     }
 
-    protected void setAuthorizationToUser(Database database, UserAuthorization authorization, String username) {
-        database.getUserByUsername(username).setAuthorization(authorization);
+    /**
+     * @return false if there is no such user or the change cannot be saved
+     */
+    protected boolean setAuthorizationToUser(Database database, UserAuthorization authorization, String username) {
+        return database.setAuthorization(username, authorization);
     }
 
-    protected User getUserBySessionId(Database database, SessionManager sessionManager, String sessionId) {
-        return database.getUserBySessionId(sessionManager, sessionId);
+    /**
+     * @return the user on a single line, as listed to the admins
+     */
+    protected static String describeUser(User user) {
+        return user.getUsername() + " - " + user.getFirstName() + " " + user.getLastName() + ", " + user.getEmail() +
+            ", " + user.getAuthorization();
     }
 
-    protected abstract boolean checkValidCommand(String[] command) throws InvalidCommand;
+    protected abstract boolean checkValidCommand(CommandArguments command) throws InvalidCommand;
 
-    public Optional<Event> createStartEvent(String ipAddress, Database database, SessionManager sessionManager) {
+    /**
+     * @return the session the command is executed in or null if the command does not need a session
+     */
+    protected String getSessionId() {
+        return null;
+    }
+
+    /**
+     * Resolves the session of the command once, so it can be shared by the execution and the events of the command.
+     *
+     * @param ipAddress      - the ip address of the client
+     * @param database       - database of the users
+     * @param sessionManager - manager of the users sessions
+     * @return the context of the request
+     */
+    public RequestContext createContext(String ipAddress, Database database, SessionManager sessionManager) {
+        return RequestContext.of(getSessionId(), ipAddress, database, sessionManager);
+    }
+
+    /**
+     * Execute command in the given request context
+     *
+     * @param context - the context of the request
+     */
+    public abstract void execute(RequestContext context);
+
+    @Override
+    public void execute(Database database, SessionManager sessionManager) {
+        execute(createContext(null, database, sessionManager));
+    }
+
+    public Optional<Event> createStartEvent(RequestContext context) {
         return Optional.empty();
     }
 
-    public Optional<Event> createEndEvent(String ipAddress, Database database, SessionManager sessionManager) {
+    public Optional<Event> createEndEvent(RequestContext context) {
         return Optional.empty();
     }
 
+    public Optional<Event> createFailedLoginEvent(RequestContext context) {
+        return Optional.empty();
+    }
+
+    public Optional<Event> createStartEvent(String ipAddress, Database database, SessionManager sessionManager) {
+        return createStartEvent(createContext(ipAddress, database, sessionManager));
+    }
+
+    public Optional<Event> createEndEvent(String ipAddress, Database database, SessionManager sessionManager) {
+        return createEndEvent(createContext(ipAddress, database, sessionManager));
+    }
+
     public Optional<Event> createFailedLoginEvent(String ipAddress, Database database,
                                                   SessionManager sessionManager) {
-        return Optional.empty();
+        return createFailedLoginEvent(createContext(ipAddress, database, sessionManager));
     }
 }
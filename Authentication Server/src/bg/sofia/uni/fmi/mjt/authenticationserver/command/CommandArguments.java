@@ -0,0 +1,29 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The values of the fields of a command, either parsed from a text command or received structured.
+ */
+public interface CommandArguments {
+    /**
+     * Checks that the command has all required fields, no fields other than the required and the optional ones,
+     * and a value for each field. The fields of a text command must start with the required ones in their order.
+     *
+     * @param required - the fields the command must have
+     * @param optional - the fields the command may have
+     * @return true if the fields of the command are valid
+     */
+    boolean hasFields(List<CommandField> required, Set<CommandField> optional);
+
+    default boolean hasFields(CommandField... required) {
+        return hasFields(List.of(required), Set.of());
+    }
+
+    /**
+     * @param field - the field of the command
+     * @return the value of the field or null if the command does not have it
+     */
+    String get(CommandField field);
+}
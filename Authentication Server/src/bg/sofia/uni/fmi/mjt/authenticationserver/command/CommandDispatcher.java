@@ -0,0 +1,108 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Creates commands from requests. The command is resolved with a lookup of its command word in a table built once
+ * from the command descriptions. A command word shared by several commands, like {@code login}, is resolved by the
+ * flag of its first parameter.
+ */
+public final class CommandDispatcher {
+    private static final int MIN_TOKENS = 3;
+    private static final Map<CommandBehavior, CommandFactory> FACTORIES = createFactories();
+    private static final Map<String, CommandBehavior> COMMANDS_BY_WORD = new HashMap<>();
+    private static final Map<String, Map<String, CommandBehavior>> COMMANDS_BY_WORD_AND_FLAG = new HashMap<>();
+
+    static {
+        String blankSpace = " ";
+        for (CommandBehavior behavior : FACTORIES.keySet()) {
+            String[] description = behavior.getCommandDescription().split(blankSpace);
+            if (description.length == 1) {
+                COMMANDS_BY_WORD.put(description[0], behavior);
+            } else {
+                COMMANDS_BY_WORD_AND_FLAG.computeIfAbsent(description[0], word -> new HashMap<>())
+                    .put(description[1], behavior);
+            }
+        }
+    }
+
+    private CommandDispatcher() {
+    }
+
+    private static Map<CommandBehavior, CommandFactory> createFactories() {
+        Map<CommandBehavior, CommandFactory> factories = new EnumMap<>(CommandBehavior.class);
+        factories.put(CommandBehavior.REGISTER, Register::of);
+        factories.put(CommandBehavior.LOGIN_BY_USERNAME, LoginByUsername::of);
+        factories.put(CommandBehavior.LOGIN_BY_SESSION_ID, LoginBySessionId::of);
+        factories.put(CommandBehavior.UPDATE_USER, command -> UpdateUser.builderOf(command).build());
+        factories.put(CommandBehavior.RESET_PASSWORD, ResetPassword::of);
+        factories.put(CommandBehavior.LOGOUT, Logout::of);
+        factories.put(CommandBehavior.ADD_ADMIN_USER, AddAdminUser::of);
+        factories.put(CommandBehavior.REMOVE_ADMIN_USER, RemoveAdminUser::of);
+        factories.put(CommandBehavior.DELETE_USER, DeleteUser::of);
+        factories.put(CommandBehavior.DOWNLOAD_DATABASE, DownloadDatabase::of);
+        factories.put(CommandBehavior.LIST_USERS, ListUsers::of);
+        factories.put(CommandBehavior.FIND_USER, FindUser::of);
+        return factories;
+    }
+
+    /**
+     * Splits the message once and creates the command it describes.
+     *
+     * @param message - the command as entered by the user
+     * @return the created command
+     * @throws InvalidCommand if the message is not a valid command
+     */
+    public static BasicCommand createCommand(String message) throws InvalidCommand {
+        CommandTokens command = CommandTokens.of(message);
+        if (command.getTokenCount() < MIN_TOKENS) {
+            throw new InvalidCommand("Invalid command.");
+        }
+        return FACTORIES.get(getCommandBehavior(command)).create(command);
+    }
+
+    /**
+     * Creates the command from a structured request, without parsing any text.
+     *
+     * @param behavior - the behavior of the command
+     * @param fields   - the values of the fields of the command
+     * @return the created command
+     * @throws InvalidCommand if the behavior is not a command or the fields are not valid for it
+     */
+    public static BasicCommand createCommand(CommandBehavior behavior, Map<CommandField, String> fields)
+        throws InvalidCommand {
+        CommandFactory factory = FACTORIES.get(behavior);
+        if (factory == null) {
+            throw new InvalidCommand("Invalid command " + behavior + ".");
+        }
+        return factory.create(new CommandFields(fields));
+    }
+
+    /**
+     * @param command - the words of the command
+     * @return the behavior of the command
+     * @throws InvalidCommand if there is no command with this command word and first flag
+     */
+    public static CommandBehavior getCommandBehavior(CommandTokens command) throws InvalidCommand {
+        String commandWord = command.getCommandWord().toLowerCase(Locale.ROOT);
+        CommandBehavior behavior = COMMANDS_BY_WORD.get(commandWord);
+        if (behavior != null) {
+            return behavior;
+        }
+
+        Map<String, CommandBehavior> commandsByFlag = COMMANDS_BY_WORD_AND_FLAG.get(commandWord);
+        if (commandsByFlag == null) {
+            throw new InvalidCommand("Invalid command format.");
+        }
+        behavior = command.getParameterCount() == 0 ? null : commandsByFlag.get(command.getFlag(0));
+        if (behavior == null) {
+            throw new InvalidCommand("Invalid " + commandWord + " command.");
+        }
+        return behavior;
+    }
+}
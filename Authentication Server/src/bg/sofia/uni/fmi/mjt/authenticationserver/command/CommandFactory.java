@@ -0,0 +1,15 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
+
+@FunctionalInterface
+public interface CommandFactory {
+    /**
+     * Create command from the already parsed fields of the request
+     *
+     * @param command - the fields of the command
+     * @return the created command
+     * @throws InvalidCommand if the fields are not a valid command of this kind
+     */
+    BasicCommand create(CommandArguments command) throws InvalidCommand;
+}
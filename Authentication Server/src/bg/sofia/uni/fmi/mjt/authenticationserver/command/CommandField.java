@@ -0,0 +1,30 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+public enum CommandField {
+    USERNAME("--username"),
+    PASSWORD("--password"),
+    FIRST_NAME("--first-name"),
+    LAST_NAME("--last-name"),
+    EMAIL("--email"),
+    SESSION_ID("--session-id"),
+    OLD_PASSWORD("--old-password"),
+    NEW_PASSWORD("--new-password"),
+    NEW_USERNAME("--new-username"),
+    NEW_FIRST_NAME("--new-first-name"),
+    NEW_LAST_NAME("--new-last-name"),
+    NEW_EMAIL("--new-email"),
+    PREFIX("--prefix"),
+    LIMIT("--limit"),
+    CURSOR("--cursor"),
+    SINCE("--since");
+
+    private final String flag;
+
+    CommandField(String flag) {
+        this.flag = flag;
+    }
+
+    public String getFlag() {
+        return flag;
+    }
+}
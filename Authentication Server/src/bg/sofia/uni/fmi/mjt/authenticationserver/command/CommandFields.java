@@ -0,0 +1,35 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fields of a structured command, used as they are received. The fields come from an input, which never has
+ * a field without a value.
+ */
+public final class CommandFields implements CommandArguments {
+    private final Map<CommandField, String> fields;
+
+    public CommandFields(Map<CommandField, String> fields) {
+        this.fields = fields;
+    }
+
+    @Override
+    public boolean hasFields(List<CommandField> required, Set<CommandField> optional) {
+        int requiredCount = 0;
+        for (Map.Entry<CommandField, String> field : fields.entrySet()) {
+            if (required.contains(field.getKey())) {
+                requiredCount++;
+            } else if (!optional.contains(field.getKey())) {
+                return false;
+            }
+        }
+        return requiredCount == required.size();
+    }
+
+    @Override
+    public String get(CommandField field) {
+        return fields.get(field);
+    }
+}
@@ -0,0 +1,148 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The words of a command, split in a single pass. The first word is the command word and the rest form
+ * parameters - a flag followed by its value. The words are kept as bounds in the original command, so flags are
+ * compared in place and only the values which are actually used are copied.
+ *
+ * <p>The words are the same as the ones {@code command.split(" ")} returns.</p>
+ */
+public final class CommandTokens implements CommandArguments {
+    private static final char SEPARATOR = ' ';
+    private static final int INITIAL_BOUNDS = 24;
+
+    private final String command;
+    private final int[] bounds;
+    private final int tokenCount;
+
+    private CommandTokens(String command, int[] bounds, int tokenCount) {
+        this.command = command;
+        this.bounds = bounds;
+        this.tokenCount = tokenCount;
+    }
+
+    public static CommandTokens of(String command) throws InvalidCommand {
+        if (command == null) {
+            throw new InvalidCommand("The command cannot be null.");
+        }
+
+        int[] bounds = new int[INITIAL_BOUNDS];
+        int count = 0;
+        int nonEmptyCount = 0;
+        int start = 0;
+        while (start <= command.length()) {
+            int end = command.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = command.length();
+            }
+            if (2 * count + 1 >= bounds.length) {
+                bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+            }
+            bounds[2 * count] = start;
+            bounds[2 * count + 1] = end;
+            count++;
+            if (end > start) {
+                nonEmptyCount = count;
+            }
+            start = end + 1;
+        }
+
+        // Like split, drop the trailing empty words, but keep the single word of an empty command.
+        return new CommandTokens(command, bounds, command.isEmpty() ? 1 : nonEmptyCount);
+    }
+
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    public String getCommandWord() {
+        return tokenCount == 0 ? "" : token(0);
+    }
+
+    /**
+     * @return the number of the parameters, the last one may be a flag without a value
+     */
+    public int getParameterCount() {
+        return tokenCount / 2;
+    }
+
+    public boolean isFlag(int parameter, String flag) {
+        int index = flagIndex(parameter);
+        if (index >= tokenCount) {
+            return false;
+        }
+        int start = bounds[2 * index];
+        int length = bounds[2 * index + 1] - start;
+        return length == flag.length() && command.regionMatches(start, flag, 0, length);
+    }
+
+    public String getFlag(int parameter) {
+        return token(flagIndex(parameter));
+    }
+
+    public boolean hasValue(int parameter) {
+        return flagIndex(parameter) + 1 < tokenCount;
+    }
+
+    public String getValue(int parameter) {
+        return token(flagIndex(parameter) + 1);
+    }
+
+    @Override
+    public boolean hasFields(List<CommandField> required, Set<CommandField> optional) {
+        if (tokenCount % 2 == 0 || getParameterCount() < required.size()) {
+            return false;
+        }
+        for (int i = 0; i < required.size(); i++) {
+            if (!isFlag(i, required.get(i).getFlag())) {
+                return false;
+            }
+        }
+
+        Set<CommandField> actualOptional = EnumSet.noneOf(CommandField.class);
+        for (int i = required.size(); i < getParameterCount(); i++) {
+            CommandField field = findField(i, optional);
+            if (field == null || !actualOptional.add(field)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String get(CommandField field) {
+        for (int i = 0; i < getParameterCount(); i++) {
+            if (isFlag(i, field.getFlag()) && hasValue(i)) {
+                return getValue(i);
+            }
+        }
+        return null;
+    }
+
+    private CommandField findField(int parameter, Set<CommandField> fields) {
+        for (CommandField field : fields) {
+            if (isFlag(parameter, field.getFlag())) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private int flagIndex(int parameter) {
+        return 2 * parameter + 1;
+    }
+
+    private String token(int index) {
+        if (index >= tokenCount) {
+            throw new IndexOutOfBoundsException("The command has only " + tokenCount + " words.");
+        }
+        return command.substring(bounds[2 * index], bounds[2 * index + 1]);
+    }
+}
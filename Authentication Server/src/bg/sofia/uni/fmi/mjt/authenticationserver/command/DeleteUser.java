@@ -19,36 +19,25 @@ public class DeleteUser extends BasicCommand {
     private String username;
 
     public DeleteUser(String command) throws InvalidCommand {
-        super(CommandBehavior.DELETE_USER, CommandType.ADMIN_ACCESSIBLE);
-        if (command == null) {
-            throw new InvalidCommand("The command cannot be null.");
-        }
-
-        final int sessionIndex = 2;
-        final int userNameIndex = 4;
+        this(CommandTokens.of(command));
+    }
 
-        String blankSpace = " ";
-        String[] commandWords = command.split(blankSpace);
+    private DeleteUser(CommandArguments command) throws InvalidCommand {
+        super(CommandBehavior.DELETE_USER, CommandType.ADMIN_ACCESSIBLE);
 
-        if (checkValidCommand(commandWords)) {
-            this.sessionId = commandWords[sessionIndex];
-            this.username = commandWords[userNameIndex];
+        if (checkValidCommand(command)) {
+            this.sessionId = command.get(CommandField.SESSION_ID);
+            this.username = command.get(CommandField.USERNAME);
         }
     }
 
+    public static DeleteUser of(CommandArguments command) throws InvalidCommand {
+        return new DeleteUser(command);
+    }
+
     @Override
-    protected boolean checkValidCommand(String[] command) throws InvalidCommand {
-        final int wordsInCommand = 5;
-        final int sessionIdIndex = 1;
-        final int userNameIndex = 3;
-
-        String sessionId = "--session-id";
-        String userName = "--username";
-
-        if (command == null
-            || command.length != wordsInCommand
-            || !command[sessionIdIndex].equals(sessionId)
-            || !command[userNameIndex].equals(userName)) {
+    protected boolean checkValidCommand(CommandArguments command) throws InvalidCommand {
+        if (command == null || !command.hasFields(CommandField.SESSION_ID, CommandField.USERNAME)) {
             throw new InvalidCommand("Invalid deleting user command.");
         }
         return true;
@@ -89,59 +78,66 @@ public class DeleteUser extends BasicCommand {
                 " is the only left admin.");
     }
 
+    private void setUnsuccessfulExecutedCommandNotSaved() {
+        setCommandStatus(CommandStatus.UNSUCCESSFUL);
+        setStatusMessage("The deletion of the user is unsuccessful. The changes cannot be saved, try again later.");
+    }
+
     private void setSuccessfulExecutedCommand(Database database, SessionManager sessionManager) {
-        setCommandStatus(CommandStatus.SUCCESSFUL);
+        if (!database.removeUser(username)) {
+            if (database.isWriteAheadLogFailed()) {
+                setUnsuccessfulExecutedCommandNotSaved();
+            } else {
+                setUnsuccessfulExecutedCommandRemovingLastAdmin();
+            }
+            return;
+        }
 
-        database.getUsers().remove(username);
+        setCommandStatus(CommandStatus.SUCCESSFUL);
         sessionManager.removeAllUserSession(username);
 
         setStatusMessage("The deletion of the user with an username " + username + " is successful.");
     }
 
     @Override
-    public void execute(Database database, SessionManager sessionManager) {
-        if (!sessionManager.isSessionValid(sessionId)) {
-            setUnsuccessfulExecutedCommandInvalidSessionId(sessionManager);
-        } else if (getUserBySessionId(database, sessionManager, sessionId).getAuthorization()
-            .equals(UserAuthorization.USER)) {
+    protected String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public void execute(RequestContext context) {
+        Database database = context.getDatabase();
+        if (!context.isSessionValid()) {
+            setUnsuccessfulExecutedCommandInvalidSessionId(context.getSessionManager());
+        } else if (context.getCaller().getAuthorization().equals(UserAuthorization.USER)) {
             setUnsuccessfulExecutedCommandNonAdminUser();
         } else if (database.getUserByUsername(username) == null) {
             setUnsuccessfulExecutedCommandInvalidUsername();
-        } else if (getUserBySessionId(database, sessionManager, sessionId).getUsername().equals(username) &&
-            database.getAdmins().size() == 1) {
+        } else if (context.getCaller().getUsername().equals(username) && database.getAdminCount() == 1) {
             setUnsuccessfulExecutedCommandRemovingLastAdmin();
         } else {
-            setSuccessfulExecutedCommand(database, sessionManager);
+            setSuccessfulExecutedCommand(database, context.getSessionManager());
         }
     }
 
     @Override
-    public Optional<Event> createStartEvent(String ipAddress, Database database, SessionManager sessionManager) {
-        if (sessionManager.isSessionValid(sessionId)) {
-            String usernameAdmin = getUserBySessionId(database, sessionManager, sessionId).getUsername();
-            return Optional.of(StartEvent.of(CommandBehavior.DELETE_USER, usernameAdmin, ipAddress,
+    public Optional<Event> createStartEvent(RequestContext context) {
+        if (context.isSessionValid()) {
+            String usernameAdmin = context.getCaller().getUsername();
+            return Optional.of(StartEvent.of(context.getTimestamp(), CommandBehavior.DELETE_USER, usernameAdmin,
+                context.getIpAddress(),
                 "Deletion of the user with an username " + username + " by the user " + usernameAdmin + "."));
         }
         return Optional.of(
-            StartEvent.of(CommandBehavior.DELETE_USER, "UNKNOWN", ipAddress,
+            StartEvent.of(context.getTimestamp(), CommandBehavior.DELETE_USER, "UNKNOWN", context.getIpAddress(),
                 "Adding a new admin of the user an username " + username + " by the user with  session Id: " +
                     sessionId + "."));
     }
 
     @Override
-    public Optional<Event> createEndEvent(String ipAddress, Database database,
-                                          SessionManager sessionManager) {
-        if (getCommandStatus().equals(CommandStatus.UNSUCCESSFUL)) {
-            if (sessionManager.isSessionValid(sessionId)) {
-                String username = getUserBySessionId(database, sessionManager, sessionId).getUsername();
-                return Optional.of(
-                    EndEvent.of(CommandBehavior.DELETE_USER, username, ipAddress, getStatusMessage()));
-            }
-            return Optional.of(
-                EndEvent.of(CommandBehavior.DELETE_USER, "UNKNOWN", ipAddress, getStatusMessage()));
-        }
-        String username = getUserBySessionId(database, sessionManager, sessionId).getUsername();
+    public Optional<Event> createEndEvent(RequestContext context) {
+        String caller = context.isSessionValid() ? context.getCaller().getUsername() : "UNKNOWN";
         return Optional.of(
-            EndEvent.of(CommandBehavior.DELETE_USER, username, ipAddress, getStatusMessage()));
+            EndEvent.of(CommandBehavior.DELETE_USER, caller, context.getIpAddress(), getStatusMessage()));
     }
 }
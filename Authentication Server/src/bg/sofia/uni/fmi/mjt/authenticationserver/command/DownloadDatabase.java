@@ -7,40 +7,60 @@ import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
 
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Exports the database to a file. The output ends with the change sequence of the export. With {@code --since},
+ * only the users changed after an earlier sequence are exported, so a copy of the database can be brought up to
+ * date without downloading every user.
+ */
 public class DownloadDatabase extends BasicCommand {
+    private static final long WHOLE_DATABASE = -1;
     private String sessionId;
+    private long since;
 
     public DownloadDatabase(String command) throws InvalidCommand {
-        super(CommandBehavior.DOWNLOAD_DATABASE, CommandType.SECURE);
-        if (command == null) {
-            throw new InvalidCommand("The command cannot be null.");
-        }
-
-        final int sessionIndex = 2;
+        this(CommandTokens.of(command));
+    }
 
-        String blankSpace = " ";
-        String[] commandWords = command.split(blankSpace);
+    private DownloadDatabase(CommandArguments command) throws InvalidCommand {
+        super(CommandBehavior.DOWNLOAD_DATABASE, CommandType.SECURE);
 
-        if (checkValidCommand(commandWords)) {
-            this.sessionId = commandWords[sessionIndex];
+        if (checkValidCommand(command)) {
+            this.sessionId = command.get(CommandField.SESSION_ID);
+            this.since = parseSince(command.get(CommandField.SINCE));
         }
     }
 
-    @Override
-    protected boolean checkValidCommand(String[] command) throws InvalidCommand {
-        final int wordsInCommand = 3;
-        final int sessionIndex = 1;
-
-        String sessionId = "--session-id";
+    public static DownloadDatabase of(CommandArguments command) throws InvalidCommand {
+        return new DownloadDatabase(command);
+    }
 
-        if (command == null
-            || command.length != wordsInCommand
-            || !command[sessionIndex].equals(sessionId)) {
+    @Override
+    protected boolean checkValidCommand(CommandArguments command) throws InvalidCommand {
+        if (command == null ||
+            !command.hasFields(List.of(CommandField.SESSION_ID), EnumSet.of(CommandField.SINCE))) {
             throw new InvalidCommand("Invalid download command.");
         }
         return true;
     }
 
+    private static long parseSince(String since) throws InvalidCommand {
+        if (since == null) {
+            return WHOLE_DATABASE;
+        }
+        try {
+            long value = Long.parseLong(since);
+            if (value >= 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported as an invalid command below.
+        }
+        throw new InvalidCommand("Invalid download command. The sequence must be a non-negative number.");
+    }
+
     private void setUnsuccessfulExecutedCommandInvalidSessionId(SessionManager sessionManager) {
         setCommandStatus(CommandStatus.UNSUCCESSFUL);
         if (sessionManager.checkLastSessionBySessionId(sessionId)) {
@@ -54,19 +74,61 @@ public class DownloadDatabase extends BasicCommand {
         }
     }
 
+    private void setUnsuccessfulExecutedCommandNotExported() {
+        setCommandStatus(CommandStatus.UNSUCCESSFUL);
+        setStatusMessage("The download of the database is unsuccessful. Try again later.");
+    }
+
+    private void setUnsuccessfulExecutedCommandChangesNotKept() {
+        setCommandStatus(CommandStatus.UNSUCCESSFUL);
+        setStatusMessage("The download of the changes is unsuccessful. The changes since the sequence " + since +
+            " are not kept, download the whole database.");
+    }
+
     private void setSuccessfulExecutedCommand(Database database) {
+        if (since != WHOLE_DATABASE) {
+            setSuccessfulExecutedCommandChanges(database);
+            return;
+        }
+        long sequence = DatabaseFile.getDatabase(database);
+        if (sequence == DatabaseFile.NOT_EXPORTED) {
+            setUnsuccessfulExecutedCommandNotExported();
+            return;
+        }
         setCommandStatus(CommandStatus.SUCCESSFUL);
-        DatabaseFile.getDatabase();
         setStatusMessage(
-            "The download of the database is successful in the file: " + DatabaseFile.getLogFilePath() + ".");
+            "The download of the database is successful in the file: " + DatabaseFile.getLogFilePath() +
+                ". The database is at the change sequence " + sequence + ".");
+    }
+
+    private void setSuccessfulExecutedCommandChanges(Database database) {
+        long sequence = DatabaseFile.getChanges(database, since);
+        if (sequence == DatabaseFile.NOT_EXPORTED) {
+            setUnsuccessfulExecutedCommandNotExported();
+            return;
+        }
+        if (sequence == DatabaseFile.CHANGES_NOT_KEPT) {
+            setUnsuccessfulExecutedCommandChangesNotKept();
+            return;
+        }
+        setCommandStatus(CommandStatus.SUCCESSFUL);
+        setStatusMessage(
+            "The download of the changes since the sequence " + since + " is successful in the file: " +
+                DatabaseFile.getChangesFilePath() + ". The changes are complete up to the change sequence " +
+                sequence + ".");
+    }
+
+    @Override
+    protected String getSessionId() {
+        return sessionId;
     }
 
     @Override
-    public void execute(Database database, SessionManager sessionManager) {
-        if (!sessionManager.isSessionValid(sessionId)) {
-            setUnsuccessfulExecutedCommandInvalidSessionId(sessionManager);
+    public void execute(RequestContext context) {
+        if (!context.isSessionValid()) {
+            setUnsuccessfulExecutedCommandInvalidSessionId(context.getSessionManager());
         } else {
-            setSuccessfulExecutedCommand(database);
+            setSuccessfulExecutedCommand(context.getDatabase());
         }
     }
 }
@@ -0,0 +1,105 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.Database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthorization;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Finds the users with an email through the email index of the database, without scanning the users.
+ */
+public class FindUser extends BasicCommand {
+    private String sessionId;
+    private String email;
+
+    public FindUser(String command) throws InvalidCommand {
+        this(CommandTokens.of(command));
+    }
+
+    private FindUser(CommandArguments command) throws InvalidCommand {
+        super(CommandBehavior.FIND_USER, CommandType.ADMIN_ACCESSIBLE);
+
+        if (checkValidCommand(command)) {
+            this.sessionId = command.get(CommandField.SESSION_ID);
+            this.email = command.get(CommandField.EMAIL);
+        }
+    }
+
+    public static FindUser of(CommandArguments command) throws InvalidCommand {
+        return new FindUser(command);
+    }
+
+    @Override
+    protected boolean checkValidCommand(CommandArguments command) throws InvalidCommand {
+        if (command == null || !command.hasFields(CommandField.SESSION_ID, CommandField.EMAIL)) {
+            throw new InvalidCommand("Invalid finding user command.");
+        }
+        return true;
+    }
+
+    private void setUnsuccessfulExecutedCommandInvalidSessionId(SessionManager sessionManager) {
+        setCommandStatus(CommandStatus.UNSUCCESSFUL);
+        if (sessionManager.checkLastSessionBySessionId(sessionId)) {
+            setLoggedOut(Optional.of(true));
+            setStatusMessage(
+                "The finding of the user is unsuccessful. The user with the session Id: " + sessionId +
+                    " is logged out.");
+        } else {
+            setStatusMessage(
+                "The finding of the user is unsuccessful. An user with the session Id: " + sessionId +
+                    " doesn't exist.");
+        }
+    }
+
+    private void setUnsuccessfulExecutedCommandNonAdminUser() {
+        setCommandStatus(CommandStatus.UNSUCCESSFUL);
+        setStatusMessage(
+            "The finding of the user is unsuccessful. The user with the session Id: " + sessionId +
+                " doesn't have administrative permissions.");
+    }
+
+    private void setUnsuccessfulExecutedCommandInvalidEmail() {
+        setCommandStatus(CommandStatus.UNSUCCESSFUL);
+        setStatusMessage(
+            "The finding of the user is unsuccessful. An user with the email " + email + " doesn't exist.");
+    }
+
+    private void setSuccessfulExecutedCommand(List<User> users) {
+        setCommandStatus(CommandStatus.SUCCESSFUL);
+
+        StringBuilder message = new StringBuilder("The users with the email " + email + " are:");
+        for (User user : users) {
+            message.append(System.lineSeparator()).append(describeUser(user));
+        }
+        setStatusMessage(message.toString());
+    }
+
+    @Override
+    protected String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public void execute(RequestContext context) {
+        if (!context.isSessionValid()) {
+            setUnsuccessfulExecutedCommandInvalidSessionId(context.getSessionManager());
+        } else if (context.getCaller().getAuthorization().equals(UserAuthorization.USER)) {
+            setUnsuccessfulExecutedCommandNonAdminUser();
+        } else {
+            Database database = context.getDatabase();
+            List<User> users = database.getUsersByEmail(email);
+            if (users.isEmpty()) {
+                setUnsuccessfulExecutedCommandInvalidEmail();
+            } else {
+                setSuccessfulExecutedCommand(users);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.Database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthorization;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Lists the users whose usernames start with a prefix, one page per command. The output ends with the cursor of
+ * the next page, which is passed to the next command with {@code --cursor}.
+ */
+public class ListUsers extends BasicCommand {
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+    private String sessionId;
+    private String prefix;
+    private int limit;
+    private String cursor;
+
+    public ListUsers(String command) throws InvalidCommand {
+        this(CommandTokens.of(command));
+    }
+
+    private ListUsers(CommandArguments command) throws InvalidCommand {
+        super(CommandBehavior.LIST_USERS, CommandType.ADMIN_ACCESSIBLE);
+
+        if (checkValidCommand(command)) {
+            this.sessionId = command.get(CommandField.SESSION_ID);
+            String commandPrefix = command.get(CommandField.PREFIX);
+            this.prefix = commandPrefix != null ? commandPrefix : "";
+            this.limit = parseLimit(command.get(CommandField.LIMIT));
+            this.cursor = command.get(CommandField.CURSOR);
+        }
+    }
+
+    public static ListUsers of(CommandArguments command) throws InvalidCommand {
+        return new ListUsers(command);
+    }
+
+    @Override
+    protected boolean checkValidCommand(CommandArguments command) throws InvalidCommand {
+        if (command == null || !command.hasFields(List.of(CommandField.SESSION_ID),
+            EnumSet.of(CommandField.PREFIX, CommandField.LIMIT, CommandField.CURSOR))) {
+            throw new InvalidCommand("Invalid listing users command.");
+        }
+        return true;
+    }
+
+    private static int parseLimit(String limit) throws InvalidCommand {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            int value = Integer.parseInt(limit);
+            if (value > 0 && value <= MAX_LIMIT) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported as an invalid command below.
+        }
+        throw new InvalidCommand("Invalid listing users command. The limit must be between 1 and " + MAX_LIMIT + ".");
+    }
+
+    private void setUnsuccessfulExecutedCommandInvalidSessionId(SessionManager sessionManager) {
+        setCommandStatus(CommandStatus.UNSUCCESSFUL);
+        if (sessionManager.checkLastSessionBySessionId(sessionId)) {
+            setLoggedOut(Optional.of(true));
+            setStatusMessage(
+                "The listing of the users is unsuccessful. The user with the session Id: " + sessionId +
+                    " is logged out.");
+        } else {
+            setStatusMessage(
+                "The listing of the users is unsuccessful. An user with the session Id: " + sessionId +
+                    " doesn't exist.");
+        }
+    }
+
+    private void setUnsuccessfulExecutedCommandNonAdminUser() {
+        setCommandStatus(CommandStatus.UNSUCCESSFUL);
+        setStatusMessage(
+            "The listing of the users is unsuccessful. The user with the session Id: " + sessionId +
+                " doesn't have administrative permissions.");
+    }
+
+    private void setSuccessfulExecutedCommand(Database database) {
+        setCommandStatus(CommandStatus.SUCCESSFUL);
+
+        // One user more than the limit tells whether there is a next page.
+        List<User> users = database.getUsersByPrefix(prefix, cursor, limit + 1);
+        List<User> page = users.size() > limit ? users.subList(0, limit) : users;
+
+        StringBuilder message = new StringBuilder("The users with a prefix '" + prefix + "' are:");
+        for (User user : page) {
+            message.append(System.lineSeparator()).append(describeUser(user));
+        }
+        message.append(System.lineSeparator());
+        if (users.size() > limit) {
+            message.append("Next cursor: ").append(page.get(page.size() - 1).getUsername()).append('.');
+        } else {
+            message.append("There are no more users.");
+        }
+        setStatusMessage(message.toString());
+    }
+
+    @Override
+    protected String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public void execute(RequestContext context) {
+        if (!context.isSessionValid()) {
+            setUnsuccessfulExecutedCommandInvalidSessionId(context.getSessionManager());
+        } else if (context.getCaller().getAuthorization().equals(UserAuthorization.USER)) {
+            setUnsuccessfulExecutedCommandNonAdminUser();
+        } else {
+            setSuccessfulExecutedCommand(context.getDatabase());
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package bg.sofia.uni.fmi.mjt.authenticationserver.command;
 
-import bg.sofia.uni.fmi.mjt.authenticationserver.database.Database;
-
 import bg.sofia.uni.fmi.mjt.authenticationserver.event.Event;
 import bg.sofia.uni.fmi.mjt.authenticationserver.event.FailedLogin;
 
@@ -15,31 +13,24 @@ public class LoginBySessionId extends BasicCommand {
     private String sessionId;
 
     public LoginBySessionId(String command) throws InvalidCommand {
-        super(CommandBehavior.LOGIN_BY_SESSION_ID, CommandType.UNSECURE);
-        if (command == null) {
-            throw new InvalidCommand("The command cannot be null.");
-        }
-
-        String blankSpace = " ";
-        String[] commandWords = command.split(blankSpace);
+        this(CommandTokens.of(command));
+    }
 
-        final int sessionIdIndex = 2;
+    private LoginBySessionId(CommandArguments command) throws InvalidCommand {
+        super(CommandBehavior.LOGIN_BY_SESSION_ID, CommandType.UNSECURE);
 
-        if (checkValidCommand(commandWords)) {
-            this.sessionId = commandWords[sessionIdIndex];
+        if (checkValidCommand(command)) {
+            this.sessionId = command.get(CommandField.SESSION_ID);
         }
     }
 
-    @Override
-    protected boolean checkValidCommand(String[] command) throws InvalidCommand {
-        final int wordsInCommand = 3;
-        final int sessionIdIndex = 1;
-
-        String sessionId = "--session-id";
+    public static LoginBySessionId of(CommandArguments command) throws InvalidCommand {
+        return new LoginBySessionId(command);
+    }
 
-        if (command == null
-            || command.length != wordsInCommand
-            || !command[sessionIdIndex].equals(sessionId)) {
+    @Override
+    protected boolean checkValidCommand(CommandArguments command) throws InvalidCommand {
+        if (command == null || !command.hasFields(CommandField.SESSION_ID)) {
             throw new InvalidCommand("Invalid login-by-session-id command.");
         }
         return true;
@@ -63,19 +54,23 @@ public class LoginBySessionId extends BasicCommand {
     }
 
     @Override
-    public void execute(Database database, SessionManager sessionManager) {
-        if (!sessionManager.isSessionValid(sessionId)) {
-            setUnsuccessfulExecutedCommandInvalidSessionId(sessionManager);
+    protected String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public void execute(RequestContext context) {
+        if (!context.isSessionValid()) {
+            setUnsuccessfulExecutedCommandInvalidSessionId(context.getSessionManager());
         } else {
             setSuccessfulExecutedCommand();
         }
     }
 
     @Override
-    public Optional<Event> createFailedLoginEvent(String ipAddress, Database database,
-                                                  SessionManager sessionManager) {
+    public Optional<Event> createFailedLoginEvent(RequestContext context) {
         if (getCommandStatus().equals(CommandStatus.UNSUCCESSFUL)) {
-            return Optional.of(FailedLogin.of("UNKNOWN", ipAddress));
+            return Optional.of(FailedLogin.of("UNKNOWN", context.getIpAddress()));
         }
         return Optional.ofNullable(null);
     }
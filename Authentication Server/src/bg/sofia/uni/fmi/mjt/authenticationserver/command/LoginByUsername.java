@@ -9,6 +9,7 @@ import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
 
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
 import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthentication;
 
 import java.util.Optional;
@@ -18,35 +19,25 @@ public class LoginByUsername extends BasicCommand {
     private String password;
 
     public LoginByUsername(String command) throws InvalidCommand {
-        super(CommandBehavior.LOGIN_BY_USERNAME, CommandType.UNSECURE);
-        if (command == null) {
-            throw new InvalidCommand("The command cannot be null.");
-        }
-
-        final int userNameIndex = 2;
-        final int passwordIndex = 4;
+        this(CommandTokens.of(command));
+    }
 
-        String blankSpace = " ";
-        String[] commandWords = command.split(blankSpace);
+    private LoginByUsername(CommandArguments command) throws InvalidCommand {
+        super(CommandBehavior.LOGIN_BY_USERNAME, CommandType.UNSECURE);
 
-        if (checkValidCommand(commandWords)) {
-            this.username = commandWords[userNameIndex];
-            this.password = commandWords[passwordIndex];
+        if (checkValidCommand(command)) {
+            this.username = command.get(CommandField.USERNAME);
+            this.password = command.get(CommandField.PASSWORD);
         }
     }
 
+    public static LoginByUsername of(CommandArguments command) throws InvalidCommand {
+        return new LoginByUsername(command);
+    }
+
     @Override
-    protected boolean checkValidCommand(String[] command) throws InvalidCommand {
-        final int wordsInCommand = 5;
-        final int userNameIndex = 1;
-        final int passwordIndex = 3;
-        final String userName = "--username";
-        final String password = "--password";
-
-        if (command == null
-            || command.length != wordsInCommand
-            || !command[userNameIndex].equals(userName)
-            || !command[passwordIndex].equals(password)) {
+    protected boolean checkValidCommand(CommandArguments command) throws InvalidCommand {
+        if (command == null || !command.hasFields(CommandField.USERNAME, CommandField.PASSWORD)) {
             throw new InvalidCommand("Invalid login-by-username command.");
         }
         return true;
@@ -56,8 +47,8 @@ public class LoginByUsername extends BasicCommand {
         return username;
     }
 
-    private boolean checkPassword(Database database) {
-        return database.getUsers().get(username).getPassword().equals(password);
+    private boolean checkPassword(User user) {
+        return user.getPassword().equals(password);
     }
 
     private void setUnsuccessfulExecutedCommandInvalidUsername() {
@@ -83,21 +74,22 @@ public class LoginByUsername extends BasicCommand {
     }
 
     @Override
-    public void execute(Database database, SessionManager sessionManager) {
-        if (database.getUserByUsername(username) == null) {
+    public void execute(RequestContext context) {
+        Database database = context.getDatabase();
+        User user = database.getUserByUsername(username);
+        if (user == null) {
             setUnsuccessfulExecutedCommandInvalidUsername();
-        } else if (!checkPassword(database)) {
+        } else if (!checkPassword(user)) {
             setUnsuccessfulExecutedCommandIncorrectPassword();
         } else {
-            setSuccessfulExecutedCommand(database, sessionManager);
+            setSuccessfulExecutedCommand(database, context.getSessionManager());
         }
     }
 
     @Override
-    public Optional<Event> createFailedLoginEvent(String ipAddress, Database database,
-                                                  SessionManager sessionManager) {
+    public Optional<Event> createFailedLoginEvent(RequestContext context) {
         if (getCommandStatus().equals(CommandStatus.UNSUCCESSFUL)) {
-            return Optional.of(FailedLogin.of(username, ipAddress));
+            return Optional.of(FailedLogin.of(username, context.getIpAddress()));
         }
         return Optional.empty();
     }
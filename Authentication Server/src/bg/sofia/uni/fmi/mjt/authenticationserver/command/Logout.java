@@ -15,31 +15,24 @@ public class Logout extends BasicCommand {
     private String sessionId;
 
     public Logout(String command) throws InvalidCommand {
-        super(CommandBehavior.LOGOUT, CommandType.SECURE);
-        if (command == null) {
-            throw new InvalidCommand("The command cannot be null.");
-        }
-
-        final int sessionIndex = 2;
+        this(CommandTokens.of(command));
+    }
 
-        String blankSpace = " ";
-        String[] commandWords = command.split(blankSpace);
+    private Logout(CommandArguments command) throws InvalidCommand {
+        super(CommandBehavior.LOGOUT, CommandType.SECURE);
 
-        if (checkValidCommand(commandWords)) {
-            this.sessionId = commandWords[sessionIndex];
+        if (checkValidCommand(command)) {
+            this.sessionId = command.get(CommandField.SESSION_ID);
         }
     }
 
-    @Override
-    protected boolean checkValidCommand(String[] command) throws InvalidCommand {
-        final int wordsInCommand = 3;
-        final int sessionIndex = 1;
-
-        String sessionId = "--session-id";
+    public static Logout of(CommandArguments command) throws InvalidCommand {
+        return new Logout(command);
+    }
 
-        if (command == null
-            || command.length != wordsInCommand
-            || !command[sessionIndex].equals(sessionId)) {
+    @Override
+    protected boolean checkValidCommand(CommandArguments command) throws InvalidCommand {
+        if (command == null || !command.hasFields(CommandField.SESSION_ID)) {
             throw new InvalidCommand("Invalid logout command.");
         }
         return true;
@@ -58,10 +51,9 @@ public class Logout extends BasicCommand {
         }
     }
 
-    private void setSuccessfulExecutedCommand(Database database, SessionManager sessionManager) {
+    private void setSuccessfulExecutedCommand(Database database, User currentUser, SessionManager sessionManager) {
         setCommandStatus(CommandStatus.SUCCESSFUL);
 
-        User currentUser = getUserBySessionId(database, sessionManager, sessionId);
         setAuthenticationToUser(database, UserAuthentication.UNAUTHENTICATED, currentUser.getUsername());
 
         sessionManager.removeUserSession(sessionId);
@@ -70,11 +62,16 @@ public class Logout extends BasicCommand {
     }
 
     @Override
-    public void execute(Database database, SessionManager sessionManager) {
-        if (!sessionManager.isSessionValid(sessionId)) {
-            setUnsuccessfulExecutedCommandInvalidSessionId(sessionManager);
+    protected String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public void execute(RequestContext context) {
+        if (!context.isSessionValid()) {
+            setUnsuccessfulExecutedCommandInvalidSessionId(context.getSessionManager());
         } else {
-            setSuccessfulExecutedCommand(database, sessionManager);
+            setSuccessfulExecutedCommand(context.getDatabase(), context.getCaller(), context.getSessionManager());
         }
     }
 }
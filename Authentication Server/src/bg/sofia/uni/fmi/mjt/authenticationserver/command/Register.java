@@ -24,68 +24,50 @@ public class Register extends BasicCommand {
     private String email;
 
     public Register(String command) throws InvalidCommand {
+        this(CommandTokens.of(command));
+    }
+
+    private Register(CommandArguments command) throws InvalidCommand {
         super(CommandBehavior.REGISTER, CommandType.UNSECURE);
-        if (command == null) {
-            throw new InvalidCommand("The command cannot be null.");
-        }
 
-        final int userNameIndex = 2;
-        final int passwordIndex = 4;
-        final int firstNameIndex = 6;
-        final int lastNameIndex = 8;
-        final int emailIndex = 10;
-
-        String blankSpace = " ";
-        String[] commandWords = command.split(blankSpace);
-
-        if (checkValidCommand(commandWords)) {
-            this.username = commandWords[userNameIndex];
-            this.password = commandWords[passwordIndex];
-            this.firstName = commandWords[firstNameIndex];
-            this.lastName = commandWords[lastNameIndex];
-            this.email = commandWords[emailIndex];
+        if (checkValidCommand(command)) {
+            this.username = command.get(CommandField.USERNAME);
+            this.password = command.get(CommandField.PASSWORD);
+            this.firstName = command.get(CommandField.FIRST_NAME);
+            this.lastName = command.get(CommandField.LAST_NAME);
+            this.email = command.get(CommandField.EMAIL);
         }
     }
 
+    public static Register of(CommandArguments command) throws InvalidCommand {
+        return new Register(command);
+    }
+
     @Override
-    protected boolean checkValidCommand(String[] command) throws InvalidCommand {
-        final int wordsInCommand = 11;
-        final int userNameIndex = 1;
-        final int passwordIndex = 3;
-        final int firstNameIndex = 5;
-        final int lastNameIndex = 7;
-        final int emailIndex = 9;
-        String userName = "--username";
-        String password = "--password";
-        String firstName = "--first-name";
-        String lastName = "--last-name";
-        String email = "--email";
-
-        if (command == null
-            || command.length != wordsInCommand
-            || !command[userNameIndex].equals(userName)
-            || !command[passwordIndex].equals(password)
-            || !command[firstNameIndex].equals(firstName)
-            || !command[lastNameIndex].equals(lastName)
-            || !command[emailIndex].equals(email)) {
+    protected boolean checkValidCommand(CommandArguments command) throws InvalidCommand {
+        if (command == null || !command.hasFields(CommandField.USERNAME, CommandField.PASSWORD, CommandField.FIRST_NAME,
+            CommandField.LAST_NAME, CommandField.EMAIL)) {
             throw new InvalidCommand("Invalid register command.");
         }
         return true;
     }
 
-    private void setUnsuccessfulExecutedCommand() {
+    private void setUnsuccessfulExecutedCommand(Database database, User user) {
         setCommandStatus(CommandStatus.UNSUCCESSFUL);
-        setStatusMessage(
-            "The registry is unsuccessful. An user with the username: " + username + " already exists.");
-    }
-
-    private void addUserToDatabase(Database database) {
-        database.getUsers().put(username, new User(username, password, firstName, lastName, email));
+        if (database.isWriteAheadLogFailed()) {
+            setStatusMessage("The registry is unsuccessful. The changes cannot be saved, try again later.");
+        } else if (database.isTooLarge(user)) {
+            setStatusMessage("The registry is unsuccessful. The user details are too long.");
+        } else if (database.getUserByUsername(username) == null && database.isEmailTaken(email, username)) {
+            setStatusMessage(
+                "The registry is unsuccessful. An user with the email: " + email + " already exists.");
+        } else {
+            setStatusMessage(
+                "The registry is unsuccessful. An user with the username: " + username + " already exists.");
+        }
     }
 
-    private void setSuccessfulExecutedCommandFirstUser(Database database, String sessionId) {
-        setAuthorizationToUser(database, UserAuthorization.ADMIN, username);
-
+    private void setSuccessfulExecutedCommandFirstUser(String sessionId) {
         setStatusMessage(
             "The registry is successful. Your current session Id is: " + sessionId + "." +
                 System.lineSeparator() + "You have been granted with administrative permissions.");
@@ -96,42 +78,42 @@ public class Register extends BasicCommand {
             "The registry is successful. Your current session Id is: " + sessionId + ".");
     }
 
-    private void setSuccessfulExecutedCommand(Database database, SessionManager sessionManager) {
+    private void setSuccessfulExecutedCommand(Database database, SessionManager sessionManager, User user) {
         setCommandStatus(CommandStatus.SUCCESSFUL);
 
-        addUserToDatabase(database);
         setAuthenticationToUser(database, UserAuthentication.AUTHENTICATED, username);
 
         String sessionId = sessionManager.createSession(username);
-        if (database.getUsers().size() == 1) {
-            setSuccessfulExecutedCommandFirstUser(database, sessionId);
+        if (UserAuthorization.ADMIN.equals(user.getAuthorization())) {
+            setSuccessfulExecutedCommandFirstUser(sessionId);
         } else {
             setSuccessfulExecutedCommandNonFirstUser(sessionId);
         }
     }
 
     @Override
-    public void execute(Database database, SessionManager sessionManager) {
-        if (database.getUserByUsername(username) != null) {
-            setUnsuccessfulExecutedCommand();
+    public void execute(RequestContext context) {
+        User user = new User(username, password, firstName, lastName, email);
+        if (!context.getDatabase().registerUser(user)) {
+            setUnsuccessfulExecutedCommand(context.getDatabase(), user);
         } else {
-            setSuccessfulExecutedCommand(database, sessionManager);
+            setSuccessfulExecutedCommand(context.getDatabase(), context.getSessionManager(), user);
         }
     }
 
     @Override
-    public Optional<Event> createStartEvent(String ipAddress, Database database, SessionManager sessionManager) {
-        return Optional.of(StartEvent.of(CommandBehavior.REGISTER, username, ipAddress,
-            "Registration of the user " + username + "."));
+    public Optional<Event> createStartEvent(RequestContext context) {
+        return Optional.of(StartEvent.of(context.getTimestamp(), CommandBehavior.REGISTER, username,
+            context.getIpAddress(), "Registration of the user " + username + "."));
     }
 
     @Override
-    public Optional<Event> createEndEvent(String ipAddress, Database database, SessionManager sessionManager) {
+    public Optional<Event> createEndEvent(RequestContext context) {
         if (getCommandStatus().equals(CommandStatus.UNSUCCESSFUL)) {
             return Optional.of(
-                EndEvent.of(CommandBehavior.REGISTER, username, ipAddress, getStatusMessage()));
+                EndEvent.of(CommandBehavior.REGISTER, username, context.getIpAddress(), getStatusMessage()));
         } else {
-            return Optional.of(EndEvent.of(CommandBehavior.REGISTER, username, ipAddress,
+            return Optional.of(EndEvent.of(CommandBehavior.REGISTER, username, context.getIpAddress(),
                 "The registry of the user " + username + " is successful."));
         }
     }
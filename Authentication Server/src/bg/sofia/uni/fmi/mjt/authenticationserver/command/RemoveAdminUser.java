@@ -19,36 +19,25 @@ public class RemoveAdminUser extends BasicCommand {
     private String username;
 
     public RemoveAdminUser(String command) throws InvalidCommand {
-        super(CommandBehavior.REMOVE_ADMIN_USER, CommandType.ADMIN_ACCESSIBLE);
-        if (command == null) {
-            throw new InvalidCommand("The command cannot be null.");
-        }
-
-        final int sessionIndex = 2;
-        final int userNameIndex = 4;
+        this(CommandTokens.of(command));
+    }
 
-        String blankSpace = " ";
-        String[] commandWords = command.split(blankSpace);
+    private RemoveAdminUser(CommandArguments command) throws InvalidCommand {
+        super(CommandBehavior.REMOVE_ADMIN_USER, CommandType.ADMIN_ACCESSIBLE);
 
-        if (checkValidCommand(commandWords)) {
-            this.sessionId = commandWords[sessionIndex];
-            this.username = commandWords[userNameIndex];
+        if (checkValidCommand(command)) {
+            this.sessionId = command.get(CommandField.SESSION_ID);
+            this.username = command.get(CommandField.USERNAME);
         }
     }
 
+    public static RemoveAdminUser of(CommandArguments command) throws InvalidCommand {
+        return new RemoveAdminUser(command);
+    }
+
     @Override
-    protected boolean checkValidCommand(String[] command) throws InvalidCommand {
-        final int wordsInCommand = 5;
-        final int sessionIdIndex = 1;
-        final int userNameIndex = 3;
-
-        String sessionId = "--session-id";
-        String userName = "--username";
-
-        if (command == null
-            || command.length != wordsInCommand
-            || !command[sessionIdIndex].equals(sessionId)
-            || !command[userNameIndex].equals(userName)) {
+    protected boolean checkValidCommand(CommandArguments command) throws InvalidCommand {
+        if (command == null || !command.hasFields(CommandField.SESSION_ID, CommandField.USERNAME)) {
             throw new InvalidCommand("Invalid removing admin command.");
         }
         return true;
@@ -95,26 +84,42 @@ public class RemoveAdminUser extends BasicCommand {
             "The removing of the admin is unsuccessful. There is only one admin left.");
     }
 
-    private void setSuccessfulExecutedCommand(Database database) {
-        setCommandStatus(CommandStatus.SUCCESSFUL);
+    private void setUnsuccessfulExecutedCommandNotSaved() {
+        setCommandStatus(CommandStatus.UNSUCCESSFUL);
+        setStatusMessage("The removing of the admin is unsuccessful. The changes cannot be saved, try again later.");
+    }
 
-        setAuthorizationToUser(database, UserAuthorization.USER, username);
+    private void setSuccessfulExecutedCommand(Database database) {
+        if (!database.removeAdmin(username)) {
+            if (database.isWriteAheadLogFailed()) {
+                setUnsuccessfulExecutedCommandNotSaved();
+            } else {
+                setUnsuccessfulExecutedCommandRemovingLastAdmin();
+            }
+            return;
+        }
 
+        setCommandStatus(CommandStatus.SUCCESSFUL);
         setStatusMessage("The removing of the admin with username " + username + " is successful.");
     }
 
     @Override
-    public void execute(Database database, SessionManager sessionManager) {
-        if (!sessionManager.isSessionValid(sessionId)) {
-            setUnsuccessfulExecutedCommandInvalidSessionId(sessionManager);
-        } else if (getUserBySessionId(database, sessionManager, sessionId).getAuthorization()
-            .equals(UserAuthorization.USER)) {
+    protected String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public void execute(RequestContext context) {
+        Database database = context.getDatabase();
+        if (!context.isSessionValid()) {
+            setUnsuccessfulExecutedCommandInvalidSessionId(context.getSessionManager());
+        } else if (context.getCaller().getAuthorization().equals(UserAuthorization.USER)) {
             setUnsuccessfulExecutedCommandNonAdminUser();
         } else if (database.getUserByUsername(username) == null) {
             setUnsuccessfulExecutedCommandInvalidUsername();
         } else if (database.getUserByUsername(username).getAuthorization().equals(UserAuthorization.USER)) {
             setUnsuccessfulExecutedCommandRemovingNonAdminUser();
-        } else if (database.getAdmins().size() == 1) {
+        } else if (database.getAdminCount() == 1) {
             setUnsuccessfulExecutedCommandRemovingLastAdmin();
         } else {
             setSuccessfulExecutedCommand(database);
@@ -122,32 +127,23 @@ public class RemoveAdminUser extends BasicCommand {
     }
 
     @Override
-    public Optional<Event> createStartEvent(String ipAddress, Database database, SessionManager sessionManager) {
-        if (sessionManager.isSessionValid(sessionId)) {
-            String usernameAdmin = getUserBySessionId(database, sessionManager, sessionId).getUsername();
-            return Optional.of(StartEvent.of(CommandBehavior.REMOVE_ADMIN_USER, usernameAdmin, ipAddress,
+    public Optional<Event> createStartEvent(RequestContext context) {
+        if (context.isSessionValid()) {
+            String usernameAdmin = context.getCaller().getUsername();
+            return Optional.of(StartEvent.of(context.getTimestamp(), CommandBehavior.REMOVE_ADMIN_USER, usernameAdmin,
+                context.getIpAddress(),
                 "Removing the admin with an username" + username + " by the user " + usernameAdmin + "."));
         }
         return Optional.of(
-            StartEvent.of(CommandBehavior.REMOVE_ADMIN_USER, "UNKNOWN", ipAddress,
+            StartEvent.of(context.getTimestamp(), CommandBehavior.REMOVE_ADMIN_USER, "UNKNOWN", context.getIpAddress(),
                 "Removing the admin with an username" + username + " by the user with  session Id: " +
                     sessionId + "."));
     }
 
     @Override
-    public Optional<Event> createEndEvent(String ipAddress, Database database,
-                                          SessionManager sessionManager) {
-        if (getCommandStatus().equals(CommandStatus.UNSUCCESSFUL)) {
-            if (sessionManager.isSessionValid(sessionId)) {
-                String username = getUserBySessionId(database, sessionManager, sessionId).getUsername();
-                return Optional.of(
-                    EndEvent.of(CommandBehavior.REMOVE_ADMIN_USER, username, ipAddress, getStatusMessage()));
-            }
-            return Optional.of(
-                EndEvent.of(CommandBehavior.REMOVE_ADMIN_USER, "UNKNOWN", ipAddress, getStatusMessage()));
-        }
-        String username = getUserBySessionId(database, sessionManager, sessionId).getUsername();
+    public Optional<Event> createEndEvent(RequestContext context) {
+        String caller = context.isSessionValid() ? context.getCaller().getUsername() : "UNKNOWN";
         return Optional.of(
-            EndEvent.of(CommandBehavior.REMOVE_ADMIN_USER, username, ipAddress, getStatusMessage()));
+            EndEvent.of(CommandBehavior.REMOVE_ADMIN_USER, caller, context.getIpAddress(), getStatusMessage()));
     }
 }
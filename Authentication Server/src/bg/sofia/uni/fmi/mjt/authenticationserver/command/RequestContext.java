@@ -0,0 +1,83 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.Database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+
+/**
+ * Everything a command needs to know about the request it executes for. The session of the command is checked
+ * once, when the context is created, and the user of the session is looked up at most once, when it is first
+ * needed. Both are shared by the execution and the events of the command.
+ *
+ * <p>A user is removed or renamed before its sessions are, so a session may still be valid while its user is
+ * gone. Such a session is not valid for the command.</p>
+ */
+public final class RequestContext {
+    private final Database database;
+    private final SessionManager sessionManager;
+    private final String ipAddress;
+    private final long timestamp;
+    private final String sessionId;
+    private final boolean sessionValid;
+    private User caller;
+
+    private RequestContext(Database database, SessionManager sessionManager, String ipAddress, String sessionId) {
+        this.database = database;
+        this.sessionManager = sessionManager;
+        this.ipAddress = ipAddress;
+        this.timestamp = System.currentTimeMillis();
+        this.sessionId = sessionId;
+        this.sessionValid = sessionId != null && sessionManager.isSessionValid(sessionId);
+    }
+
+    /**
+     * @param sessionId      - the session of the command or null if the command does not have a session
+     * @param ipAddress      - the ip address of the client
+     * @param database       - database of the users
+     * @param sessionManager - manager of the users sessions
+     * @return the context of the request
+     */
+    public static RequestContext of(String sessionId, String ipAddress, Database database,
+                                    SessionManager sessionManager) {
+        return new RequestContext(database, sessionManager, ipAddress, sessionId);
+    }
+
+    public Database getDatabase() {
+        return database;
+    }
+
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * @return true if the session is valid and its user exists
+     */
+    public boolean isSessionValid() {
+        return getCaller() != null;
+    }
+
+    /**
+     * @return the user of the session or null if the session is not valid or its user does not exist
+     */
+    public User getCaller() {
+        if (caller == null && sessionValid) {
+            caller = database.getUserBySessionId(sessionManager, sessionId);
+        }
+        return caller;
+    }
+}
@@ -21,58 +21,39 @@ public class ResetPassword extends BasicCommand {
     private String newPassword;
 
     public ResetPassword(String command) throws InvalidCommand {
-        super(CommandBehavior.RESET_PASSWORD, CommandType.SECURE);
-        if (command == null) {
-            throw new InvalidCommand("The command cannot be null.");
-        }
-
-        final int sessionIndex = 2;
-        final int userNameIndex = 4;
-        final int oldPasswordIndex = 6;
-        final int newPasswordIndex = 8;
+        this(CommandTokens.of(command));
+    }
 
-        String blankSpace = " ";
-        String[] commandWords = command.split(blankSpace);
+    private ResetPassword(CommandArguments command) throws InvalidCommand {
+        super(CommandBehavior.RESET_PASSWORD, CommandType.SECURE);
 
-        if (checkValidCommand(commandWords)) {
-            this.sessionId = commandWords[sessionIndex];
-            this.username = commandWords[userNameIndex];
-            this.oldPassword = commandWords[oldPasswordIndex];
-            this.newPassword = commandWords[newPasswordIndex];
+        if (checkValidCommand(command)) {
+            this.sessionId = command.get(CommandField.SESSION_ID);
+            this.username = command.get(CommandField.USERNAME);
+            this.oldPassword = command.get(CommandField.OLD_PASSWORD);
+            this.newPassword = command.get(CommandField.NEW_PASSWORD);
         }
     }
 
+    public static ResetPassword of(CommandArguments command) throws InvalidCommand {
+        return new ResetPassword(command);
+    }
+
     @Override
-    protected boolean checkValidCommand(String[] command) throws InvalidCommand {
-        final int wordsInCommand = 9;
-        final int sessionIndex = 1;
-        final int userNameIndex = 3;
-        final int oldPasswordIndex = 5;
-        final int newPasswordIndex = 7;
-
-        String sessionId = "--session-id";
-        String userName = "--username";
-        String oldPassword = "--old-password";
-        String newPassword = "--new-password";
-
-
-        if (command == null
-            || command.length != wordsInCommand
-            || !command[sessionIndex].equals(sessionId)
-            || !command[userNameIndex].equals(userName)
-            || !command[oldPasswordIndex].equals(oldPassword)
-            || !command[newPasswordIndex].equals(newPassword)) {
+    protected boolean checkValidCommand(CommandArguments command) throws InvalidCommand {
+        if (command == null || !command.hasFields(CommandField.SESSION_ID, CommandField.USERNAME,
+            CommandField.OLD_PASSWORD, CommandField.NEW_PASSWORD)) {
             throw new InvalidCommand("Invalid reset password command.");
         }
         return true;
     }
 
-    private boolean checkUsername(Database database, SessionManager sessionManager, String sessionId) {
-        return getUserBySessionId(database, sessionManager, sessionId).getUsername().equals(username);
+    private boolean checkUsername(User caller) {
+        return caller.getUsername().equals(username);
     }
 
-    private boolean checkPassword(Database database, SessionManager sessionManager, String sessionId) {
-        return getUserBySessionId(database, sessionManager, sessionId).getPassword().equals(oldPassword);
+    private boolean checkPassword(User caller) {
+        return caller.getPassword().equals(oldPassword);
     }
 
     private void setUnsuccessfulExecutedCommandInvalidSessionId(SessionManager sessionManager) {
@@ -101,59 +82,67 @@ public class ResetPassword extends BasicCommand {
             "The password reset is unsuccessful. The password is not correct.");
     }
 
-    private void setSuccessfulExecutedCommand(Database database, SessionManager sessionManager) {
-        setCommandStatus(CommandStatus.SUCCESSFUL);
-
-        User currentUser = getUserBySessionId(database, sessionManager, sessionId);
+    private void setSuccessfulExecutedCommand(Database database, User currentUser) {
         User newUser =
             new User(username, newPassword, currentUser.getFirstName(),
                 currentUser.getLastName(), currentUser.getEmail());
-        database.getUsers().remove(username);
-        database.getUsers().put(username, newUser);
+        newUser.setAuthorization(currentUser.getAuthorization());
+        if (!database.replaceUser(currentUser, newUser)) {
+            setCommandStatus(CommandStatus.UNSUCCESSFUL);
+            if (database.isWriteAheadLogFailed()) {
+                setStatusMessage("The password reset is unsuccessful. The changes cannot be saved, try again later.");
+            } else if (database.isTooLarge(newUser)) {
+                setStatusMessage("The password reset is unsuccessful. The password is too long.");
+            } else {
+                setStatusMessage("The password reset is unsuccessful. The user was changed meanwhile, try again.");
+            }
+            return;
+        }
 
+        setCommandStatus(CommandStatus.SUCCESSFUL);
         setStatusMessage("The password reset is successful.");
     }
 
     @Override
-    public void execute(Database database, SessionManager sessionManager) {
-        if (!sessionManager.isSessionValid(sessionId)) {
-            setUnsuccessfulExecutedCommandInvalidSessionId(sessionManager);
-        } else if (!checkUsername(database, sessionManager, sessionId)) {
+    protected String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public void execute(RequestContext context) {
+        if (!context.isSessionValid()) {
+            setUnsuccessfulExecutedCommandInvalidSessionId(context.getSessionManager());
+        } else if (!checkUsername(context.getCaller())) {
             setUnsuccessfulExecutedCommandIncorrectUsername();
-        } else if (!checkPassword(database, sessionManager, sessionId)) {
+        } else if (!checkPassword(context.getCaller())) {
             setUnsuccessfulExecutedCommandIncorrectPassword();
         } else {
-            setSuccessfulExecutedCommand(database, sessionManager);
+            setSuccessfulExecutedCommand(context.getDatabase(), context.getCaller());
         }
     }
 
     @Override
-    public Optional<Event> createStartEvent(String ipAddress, Database database, SessionManager sessionManager) {
-        if (sessionManager.isSessionValid(sessionId)) {
-            String username = getUserBySessionId(database, sessionManager, sessionId).getUsername();
-            return Optional.of(StartEvent.of(CommandBehavior.RESET_PASSWORD, username, ipAddress,
-                "Password reset of the user an username " + username + "."));
+    public Optional<Event> createStartEvent(RequestContext context) {
+        if (context.isSessionValid()) {
+            String username = context.getCaller().getUsername();
+            return Optional.of(StartEvent.of(context.getTimestamp(), CommandBehavior.RESET_PASSWORD, username,
+                context.getIpAddress(), "Password reset of the user an username " + username + "."));
         }
         return Optional.of(
-            StartEvent.of(CommandBehavior.RESET_PASSWORD, "UNKNOWN", ipAddress,
+            StartEvent.of(context.getTimestamp(), CommandBehavior.RESET_PASSWORD, "UNKNOWN", context.getIpAddress(),
                 "Password reset of the user with session Id: " + sessionId + "."));
     }
 
     @Override
-    public Optional<Event> createEndEvent(String ipAddress, Database database,
-                                          SessionManager sessionManager) {
+    public Optional<Event> createEndEvent(RequestContext context) {
         if (getCommandStatus().equals(CommandStatus.UNSUCCESSFUL)) {
-            if (sessionManager.isSessionValid(sessionId)) {
-                String username = getUserBySessionId(database, sessionManager, sessionId).getUsername();
-                return Optional.of(
-                    EndEvent.of(CommandBehavior.RESET_PASSWORD, username, ipAddress, getStatusMessage()));
-            }
+            String username = context.isSessionValid() ? context.getCaller().getUsername() : "UNKNOWN";
             return Optional.of(
-                EndEvent.of(CommandBehavior.RESET_PASSWORD, "UNKNOWN", ipAddress, getStatusMessage()));
+                EndEvent.of(CommandBehavior.RESET_PASSWORD, username, context.getIpAddress(), getStatusMessage()));
         }
-        String username = getUserBySessionId(database, sessionManager, sessionId).getUsername();
+        String username = context.getCaller().getUsername();
         return Optional.of(
-            EndEvent.of(CommandBehavior.RESET_PASSWORD, username, ipAddress,
+            EndEvent.of(CommandBehavior.RESET_PASSWORD, username, context.getIpAddress(),
                 "The update is successful for the user with username " + username + "."));
     }
 }
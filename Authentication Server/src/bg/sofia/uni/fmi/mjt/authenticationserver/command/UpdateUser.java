@@ -13,10 +13,10 @@ import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public class UpdateUser extends BasicCommand {
     private final String sessionId;
@@ -24,6 +24,7 @@ public class UpdateUser extends BasicCommand {
     private final String newFirstName;
     private final String newLastName;
     private final String newEmail;
+    private User updatedUser;
 
     private UpdateUser(UpdateUserBuilder builder) {
         super(CommandBehavior.UPDATE_USER, CommandType.SECURE);
@@ -34,83 +35,38 @@ public class UpdateUser extends BasicCommand {
         this.newEmail = builder.newEmail;
     }
 
-    private static UpdateUserBuilder updateUserAttributes(String[] commandWords,
-                                                          List<String> commandWordsAsList) {
-        UpdateUserBuilder userBuilder = null;
-        final int sessionIdIndex = 2;
-        String newUsername = "--new-username";
-        String newFirstName = "--new-first-name";
-        String newLastName = "--new-last-name";
-        String newEmail = "--new-email";
-
-        userBuilder = new UpdateUserBuilder(commandWords[sessionIdIndex]);
-        if (commandWordsAsList.contains(newUsername)) {
-            userBuilder =
-                userBuilder.setNewUsername(commandWords[commandWordsAsList.indexOf(newUsername) + 1]);
-        }
-        if (commandWordsAsList.contains(newFirstName)) {
-            userBuilder =
-                userBuilder.setNewFirstName(commandWords[commandWordsAsList.indexOf(newFirstName) + 1]);
-        }
-        if (commandWordsAsList.contains(newLastName)) {
-            userBuilder =
-                userBuilder.setNewLastName(commandWords[commandWordsAsList.indexOf(newLastName) + 1]);
-        }
-        if (commandWordsAsList.contains(newEmail)) {
-            userBuilder =
-                userBuilder.setNewEmail(commandWords[commandWordsAsList.indexOf(newEmail) + 1]);
-        }
-        return userBuilder;
+    private static UpdateUserBuilder updateUserAttributes(CommandArguments command) {
+        return new UpdateUserBuilder(command.get(CommandField.SESSION_ID))
+            .setNewUsername(command.get(CommandField.NEW_USERNAME))
+            .setNewFirstName(command.get(CommandField.NEW_FIRST_NAME))
+            .setNewLastName(command.get(CommandField.NEW_LAST_NAME))
+            .setNewEmail(command.get(CommandField.NEW_EMAIL));
     }
 
     public static UpdateUserBuilder builder(String command) throws InvalidCommand {
-        if (command == null) {
-            throw new InvalidCommand("The command cannot be null.");
-        }
-
-        String blankSpace = " ";
-        String[] commandWords = command.split(blankSpace);
-
-        List<String> commandWordsAsList = Arrays.asList(commandWords);
+        return builderOf(CommandTokens.of(command));
+    }
 
+    public static UpdateUserBuilder builderOf(CommandArguments command) throws InvalidCommand {
         UpdateUserBuilder userBuilder = null;
-        if (checkValidUpdateCommand(commandWords)) {
-            userBuilder = updateUserAttributes(commandWords, commandWordsAsList);
+        if (checkValidUpdateCommand(command)) {
+            userBuilder = updateUserAttributes(command);
         }
         return userBuilder;
     }
 
-    private static boolean checkValidUpdateCommand(String[] command) throws InvalidCommand {
-        final int minCountWords = 3;
-        final int sessionIdIndex = 1;
+    private static boolean checkValidUpdateCommand(CommandArguments command) throws InvalidCommand {
+        Set<CommandField> optionalParameters = EnumSet.of(CommandField.NEW_USERNAME, CommandField.NEW_FIRST_NAME,
+            CommandField.NEW_LAST_NAME, CommandField.NEW_EMAIL);
 
-        String sessionId = "--session-id";
-        String newUsername = "--new-username";
-        String newFirstName = "--new-first-name";
-        String newLastName = "--new-last-name";
-        String newEmail = "--new-email";
-
-        List<String> optionalParameters = List.of(newUsername, newFirstName, newLastName, newEmail);
-
-        if (command == null
-            || command.length < minCountWords
-            || !command[sessionIdIndex].equals(sessionId)) {
+        if (command == null || !command.hasFields(List.of(CommandField.SESSION_ID), optionalParameters)) {
             throw new InvalidCommand("Invalid update command.");
         }
-
-        List<String> actualParameters = new ArrayList<>();
-        for (int i = minCountWords; i < command.length; i += 2) {
-            if (!optionalParameters.contains(command[i]) || i + 1 >= command.length ||
-                actualParameters.contains(command[i])) {
-                throw new InvalidCommand("Invalid update command.");
-            }
-            actualParameters.add(command[i]);
-        }
         return true;
     }
 
     @Override
-    protected boolean checkValidCommand(String[] command) throws InvalidCommand {
+    protected boolean checkValidCommand(CommandArguments command) throws InvalidCommand {
         return checkValidUpdateCommand(command);
     }
 
@@ -126,10 +82,25 @@ public class UpdateUser extends BasicCommand {
         }
     }
 
-    private void setSuccessfulExecutedCommand(Database database, SessionManager sessionManager) {
-        setCommandStatus(CommandStatus.SUCCESSFUL);
+    private void setUnsuccessfulExecutedCommandNotReplaced(Database database, User currentUser, User newUser) {
+        setCommandStatus(CommandStatus.UNSUCCESSFUL);
+        if (database.isWriteAheadLogFailed()) {
+            setStatusMessage("The user update is unsuccessful. The changes cannot be saved, try again later.");
+        } else if (database.isTooLarge(newUser)) {
+            setStatusMessage("The user update is unsuccessful. The user details are too long.");
+        } else if (newUsername != null && !newUsername.equals(currentUser.getUsername()) &&
+            database.getUserByUsername(newUsername) != null) {
+            setStatusMessage(
+                "The user update is unsuccessful. An user with the username: " + newUsername + " already exists.");
+        } else if (database.isEmailTaken(newUser.getEmail(), currentUser.getUsername())) {
+            setStatusMessage(
+                "The user update is unsuccessful. An user with the email: " + newUser.getEmail() + " already exists.");
+        } else {
+            setStatusMessage("The user update is unsuccessful. The user was changed meanwhile, try again.");
+        }
+    }
 
-        User currentUser = getUserBySessionId(database, sessionManager, sessionId);
+    private void setSuccessfulExecutedCommand(Database database, SessionManager sessionManager, User currentUser) {
         String currentUsername = newUsername != null ? newUsername : currentUser.getUsername();
         String currentFirstName = newFirstName != null ? newFirstName : currentUser.getFirstName();
         String currentLastName = newLastName != null ? newLastName : currentUser.getLastName();
@@ -137,46 +108,55 @@ public class UpdateUser extends BasicCommand {
 
         User newUser =
             new User(currentUsername, currentUser.getPassword(), currentFirstName, currentLastName, currentEmail);
-        database.getUsers().remove(currentUser.getUsername());
-        database.getUsers().put(currentUsername, newUser);
+        newUser.setAuthorization(currentUser.getAuthorization());
+        if (!database.replaceUser(currentUser, newUser)) {
+            setUnsuccessfulExecutedCommandNotReplaced(database, currentUser, newUser);
+            return;
+        }
 
+        setCommandStatus(CommandStatus.SUCCESSFUL);
         Session currentSession = sessionManager.getSessionBySessionId(sessionId);
         sessionManager.replaceSession(new Session(currentUsername, sessionId, currentSession.ttl()));
+        updatedUser = newUser;
 
         setStatusMessage("The update is successful.");
     }
 
     @Override
-    public void execute(Database database, SessionManager sessionManager) {
-        if (!sessionManager.isSessionValid(sessionId)) {
-            setUnsuccessfulExecutedCommandInvalidSessionId(sessionManager);
+    protected String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public void execute(RequestContext context) {
+        if (!context.isSessionValid()) {
+            setUnsuccessfulExecutedCommandInvalidSessionId(context.getSessionManager());
         } else {
-            setSuccessfulExecutedCommand(database, sessionManager);
+            setSuccessfulExecutedCommand(context.getDatabase(), context.getSessionManager(), context.getCaller());
         }
     }
 
     @Override
-    public Optional<Event> createStartEvent(String ipAddress, Database database, SessionManager sessionManager) {
-        if (sessionManager.isSessionValid(sessionId)) {
-            String username = getUserBySessionId(database, sessionManager, sessionId).getUsername();
-            return Optional.of(StartEvent.of(CommandBehavior.UPDATE_USER, username, ipAddress,
-                "Update of user with an username " + username + "."));
+    public Optional<Event> createStartEvent(RequestContext context) {
+        if (context.isSessionValid()) {
+            String username = context.getCaller().getUsername();
+            return Optional.of(StartEvent.of(context.getTimestamp(), CommandBehavior.UPDATE_USER, username,
+                context.getIpAddress(), "Update of user with an username " + username + "."));
         }
         return Optional.of(
-            StartEvent.of(CommandBehavior.UPDATE_USER, "UNKNOWN", ipAddress,
+            StartEvent.of(context.getTimestamp(), CommandBehavior.UPDATE_USER, "UNKNOWN", context.getIpAddress(),
                 "Update of the user with session Id: " + sessionId + "."));
     }
 
     @Override
-    public Optional<Event> createEndEvent(String ipAddress, Database database,
-                                          SessionManager sessionManager) {
+    public Optional<Event> createEndEvent(RequestContext context) {
         if (getCommandStatus().equals(CommandStatus.UNSUCCESSFUL)) {
             return Optional.of(
-                EndEvent.of(CommandBehavior.UPDATE_USER, "UNKNOWN", ipAddress, getStatusMessage()));
+                EndEvent.of(CommandBehavior.UPDATE_USER, "UNKNOWN", context.getIpAddress(), getStatusMessage()));
         }
-        User user = getUserBySessionId(database, sessionManager, sessionId);
+        User user = updatedUser;
         return Optional.of(
-            EndEvent.of(CommandBehavior.UPDATE_USER, user.getUsername(), ipAddress,
+            EndEvent.of(CommandBehavior.UPDATE_USER, user.getUsername(), context.getIpAddress(),
                 "The update is successful. The new information about the user is: username - " + user.getUsername() +
                     ", first name - " + user.getFirstName() + ", last name - " + user.getLastName() + ", email - " +
                     user.getEmail() + "."));
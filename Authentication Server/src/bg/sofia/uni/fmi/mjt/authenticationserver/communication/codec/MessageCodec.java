@@ -0,0 +1,389 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.communication.codec;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandBehavior;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandField;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandStatus;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandType;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.BatchInput;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Input;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Request;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.BatchOutput;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Output;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Response;
+
+import java.io.StreamCorruptedException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of the requests and the responses exchanged by the client and the server. Every message
+ * starts with its kind (1 byte) - a single message or a batch:
+ * <pre>
+ * Input:       request id (8 bytes) | command type (1 byte) | command behavior (1 byte) | command
+ * Output:      request id (8 bytes) | status (1 byte) | command behavior (1 byte) | logged out (1 byte) | message
+ * BatchInput:  request id (8 bytes) | count (4 bytes) | count inputs without their kind
+ * BatchOutput: request id (8 bytes) | count (4 bytes) | count outputs without their kind
+ * </pre>
+ * The command of a text input (without a command behavior) is its message. The command of a structured input
+ * is the count of its fields (1 byte) followed by the field (1 byte) and the value of each of them.
+ * The message is its length in UTF-8 bytes (4 bytes) followed by the UTF-8 bytes. The enums are written by
+ * their ordinals, so the client and the server have to declare their constants in the same order.
+ * Nulls are written as a length or an ordinal of -1.
+ */
+public final class MessageCodec {
+    /**
+     * The largest message, which the client and the server accept from each other
+     */
+    public static final int MAX_FRAME_SIZE = 1024 * 1024;
+    private static final CommandType[] COMMAND_TYPES = CommandType.values();
+    private static final CommandStatus[] COMMAND_STATUSES = CommandStatus.values();
+    private static final CommandBehavior[] COMMAND_BEHAVIORS = CommandBehavior.values();
+    private static final CommandField[] COMMAND_FIELDS = CommandField.values();
+    private static final byte SINGLE = 0;
+    private static final byte BATCH = 1;
+    private static final byte NULL = -1;
+    private static final byte FALSE = 0;
+    private static final byte TRUE = 1;
+    private static final int INPUT_HEADER_SIZE = Long.BYTES + 2 * Byte.BYTES;
+    private static final int OUTPUT_HEADER_SIZE = Long.BYTES + 3 * Byte.BYTES;
+    private static final int BATCH_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private MessageCodec() {
+    }
+
+    public static int encodedSize(Request request) {
+        return Byte.BYTES + switch (request) {
+            case Input input -> inputSize(input);
+            case BatchInput batch -> {
+                int size = BATCH_HEADER_SIZE;
+                for (Input input : batch.inputs()) {
+                    size += inputSize(input);
+                }
+                yield size;
+            }
+        };
+    }
+
+    public static int encodedSize(Response response) {
+        return Byte.BYTES + switch (response) {
+            case Output output -> outputSize(output);
+            case BatchOutput batch -> {
+                int size = BATCH_HEADER_SIZE;
+                for (Output output : batch.outputs()) {
+                    size += outputSize(output);
+                }
+                yield size;
+            }
+        };
+    }
+
+    /**
+     * Writes the request at the position of the buffer, which must have {@link #encodedSize(Request)} bytes
+     * remaining.
+     */
+    public static void encode(Request request, ByteBuffer buffer) {
+        switch (request) {
+            case Input input -> {
+                buffer.put(SINGLE);
+                putInput(buffer, input);
+            }
+            case BatchInput batch -> {
+                buffer.put(BATCH);
+                buffer.putLong(batch.requestId());
+                buffer.putInt(batch.inputs().size());
+                batch.inputs().forEach(input -> putInput(buffer, input));
+            }
+        }
+    }
+
+    /**
+     * Writes the response at the position of the buffer, which must have {@link #encodedSize(Response)} bytes
+     * remaining.
+     */
+    public static void encode(Response response, ByteBuffer buffer) {
+        switch (response) {
+            case Output output -> {
+                buffer.put(SINGLE);
+                putOutput(buffer, output);
+            }
+            case BatchOutput batch -> {
+                buffer.put(BATCH);
+                buffer.putLong(batch.requestId());
+                buffer.putInt(batch.outputs().size());
+                batch.outputs().forEach(output -> putOutput(buffer, output));
+            }
+        }
+    }
+
+    /**
+     * Reads a request from all remaining bytes of the buffer.
+     *
+     * @throws StreamCorruptedException if the bytes are not a valid encoded request
+     */
+    public static Request decodeRequest(ByteBuffer buffer) throws StreamCorruptedException {
+        ensureRemaining(buffer, Byte.BYTES);
+        Request request = switch (buffer.get()) {
+            case SINGLE -> getInput(buffer);
+            case BATCH -> {
+                ensureRemaining(buffer, BATCH_HEADER_SIZE);
+                long requestId = buffer.getLong();
+                int count = getCount(buffer, INPUT_HEADER_SIZE + Byte.BYTES);
+                List<Input> inputs = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    inputs.add(getInput(buffer));
+                }
+                yield new BatchInput(requestId, inputs);
+            }
+            default -> throw new StreamCorruptedException("Unknown kind of request.");
+        };
+        ensureConsumed(buffer);
+        return request;
+    }
+
+    /**
+     * Reads a response from all remaining bytes of the buffer.
+     *
+     * @throws StreamCorruptedException if the bytes are not a valid encoded response
+     */
+    public static Response decodeResponse(ByteBuffer buffer) throws StreamCorruptedException {
+        ensureRemaining(buffer, Byte.BYTES);
+        Response response = switch (buffer.get()) {
+            case SINGLE -> getOutput(buffer);
+            case BATCH -> {
+                ensureRemaining(buffer, BATCH_HEADER_SIZE);
+                long requestId = buffer.getLong();
+                int count = getCount(buffer, OUTPUT_HEADER_SIZE + Integer.BYTES);
+                List<Output> outputs = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    outputs.add(getOutput(buffer));
+                }
+                yield new BatchOutput(requestId, outputs);
+            }
+            default -> throw new StreamCorruptedException("Unknown kind of response.");
+        };
+        ensureConsumed(buffer);
+        return response;
+    }
+
+    private static int inputSize(Input input) {
+        if (!input.isStructured()) {
+            return INPUT_HEADER_SIZE + encodedSize(input.message());
+        }
+        int size = INPUT_HEADER_SIZE + Byte.BYTES;
+        for (String value : input.fields().values()) {
+            size += Byte.BYTES + encodedSize(value);
+        }
+        return size;
+    }
+
+    private static int outputSize(Output output) {
+        return OUTPUT_HEADER_SIZE + encodedSize(output.message());
+    }
+
+    private static void putInput(ByteBuffer buffer, Input input) {
+        buffer.putLong(input.requestId());
+        putOrdinal(buffer, input.commandType());
+        putOrdinal(buffer, input.commandBehavior());
+        if (!input.isStructured()) {
+            putString(buffer, input.message());
+            return;
+        }
+        buffer.put((byte) input.fields().size());
+        input.fields().forEach((field, value) -> {
+            putOrdinal(buffer, field);
+            putString(buffer, value);
+        });
+    }
+
+    private static void putOutput(ByteBuffer buffer, Output output) {
+        buffer.putLong(output.requestId());
+        putOrdinal(buffer, output.status());
+        putOrdinal(buffer, output.commandBehaviour());
+        buffer.put(output.loggedOut() == null ? NULL : output.loggedOut() ? TRUE : FALSE);
+        putString(buffer, output.message());
+    }
+
+    private static Input getInput(ByteBuffer buffer) throws StreamCorruptedException {
+        ensureRemaining(buffer, INPUT_HEADER_SIZE);
+        long requestId = buffer.getLong();
+        CommandType commandType = getConstant(buffer, COMMAND_TYPES);
+        if (commandType == null) {
+            throw new StreamCorruptedException("An input without a command type.");
+        }
+        CommandBehavior commandBehavior = getConstant(buffer, COMMAND_BEHAVIORS);
+        if (commandBehavior == null) {
+            String message = getString(buffer);
+            if (message == null) {
+                throw new StreamCorruptedException("A text input without a message.");
+            }
+            return new Input(requestId, message, commandType);
+        }
+        return new Input(requestId, null, commandType, commandBehavior, getFields(buffer));
+    }
+
+    private static Map<CommandField, String> getFields(ByteBuffer buffer) throws StreamCorruptedException {
+        ensureRemaining(buffer, Byte.BYTES);
+        int count = buffer.get();
+        if (count < 0 || count > COMMAND_FIELDS.length) {
+            throw new StreamCorruptedException("Invalid count of fields " + count + ".");
+        }
+        Map<CommandField, String> fields = new EnumMap<>(CommandField.class);
+        for (int i = 0; i < count; i++) {
+            ensureRemaining(buffer, Byte.BYTES);
+            CommandField field = getConstant(buffer, COMMAND_FIELDS);
+            String value = getString(buffer);
+            if (field == null || value == null || fields.put(field, value) != null) {
+                throw new StreamCorruptedException("Invalid field " + field + ".");
+            }
+        }
+        return fields;
+    }
+
+    private static Output getOutput(ByteBuffer buffer) throws StreamCorruptedException {
+        ensureRemaining(buffer, OUTPUT_HEADER_SIZE);
+        long requestId = buffer.getLong();
+        CommandStatus status = getConstant(buffer, COMMAND_STATUSES);
+        CommandBehavior commandBehavior = getConstant(buffer, COMMAND_BEHAVIORS);
+        Boolean loggedOut = switch (buffer.get()) {
+            case NULL -> null;
+            case FALSE -> false;
+            case TRUE -> true;
+            default -> throw new StreamCorruptedException("Invalid logged out flag.");
+        };
+        String message = getString(buffer);
+        return new Output(requestId, message, status, commandBehavior, loggedOut);
+    }
+
+    /**
+     * Reads the count of the elements of a batch. The count is checked against the remaining bytes before
+     * anything is allocated for the elements.
+     */
+    private static int getCount(ByteBuffer buffer, int minElementSize) throws StreamCorruptedException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / minElementSize) {
+            throw new StreamCorruptedException("Invalid count of batch elements " + count + ".");
+        }
+        return count;
+    }
+
+    private static void putOrdinal(ByteBuffer buffer, Enum<?> constant) {
+        buffer.put(constant == null ? NULL : (byte) constant.ordinal());
+    }
+
+    private static <T extends Enum<T>> T getConstant(ByteBuffer buffer, T[] constants)
+        throws StreamCorruptedException {
+        byte ordinal = buffer.get();
+        if (ordinal == NULL) {
+            return null;
+        }
+        if (ordinal < 0 || ordinal >= constants.length) {
+            throw new StreamCorruptedException("Invalid ordinal " + ordinal + " of " +
+                constants.getClass().getComponentType().getSimpleName() + ".");
+        }
+        return constants[ordinal];
+    }
+
+    private static int encodedSize(String value) {
+        return Integer.BYTES + (value == null ? 0 : utf8Length(value));
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (isSurrogatePair(value, i)) {
+                length += 4;
+                i++;
+            } else {
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes the UTF-8 bytes straight into the buffer, without encoding the string to an intermediate array.
+     * Unpaired surrogates are replaced with '?', the same way {@link String#getBytes} does.
+     */
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(NULL);
+            return;
+        }
+        buffer.putInt(utf8Length(value));
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (isSurrogatePair(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private static boolean isSurrogatePair(String value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length() &&
+            Character.isLowSurrogate(value.charAt(index + 1));
+    }
+
+    private static String getString(ByteBuffer buffer) throws StreamCorruptedException {
+        ensureRemaining(buffer, Integer.BYTES);
+        int length = buffer.getInt();
+        if (length == NULL) {
+            return null;
+        }
+        if (length < 0) {
+            throw new StreamCorruptedException("Invalid string length " + length + ".");
+        }
+        ensureRemaining(buffer, length);
+
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(buffer.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void ensureRemaining(ByteBuffer buffer, int bytes) throws StreamCorruptedException {
+        if (buffer.remaining() < bytes) {
+            throw new StreamCorruptedException("The message ends unexpectedly.");
+        }
+    }
+
+    private static void ensureConsumed(ByteBuffer buffer) throws StreamCorruptedException {
+        if (buffer.hasRemaining()) {
+            throw new StreamCorruptedException("The message has " + buffer.remaining() + " unexpected bytes.");
+        }
+    }
+}
@@ -1,8 +1,47 @@
 package bg.sofia.uni.fmi.mjt.authenticationserver.communication.input;
 
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandBehavior;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandField;
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandType;
 
-import java.io.Serializable;
+import java.util.Map;
 
-public record Input(String message, CommandType commandType) implements Serializable {
+/**
+ * A single command of the client, answered with an
+ * {@link bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Output}. The command is either
+ * a text message, as entered by the user, or structured - the behavior of the command and the values of its
+ * fields, which the server uses without parsing any text.
+ */
+public record Input(long requestId, String message, CommandType commandType, CommandBehavior commandBehavior,
+                    Map<CommandField, String> fields) implements Request {
+    public Input {
+        fields = fields == null ? Map.of() : Map.copyOf(fields);
+        if (commandBehavior != null && message != null) {
+            throw new IllegalArgumentException("A structured input cannot have a text message.");
+        }
+        if (commandBehavior == null && !fields.isEmpty()) {
+            throw new IllegalArgumentException("A text input cannot have fields.");
+        }
+    }
+
+    public Input(long requestId, String message, CommandType commandType) {
+        this(requestId, message, commandType, null, null);
+    }
+
+    public Input(String message, CommandType commandType) {
+        this(NO_REQUEST_ID, message, commandType);
+    }
+
+    public static Input of(CommandBehavior commandBehavior, CommandType commandType,
+                           Map<CommandField, String> fields) {
+        return new Input(NO_REQUEST_ID, null, commandType, commandBehavior, fields);
+    }
+
+    public boolean isStructured() {
+        return commandBehavior != null;
+    }
+
+    public Input withRequestId(long requestId) {
+        return new Input(requestId, message, commandType, commandBehavior, fields);
+    }
 }
@@ -0,0 +1,9 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.communication.output;
+
+import java.util.List;
+
+public record BatchOutput(long requestId, List<Output> outputs) implements Response {
+    public BatchOutput {
+        outputs = List.copyOf(outputs);
+    }
+}
@@ -3,8 +3,14 @@ package bg.sofia.uni.fmi.mjt.authenticationserver.communication.output;
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandBehavior;
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandStatus;
 
-import java.io.Serializable;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Input;
 
-public record Output(String message, CommandStatus status, CommandBehavior commandBehaviour, Boolean loggedOut)
-    implements Serializable {
+/**
+ * A response of the server, carrying the request id of the {@link Input} it answers.
+ */
+public record Output(long requestId, String message, CommandStatus status, CommandBehavior commandBehaviour,
+                     Boolean loggedOut) implements Response {
+    public Output(String message, CommandStatus status, CommandBehavior commandBehaviour, Boolean loggedOut) {
+        this(Input.NO_REQUEST_ID, message, status, commandBehaviour, loggedOut);
+    }
 }
@@ -0,0 +1,107 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The usernames of the latest changes by their change sequences. Only the latest changes are kept, so the changes
+ * after a sequence can be found only while the changes right after it are still kept.
+ */
+public class ChangeLog {
+    private final ConcurrentNavigableMap<Long, String> usernames;
+    private final AtomicInteger size;
+    private volatile int capacity;
+    private final AtomicLong droppedSequence;
+
+    /**
+     * @param capacity - the count of the latest changes which are kept
+     */
+    public ChangeLog(int capacity) {
+        this.usernames = new ConcurrentSkipListMap<>();
+        this.size = new AtomicInteger();
+        this.droppedSequence = new AtomicLong();
+        this.capacity = checkCapacity(capacity);
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = checkCapacity(capacity);
+        dropOldestChanges();
+    }
+
+    private static int checkCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the change log must be positive.");
+        }
+        return capacity;
+    }
+
+    public void record(long sequence, String username) {
+        if (sequence <= droppedSequence.get()) {
+            return;
+        }
+        if (usernames.put(sequence, username) == null) {
+            size.incrementAndGet();
+        }
+        dropOldestChanges();
+    }
+
+    /**
+     * Drop the changes up to the sequence, which are no longer known
+     */
+    public void dropUntil(long sequence) {
+        droppedSequence.accumulateAndGet(sequence, Math::max);
+        Long oldest;
+        while ((oldest = oldestSequence()) != null && oldest <= sequence) {
+            drop(oldest);
+        }
+    }
+
+    /**
+     * @return true if every change after the sequence is kept
+     */
+    public boolean hasChangesSince(long sequence) {
+        return sequence >= droppedSequence.get();
+    }
+
+    /**
+     * @param sequence - the changes after the sequence are found
+     * @param until    - the last sequence of the found changes
+     * @return the sorted usernames changed after the sequence or null if some of these changes are no longer kept
+     */
+    public NavigableSet<String> getChanged(long sequence, long until) {
+        if (!hasChangesSince(sequence)) {
+            return null;
+        }
+        NavigableSet<String> changed = sequence >= until ? new TreeSet<>() :
+            new TreeSet<>(usernames.subMap(sequence, false, until, true).values());
+        // The oldest changes may have been dropped while they were read.
+        return hasChangesSince(sequence) ? changed : null;
+    }
+
+    private void dropOldestChanges() {
+        Long oldest;
+        while (size.get() > capacity && (oldest = oldestSequence()) != null) {
+            drop(oldest);
+        }
+    }
+
+    /**
+     * The change is marked as dropped before it is removed, so a reader never misses it unnoticed
+     */
+    private void drop(long sequence) {
+        droppedSequence.accumulateAndGet(sequence, Math::max);
+        if (usernames.remove(sequence) != null) {
+            size.decrementAndGet();
+        }
+    }
+
+    private Long oldestSequence() {
+        return usernames.isEmpty() ? null : usernames.ceilingKey(Long.MIN_VALUE);
+    }
+}
@@ -1,43 +1,906 @@
 package bg.sofia.uni.fmi.mjt.authenticationserver.database;
 
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.cipher.PasswordKey;
+
 import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
 
+import bg.sofia.uni.fmi.mjt.authenticationserver.troubleshootlog.TroubleshootLog;
+
 import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthentication;
 import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthorization;
 
-import java.util.HashMap;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
 import java.util.stream.Collectors;
 
+/**
+ * The users of the server. Every change of the users is a single atomic operation, so commands of different users
+ * can be executed in parallel. The users are only exposed through a read-only view.
+ *
+ * <p>The usernames are also kept sorted, so users can be listed by a prefix of their username page by page. The
+ * index of a username is changed together with the user, while the bin of the username is locked.</p>
+ *
+ * <p>The usernames are indexed by the emails of the users as well. The emails are compared ignoring their case.
+ * When the emails are unique, a user cannot be added or changed to an email of another user.</p>
+ *
+ * <p>The usernames are partitioned into shards by their hashes and every change of a user locks the shard of its
+ * username, so a change can check the user and then change it and its indexes atomically. A rename locks the
+ * shards of both usernames in the order of the shards, so two renames never wait for each other in a cycle.</p>
+ *
+ * <p>The usernames of the admins are indexed separately and every change of the admins is made under a single
+ * lock, so the last admin can never be removed. Admin changes are rare, the other changes do not take the lock.
+ * The admin lock is always taken after the locks of the shards.</p>
+ *
+ * <p>When a write-ahead log is opened, every change of the users is appended to it together with the change, and
+ * the change is not reported as successful before it is durable. Once the log fails, the changes are reported as
+ * unsuccessful and no further change is made. The authentication of the users is not logged, because the sessions
+ * do not survive a restart.</p>
+ *
+ * <p>When a password key is opened, the passwords are encrypted with it in the write-ahead log and the snapshots,
+ * so they are never written to the disk unencrypted. The changes logged before that keep their passwords
+ * unencrypted until the next snapshot truncates the log.</p>
+ *
+ * <p>A snapshot of the users lets the log be truncated. The changes only wait for a snapshot while the log is
+ * rotated, which makes every change logged before the rotation part of the snapshot. The users are written after
+ * that, while they keep changing, and the changes logged after the rotation are replayed over the snapshot.</p>
+ *
+ * <p>A view of the users lists them as they were when the view was opened, while they keep changing. Every change
+ * of a user lets the open views keep the previous version of the user first.</p>
+ *
+ * <p>Every change of the users is numbered by a change sequence, which is logged with the change and kept by the
+ * snapshots, so it keeps growing after a restart. The usernames of the latest changes are kept by their sequences,
+ * so the users changed after a sequence can be found without listing every user.</p>
+ *
+ * <p>The users are kept in a user store, on the heap by default, while the indexes are always kept on the heap. A
+ * store may return a new instance of a user on every read, so the users are compared by their fields before they
+ * are replaced. A stored user is never changed in place, every change stores a new user, so a user read before a
+ * change still differs from the changed one.</p>
+ */
 public class Database {
     private static final Database INSTANCE = new Database();
-    private final Map<String, User> users;
+    private static final Gson GSON = new Gson();
+    private static final int MIN_SHARDS = 16;
+    private static final int SHARDS_PER_CORE = 4;
+    private static final int DEFAULT_CHANGE_LOG_CAPACITY = 100_000;
+    private volatile UserStore users;
+    private volatile Map<String, User> usersView;
+    private final NavigableSet<String> usernames;
+    private final ConcurrentMap<String, Set<String>> usernamesByEmail;
+    private volatile boolean uniqueEmails;
+    private final Set<String> admins;
+    private final AtomicInteger adminCount;
+    private final Object adminLock;
+    private volatile WriteAheadLog writeAheadLog;
+    private volatile PasswordKey passwordKey;
+    private final ReadWriteLock changeLock;
+    private final Object snapshotLock;
+    private final ReentrantLock[] shards;
+    private final List<DatabaseView> views;
+    private final AtomicLong changeSequence;
+    private final ChangeLog changeLog;
+    private long replayedSequence;
 
     private Database() {
-        this.users = new HashMap();
+        this.users = new HeapUserStore();
+        this.usersView = Collections.unmodifiableMap(users);
+        this.usernames = new ConcurrentSkipListSet<>();
+        this.usernamesByEmail = new ConcurrentHashMap<>();
+        this.admins = ConcurrentHashMap.newKeySet();
+        this.adminCount = new AtomicInteger();
+        this.adminLock = new Object();
+        this.changeLock = new ReentrantReadWriteLock();
+        this.snapshotLock = new Object();
+        this.views = new CopyOnWriteArrayList<>();
+        this.changeSequence = new AtomicLong();
+        this.changeLog = new ChangeLog(DEFAULT_CHANGE_LOG_CAPACITY);
+        this.shards = new ReentrantLock[shardCount()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return a power of two with several shards per core, so the changes rarely wait for each other
+     */
+    private static int shardCount() {
+        int shardCount = MIN_SHARDS;
+        while (shardCount < Runtime.getRuntime().availableProcessors() * SHARDS_PER_CORE) {
+            shardCount <<= 1;
+        }
+        return shardCount;
     }
 
     public static Database getInstance() {
         return INSTANCE;
     }
 
+    /**
+     * @return read-only view of the users by their usernames
+     */
     public Map<String, User> getUsers() {
-        return getInstance().users;
+        return usersView;
+    }
+
+    /**
+     * Require every user to have a different email. Only the users added or changed afterwards are checked.
+     */
+    public void setUniqueEmails(boolean uniqueEmails) {
+        this.uniqueEmails = uniqueEmails;
+    }
+
+    public boolean isUniqueEmails() {
+        return uniqueEmails;
     }
 
+    /**
+     * Keep the users in another store. The store can only be changed while there are no users and the write-ahead
+     * log is closed, so the users are restored to the new store.
+     */
+    public void setUserStore(UserStore store) {
+        changeLock.writeLock().lock();
+        try {
+            synchronized (adminLock) {
+                if (writeAheadLog != null || !users.isEmpty()) {
+                    throw new IllegalStateException("The user store can only be changed while there are no users.");
+                }
+                users = store;
+                usersView = Collections.unmodifiableMap(store);
+            }
+        } finally {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Close the user store and drop its users, which are kept on the heap from now on. The write-ahead log must be
+     * closed first, so the dropped users stay in it.
+     */
+    public void closeUserStore() throws IOException {
+        changeLock.writeLock().lock();
+        try {
+            synchronized (adminLock) {
+                if (writeAheadLog != null) {
+                    throw new IllegalStateException("The write-ahead log must be closed before the user store.");
+                }
+                UserStore store = users;
+                users = new HeapUserStore();
+                usersView = Collections.unmodifiableMap(users);
+                usernames.clear();
+                usernamesByEmail.clear();
+                admins.clear();
+                adminCount.set(0);
+                store.close();
+            }
+        } finally {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the fields of the user are too long to be kept in the user store
+     */
+    public boolean isTooLarge(User user) {
+        return !users.fits(user);
+    }
+
+    /**
+     * Encrypt the passwords in the write-ahead log and the snapshots with the key from now on. The key must be
+     * opened before the snapshot and the log written with it are restored.
+     *
+     * @param path - the file of the key, created with a new key if it does not exist
+     */
+    public void openPasswordKey(Path path) throws IOException {
+        synchronized (adminLock) {
+            if (writeAheadLog != null) {
+                throw new IllegalStateException("The password key must be opened before the write-ahead log.");
+            }
+            passwordKey = PasswordKey.open(path);
+        }
+    }
+
+    /**
+     * Write the passwords unencrypted again. The write-ahead log must be closed first.
+     */
+    public void closePasswordKey() {
+        synchronized (adminLock) {
+            if (writeAheadLog != null) {
+                throw new IllegalStateException("The write-ahead log must be closed before the password key.");
+            }
+            passwordKey = null;
+        }
+    }
+
+    /**
+     * Restore the users from the write-ahead log and log the changes of the users from now on
+     *
+     * @param path             - the file of the log, created if it does not exist
+     * @param durabilityWindow - time in milliseconds to collect changes before they are forced to the disk
+     */
+    public void openWriteAheadLog(Path path, long durabilityWindow) throws IOException {
+        synchronized (adminLock) {
+            if (writeAheadLog != null) {
+                throw new IllegalStateException("The write-ahead log is already open.");
+            }
+            // The log only holds accepted changes, which must be restored even if the emails were not unique then.
+            boolean enforcedUniqueEmails = uniqueEmails;
+            uniqueEmails = false;
+            try {
+                writeAheadLog = WriteAheadLog.open(path, durabilityWindow,
+                    record -> replayChange(GSON.fromJson(record, UserChange.class)));
+            } finally {
+                uniqueEmails = enforcedUniqueEmails;
+            }
+        }
+    }
+
+    /**
+     * Restore the users of a snapshot, decoding its parts in parallel. The snapshot must be loaded before the
+     * write-ahead log written after it is opened.
+     *
+     * @return count of the restored users, 0 if there is no snapshot
+     */
+    public int loadSnapshot(Path snapshot) throws IOException {
+        if (writeAheadLog != null) {
+            throw new IllegalStateException("The snapshot must be loaded before the write-ahead log is opened.");
+        }
+        long sequence = DatabaseSnapshot.readSequence(snapshot);
+        int userCount = DatabaseSnapshot.load(snapshot, passwordKey, this::restoreUser);
+        // Usernames added in their order are inserted at the end of the index, which is much faster.
+        users.keySet().parallelStream().sorted().forEachOrdered(usernames::add);
+        changeSequence.accumulateAndGet(sequence, Math::max);
+        // The changes before the snapshot are not known, only their result.
+        changeLog.dropUntil(changeSequence.get());
+        return userCount;
+    }
+
+    /**
+     * Write the users to a snapshot without stopping the changes and truncate the write-ahead log to the changes
+     * made after the snapshot started
+     *
+     * @return count of the users in the snapshot
+     */
+    public int takeSnapshot(Path snapshot) throws IOException {
+        synchronized (snapshotLock) {
+            WriteAheadLog log = writeAheadLog;
+            if (log == null) {
+                throw new IllegalStateException("The write-ahead log is not open.");
+            }
+            long sequence;
+            changeLock.writeLock().lock();
+            try {
+                log.rotate();
+                sequence = changeSequence.get();
+            } finally {
+                changeLock.writeLock().unlock();
+            }
+
+            int userCount = DatabaseSnapshot.write(snapshot, users.values(), sequence, passwordKey);
+            log.truncate();
+            return userCount;
+        }
+    }
+
+    /**
+     * Open a view of the users as they are now, which does not stop the changes while it is listed. The view must be
+     * closed, so the changes stop keeping the previous versions of the users for it.
+     */
+    public DatabaseView openView() {
+        // No change is in progress, so every change either is part of the view or keeps the previous user for it.
+        changeLock.writeLock().lock();
+        try {
+            DatabaseView view = new DatabaseView(usernames, usersView, username -> shards[shardOf(username)],
+                views::remove, changeSequence.get());
+            views.add(view);
+            return view;
+        } finally {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the change sequence of the last change of the users
+     */
+    public long getChangeSequence() {
+        return changeSequence.get();
+    }
+
+    /**
+     * @param capacity - the count of the latest changes, whose usernames are kept
+     */
+    public void setChangeLogCapacity(int capacity) {
+        changeLog.setCapacity(capacity);
+    }
+
+    /**
+     * @param sequence - the changes after the sequence are found
+     * @param until    - the last sequence of the found changes, such as the sequence of a view
+     * @return the sorted usernames of the users changed after the sequence or null if the changes are no longer kept
+     */
+    public NavigableSet<String> getChangedUsernames(long sequence, long until) {
+        return changeLog.getChanged(sequence, until);
+    }
+
+    /**
+     * @return true if the write-ahead log has failed, so the users cannot be changed until the server is restarted
+     */
+    public boolean isWriteAheadLogFailed() {
+        WriteAheadLog log = writeAheadLog;
+        return log != null && log.isFailed();
+    }
+
+    public void closeWriteAheadLog() throws IOException {
+        WriteAheadLog log = writeAheadLog;
+        writeAheadLog = null;
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    public int getUserCount() {
+        return users.size();
+    }
+
+    public int getAdminCount() {
+        return adminCount.get();
+    }
+
+    public boolean isAdmin(String username) {
+        return username != null && admins.contains(username);
+    }
+
+    /**
+     * @return the admins by their usernames, collected from the admin index
+     */
     public Map<String, User> getAdmins() {
-        return getUsers()
-            .entrySet()
+        return admins
             .stream()
-            .filter(element -> element.getValue().getAuthorization().equals(UserAuthorization.ADMIN))
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            .map(users::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toMap(User::getUsername, Function.identity()));
     }
 
     public User getUserBySessionId(SessionManager sessionManager, String sessionId) {
-        return users.get(sessionManager.getUsernameBySessionId(sessionId));
+        return getUserByUsername(sessionManager.getUsernameBySessionId(sessionId));
     }
 
     public User getUserByUsername(String username) {
-        return users.get(username);
+        return username == null ? null : users.get(username);
+    }
+
+    /**
+     * @param email - the email of the users, in any case
+     * @return the users with the email, ordered by their usernames
+     */
+    public List<User> getUsersByEmail(String email) {
+        Set<String> owners = email == null ? null : usernamesByEmail.get(normalizeEmail(email));
+        if (owners == null) {
+            return List.of();
+        }
+        return owners.stream()
+            .sorted()
+            .map(users::get)
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    /**
+     * @param email    - the email to check
+     * @param username - the user which is allowed to have the email
+     * @return true if the emails are unique and another user already has the email
+     */
+    public boolean isEmailTaken(String email, String username) {
+        if (!uniqueEmails || email == null) {
+            return false;
+        }
+        Set<String> owners = usernamesByEmail.get(normalizeEmail(email));
+        return owners != null && owners.stream().anyMatch(owner -> !owner.equals(username));
+    }
+
+    /**
+     * List the users whose usernames start with the prefix, in the order of their usernames
+     *
+     * @param prefix - the prefix of the usernames, empty for all users
+     * @param cursor - the last username of the previous page or null for the first page
+     * @param limit  - the maximum number of users to return
+     * @return the next at most limit users with the prefix
+     */
+    public List<User> getUsersByPrefix(String prefix, String cursor, int limit) {
+        NavigableSet<String> candidates = cursor == null || cursor.compareTo(prefix) < 0 ?
+            usernames.tailSet(prefix, true) : usernames.tailSet(cursor, false);
+
+        List<User> page = new ArrayList<>();
+        for (String username : candidates) {
+            if (page.size() == limit || !username.startsWith(prefix)) {
+                break;
+            }
+            User user = users.get(username);
+            if (user != null) {
+                page.add(user);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Register the user if there is no user with the same username
+     *
+     * @param user - the new user
+     * @return true if the user is added, false if the username or the unique email is already taken or the user is
+     * too large for the user store
+     */
+    public boolean addUser(User user) {
+        return awaitDurability(applyChange(user.getUsername(), null, () -> insertUser(user)));
+    }
+
+    /**
+     * Register the user as an admin if there is no admin yet, so exactly one of the first users registered at once
+     * becomes the admin
+     *
+     * @param user - the new user, whose authorization is set to admin if it becomes the first admin
+     * @return true if the user is added, false in the cases of {@link #addUser(User)}
+     */
+    public boolean registerUser(User user) {
+        return awaitDurability(applyChange(user.getUsername(), null, () -> {
+            // The last admin is never removed, so once there is an admin, there always is one.
+            if (adminCount.get() > 0) {
+                return insertUser(user);
+            }
+            synchronized (adminLock) {
+                if (adminCount.get() == 0) {
+                    user.setAuthorization(UserAuthorization.ADMIN);
+                }
+                return insertUser(user);
+            }
+        }));
+    }
+
+    private boolean insertUser(User user) {
+        if (!UserAuthorization.ADMIN.equals(user.getAuthorization())) {
+            return putIfAbsent(user, null);
+        }
+        synchronized (adminLock) {
+            if (!putIfAbsent(user, null)) {
+                return false;
+            }
+            indexAuthorization(user.getUsername(), UserAuthorization.ADMIN);
+            return true;
+        }
+    }
+
+    /**
+     * Replace the user with a new version of it, which may have a different username. The replacement only happens
+     * if the current user is still the one in the database, so concurrent changes of the same user are not lost.
+     *
+     * @param currentUser - the user as it was read from the database
+     * @param newUser     - the new version of the user
+     * @return true if the user is replaced, false if the user has changed meanwhile, the new username or the unique
+     * email is taken, the last admin would lose its administrative permissions or the new user is too large for the
+     * user store
+     */
+    public boolean replaceUser(User currentUser, User newUser) {
+        return awaitDurability(applyChange(currentUser.getUsername(), newUser.getUsername(),
+            () -> changeUser(currentUser, newUser)));
+    }
+
+    private boolean changeUser(User currentUser, User newUser) {
+        boolean newAdmin = UserAuthorization.ADMIN.equals(newUser.getAuthorization());
+        // The shard of the user is locked, so the user cannot become an admin after the check.
+        if (!isAdmin(currentUser.getUsername()) && !newAdmin) {
+            return replaceUserInMap(currentUser, newUser);
+        }
+        synchronized (adminLock) {
+            if (isLastAdmin(currentUser.getUsername()) && !newAdmin) {
+                return false;
+            }
+            if (!replaceUserInMap(currentUser, newUser)) {
+                return false;
+            }
+            reindex(currentUser.getUsername(), newUser);
+            return true;
+        }
+    }
+
+    private boolean replaceUserInMap(User currentUser, User newUser) {
+        String currentUsername = currentUser.getUsername();
+        String newUsername = newUser.getUsername();
+        if (currentUsername.equals(newUsername)) {
+            return replaceIfSame(currentUsername, currentUser, newUser);
+        }
+
+        // The shards of both usernames are locked, so the current user cannot change after it is checked.
+        User storedUser = users.get(currentUsername);
+        if (storedUser == null || !sameUser(storedUser, currentUser) || !putIfAbsent(newUser, currentUsername)) {
+            return false;
+        }
+        return replaceIfSame(currentUsername, null, null);
+    }
+
+    /**
+     * @param username - the username of the user to remove
+     * @return true if the user is removed, false if there is no such user or the user is the last admin
+     */
+    public boolean removeUser(String username) {
+        return awaitDurability(applyChange(username, null, () -> deleteUser(username)));
+    }
+
+    private boolean deleteUser(String username) {
+        if (!isAdmin(username)) {
+            return replaceIfSame(username, null, null);
+        }
+        synchronized (adminLock) {
+            if (isLastAdmin(username) || !replaceIfSame(username, null, null)) {
+                return false;
+            }
+            indexAuthorization(username, UserAuthorization.USER);
+            return true;
+        }
+    }
+
+    /**
+     * @return true if the authorization is changed, false if there is no such user
+     */
+    public boolean setAuthorization(String username, UserAuthorization authorization) {
+        return awaitDurability(applyChange(username, null, () -> {
+            synchronized (adminLock) {
+                return changeAuthorization(username, authorization);
+            }
+        }));
+    }
+
+    /**
+     * Take the administrative permissions of an admin, unless the admin is the last one
+     *
+     * @param username - the username of the admin
+     * @return true if the user is no longer an admin, false if there is no such admin or the admin is the last one
+     */
+    public boolean removeAdmin(String username) {
+        return awaitDurability(applyChange(username, null, () -> {
+            synchronized (adminLock) {
+                return isAdmin(username) && !isLastAdmin(username) &&
+                    changeAuthorization(username, UserAuthorization.USER);
+            }
+        }));
+    }
+
+    /**
+     * @return true if the authentication is changed, false if there is no such user
+     */
+    public boolean setAuthentication(String username, UserAuthentication authentication) {
+        return users.computeIfPresent(username, (key, user) -> {
+            User authenticatedUser = new User(user);
+            authenticatedUser.setAuthentication(authentication);
+            return authenticatedUser;
+        }) != null;
+    }
+
+    private boolean changeAuthorization(String username, UserAuthorization authorization) {
+        return users.computeIfPresent(username, (key, user) -> {
+            keepPreviousUser(key, user);
+            User authorizedUser = new User(user);
+            authorizedUser.setAuthorization(authorization);
+            indexAuthorization(key, authorization);
+            logChange(key, authorizedUser);
+            return authorizedUser;
+        }) != null;
+    }
+
+    /**
+     * Number the change and append it while the bin of the user is locked, so the changes of a user are numbered
+     * and logged in their order
+     *
+     * @param user - the user after the change or null if it is removed
+     */
+    private void logChange(String username, User user) {
+        long sequence = replayedSequence > 0 ? replayedSequence : changeSequence.incrementAndGet();
+        changeLog.record(sequence, username);
+        WriteAheadLog log = writeAheadLog;
+        if (log != null) {
+            log.append(GSON.toJson(toChange(sequence, username, user)));
+        }
+    }
+
+    private UserChange toChange(long sequence, String username, User user) {
+        PasswordKey key = passwordKey;
+        if (user == null) {
+            return UserChange.remove(sequence, username);
+        }
+        if (key == null || user.getPassword() == null) {
+            return UserChange.put(sequence, user);
+        }
+        User encryptedUser = new User(user);
+        encryptedUser.setPassword(key.encrypt(user.getPassword()));
+        return UserChange.putEncrypted(sequence, encryptedUser);
+    }
+
+    /**
+     * Apply a logged change, which a rotation of the log waits for, while the shards of the usernames are locked
+     *
+     * @param otherUsername - the other username changed together with the username or null
+     */
+    private boolean applyChange(String username, String otherUsername, BooleanSupplier change) {
+        changeLock.readLock().lock();
+        try {
+            if (isWriteAheadLogFailed()) {
+                // A change, which cannot be logged, is not made at all.
+                return false;
+            }
+            int shard = shardOf(username);
+            int otherShard = otherUsername == null ? shard : shardOf(otherUsername);
+            ReentrantLock first = shards[Math.min(shard, otherShard)];
+            ReentrantLock second = shards[Math.max(shard, otherShard)];
+            first.lock();
+            try {
+                if (second == first) {
+                    return change.getAsBoolean();
+                }
+                second.lock();
+                try {
+                    return change.getAsBoolean();
+                } finally {
+                    second.unlock();
+                }
+            } finally {
+                first.unlock();
+            }
+        } finally {
+            changeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Let the open views keep the user before it is changed, while the shard of the username is locked
+     *
+     * @param user - the user before the change or null if there is no such user
+     */
+    private void keepPreviousUser(String username, User user) {
+        for (DatabaseView view : views) {
+            view.keepPreviousUser(username, user == null ? null : new User(user));
+        }
+    }
+
+    private int shardOf(String username) {
+        int hash = username.hashCode();
+        return (hash ^ (hash >>> (Integer.SIZE / 2))) & (shards.length - 1);
+    }
+
+    /**
+     * Wait outside of any lock for the logged changes, so the changes of many users are forced to the disk at once
+     */
+    private boolean awaitDurability(boolean changed) {
+        WriteAheadLog log = writeAheadLog;
+        return changed && (log == null || log.sync());
+    }
+
+    /**
+     * Replay a logged change with its own sequence, before any other change is made. A change logged without a
+     * sequence gets the next one.
+     */
+    private void replayChange(UserChange change) {
+        replayedSequence = change.getSequence();
+        try {
+            replayUser(change);
+        } finally {
+            replayedSequence = 0;
+        }
+        // A change already part of the snapshot may change nothing, but its sequence is still taken.
+        changeSequence.accumulateAndGet(change.getSequence(), Math::max);
+    }
+
+    private void replayUser(UserChange change) {
+        String username = change.getUsername();
+        if (change.getOperation() == UserChange.Operation.REMOVE) {
+            replaceIfSame(username, null, null);
+            indexAuthorization(username, UserAuthorization.USER);
+        } else {
+            User user = change.getUser();
+            if (!users.fits(user)) {
+                logNotRestored(username, "write-ahead log");
+                return;
+            }
+            if (change.isEncryptedPassword()) {
+                PasswordKey key = passwordKey;
+                if (key == null) {
+                    throw new IllegalStateException("The passwords of the write-ahead log are encrypted, " +
+                        "but there is no password key.");
+                }
+                user.setPassword(key.decrypt(user.getPassword()));
+            }
+            user.setAuthentication(UserAuthentication.UNAUTHENTICATED);
+            if (!replaceIfSame(username, null, user)) {
+                putIfAbsent(user, null);
+            }
+            indexAuthorization(username, user.getAuthorization());
+        }
+    }
+
+    private void restoreUser(User user) {
+        String username = user.getUsername();
+        if (!users.fits(user)) {
+            logNotRestored(username, "snapshot");
+            return;
+        }
+        users.put(username, user);
+        if (user.getEmail() != null) {
+            usernamesByEmail.compute(normalizeEmail(user.getEmail()), (key, owners) -> withOwner(owners, username));
+        }
+        indexAuthorization(username, user.getAuthorization());
+    }
+
+    /**
+     * A user logged while the users were kept in a store with longer fields cannot be kept in the current one
+     */
+    private static void logNotRestored(String username, String source) {
+        TroubleshootLog.getInstance()
+            .log(TroubleshootLog.getId() + ".Error message: The user " + username + " of the " + source +
+                " is too large for the user store and is not restored.");
+    }
+
+    private boolean isLastAdmin(String username) {
+        return isAdmin(username) && adminCount.get() == 1;
+    }
+
+    private void reindex(String currentUsername, User newUser) {
+        indexAuthorization(currentUsername, UserAuthorization.USER);
+        indexAuthorization(newUser.getUsername(), newUser.getAuthorization());
+    }
+
+    private void indexAuthorization(String username, UserAuthorization authorization) {
+        if (UserAuthorization.ADMIN.equals(authorization)) {
+            if (admins.add(username)) {
+                adminCount.incrementAndGet();
+            }
+        } else if (admins.remove(username)) {
+            adminCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * The size of the user is checked before the store runs the function, which changes the indexes and logs the
+     * change, so a user too large for the store changes nothing.
+     *
+     * @param previousUsername - the username the user is renamed from, which may keep the same unique email
+     */
+    private boolean putIfAbsent(User user, String previousUsername) {
+        if (!users.fits(user)) {
+            return false;
+        }
+        return users.computeIfAbsent(user.getUsername(), key -> {
+            if (!claimEmail(user.getEmail(), key, previousUsername)) {
+                return null;
+            }
+            keepPreviousUser(key, null);
+            usernames.add(key);
+            logChange(key, user);
+            return user;
+        }) == user;
+    }
+
+    /**
+     * Compare the users by their fields, as users are equal whenever their usernames are. A null expected user
+     * matches any user and a null replacement removes the user. A replacement too large for the store is checked
+     * before the function runs, like in {@link #putIfAbsent}.
+     */
+    private boolean replaceIfSame(String username, User expected, User replacement) {
+        if (replacement != null && !users.fits(replacement)) {
+            return false;
+        }
+        boolean[] replaced = new boolean[1];
+        users.computeIfPresent(username, (key, user) -> {
+            if (expected != null && !sameUser(user, expected)) {
+                return user;
+            }
+            keepPreviousUser(key, user);
+            if (replacement == null) {
+                usernames.remove(key);
+                releaseEmail(user.getEmail(), key);
+            } else if (!sameEmail(user.getEmail(), replacement.getEmail())) {
+                if (!claimEmail(replacement.getEmail(), key, null)) {
+                    return user;
+                }
+                releaseEmail(user.getEmail(), key);
+            }
+            logChange(key, replacement);
+            replaced[0] = true;
+            return replacement;
+        });
+        return replaced[0];
+    }
+
+    /**
+     * Add the username to the owners of the email. The index of the email is changed under the lock of the bin of
+     * the username, so the index of a user always follows the user. The owners are immutable sets, as almost every
+     * email has a single owner.
+     */
+    private boolean claimEmail(String email, String username, String previousUsername) {
+        if (email == null) {
+            return true;
+        }
+        boolean[] claimed = new boolean[1];
+        usernamesByEmail.compute(normalizeEmail(email), (key, owners) -> {
+            if (uniqueEmails && owners != null &&
+                owners.stream().anyMatch(owner -> !owner.equals(username) && !owner.equals(previousUsername))) {
+                return owners;
+            }
+            claimed[0] = true;
+            return withOwner(owners, username);
+        });
+        return claimed[0];
+    }
+
+    private void releaseEmail(String email, String username) {
+        if (email == null) {
+            return;
+        }
+        usernamesByEmail.computeIfPresent(normalizeEmail(email), (key, owners) -> {
+            if (!owners.contains(username)) {
+                return owners;
+            }
+            Set<String> remainingOwners = new HashSet<>(owners);
+            remainingOwners.remove(username);
+            return remainingOwners.isEmpty() ? null : Set.copyOf(remainingOwners);
+        });
+    }
+
+    private static Set<String> withOwner(Set<String> owners, String username) {
+        if (owners == null) {
+            return Set.of(username);
+        }
+        if (owners.contains(username)) {
+            return owners;
+        }
+        Set<String> newOwners = new HashSet<>(owners);
+        newOwners.add(username);
+        return Set.copyOf(newOwners);
+    }
+
+    /**
+     * The authentication is not compared, as it only follows the sessions of the user.
+     */
+    private static boolean sameUser(User user, User otherUser) {
+        return user == otherUser || Objects.equals(user.getUsername(), otherUser.getUsername()) &&
+            Objects.equals(user.getPassword(), otherUser.getPassword()) &&
+            Objects.equals(user.getFirstName(), otherUser.getFirstName()) &&
+            Objects.equals(user.getLastName(), otherUser.getLastName()) &&
+            Objects.equals(user.getEmail(), otherUser.getEmail()) &&
+            user.getAuthorization() == otherUser.getAuthorization();
+    }
+
+    private static boolean sameEmail(String email, String otherEmail) {
+        return email == null ? otherEmail == null : otherEmail != null &&
+            normalizeEmail(email).equals(normalizeEmail(otherEmail));
+    }
+
+    private static String normalizeEmail(String email) {
+        return email.toLowerCase(Locale.ROOT);
     }
 }
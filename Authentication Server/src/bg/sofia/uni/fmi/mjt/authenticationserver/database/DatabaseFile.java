@@ -6,32 +6,133 @@ import bg.sofia.uni.fmi.mjt.authenticationserver.troubleshootlog.TroubleshootLog
 import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
 
 import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+
+import com.google.gson.stream.JsonWriter;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.charset.StandardCharsets;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+import java.util.stream.StreamSupport;
+
+/**
+ * Exports the users as JSON lines. The users are streamed from a view of the database in chunks, which are encrypted
+ * and serialized to buffers of their own in parallel by a fork-join pool. The buffers are written in the order of
+ * the chunks to a temporary file, which replaces the previous export only when it is complete, so a reader never
+ * sees a partial export.
+ *
+ * <p>The changes after a change sequence are exported the same way, as the users changed after the sequence. A
+ * removed user is exported as a tombstone, {@code {"Username":"...","Deleted":true}}.</p>
+ */
 public class DatabaseFile {
+    public static final long NOT_EXPORTED = -1;
+    public static final long CHANGES_NOT_KEPT = -2;
     private static final String LOG_FILE_PATH = "database.txt";
+    private static final String CHANGES_FILE_PATH = "database.changes.txt";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private static final int USERS_PER_CHUNK = 4096;
+    private static final int CHUNKS_PER_THREAD = 2;
+    private static final int CHUNK_BYTES_PER_USER = 256;
     private static final Gson GSON = new Gson();
-    private static PrintWriter writer;
+    private static final TypeAdapter<User> USER_ADAPTER = GSON.getAdapter(User.class);
+    private static final String USERNAME_FIELD = "Username";
+    private static final String DELETED_FIELD = "Deleted";
+
+    /**
+     * Write the users as they are at the start of the download, while they keep changing. The view holds copies of
+     * the users, so their passwords are encrypted without changing the users in the database.
+     *
+     * @param database - the database, whose users are exported
+     * @return the change sequence of the export or NOT_EXPORTED if it has failed and the previous export is kept
+     */
+    public static long getDatabase(Database database) {
+        return getDatabase(database, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param database - the database, whose users are exported
+     * @param pool     - the pool which encrypts and serializes the chunks, a pool of a single thread exports the users
+     *                 sequentially
+     * @return the change sequence of the export or NOT_EXPORTED if it has failed and the previous export is kept
+     */
+    public static synchronized long getDatabase(Database database, ForkJoinPool pool) {
+        try (DatabaseView view = database.openView()) {
+            Iterator<Map.Entry<String, User>> users = StreamSupport.stream(view.spliterator(), false)
+                .map(user -> Map.entry(user.getUsername(), user))
+                .iterator();
+            return export(Path.of(LOG_FILE_PATH), users, pool) ? view.getSequence() : NOT_EXPORTED;
+        }
+    }
+
+    /**
+     * Write the users changed after the sequence as they are at the start of the download, so applying them to an
+     * export of the sequence results in an export of the returned sequence
+     *
+     * @return the change sequence the changes are complete up to, NOT_EXPORTED if the export has failed or
+     * CHANGES_NOT_KEPT if the changes after the sequence are no longer kept or the sequence is not reached yet
+     */
+    public static long getChanges(Database database, long sequence) {
+        return getChanges(database, sequence, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool - the pool which encrypts and serializes the chunks of the changed users
+     */
+    public static synchronized long getChanges(Database database, long sequence, ForkJoinPool pool) {
+        try (DatabaseView view = database.openView()) {
+            NavigableSet<String> changedUsernames = sequence > view.getSequence() ? null :
+                database.getChangedUsernames(sequence, view.getSequence());
+            if (changedUsernames == null) {
+                return CHANGES_NOT_KEPT;
+            }
+            return export(Path.of(CHANGES_FILE_PATH), view.list(changedUsernames), pool) ? view.getSequence() :
+                NOT_EXPORTED;
+        }
+    }
 
-    private static void createNewWriter() {
+    /**
+     * @return true if the export is complete, false if it has failed and the previous export is kept
+     */
+    private static boolean export(Path path, Iterator<Map.Entry<String, User>> users, ForkJoinPool pool) {
+        Path temporary = path.resolveSibling(path.getFileName() + TEMPORARY_FILE_SUFFIX);
         try {
-            File logFile = new File(LOG_FILE_PATH);
-            if (writer != null) {
-                writer.close();
+            boolean exported;
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                exported = writeUsers(channel, users, pool);
+                channel.force(false);
             }
-            if (logFile.exists()) {
-                logFile.delete();
+            if (!exported) {
+                Files.delete(temporary);
+                return false;
             }
-            logFile.createNewFile();
-            writer = new PrintWriter(new BufferedWriter(new FileWriter(logFile, true)));
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
         } catch (IOException e) {
             System.out.println("Failed to create DatabaseFile." +
                 "Try again later or contact administrator by providing the logs in " +
@@ -39,35 +140,100 @@ public class DatabaseFile {
             TroubleshootLog.getInstance()
                 .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
                     Arrays.toString(e.getStackTrace()) + ".");
+            return false;
         }
     }
 
-    public static void getDatabase() {
-        createNewWriter();
-        List<User> users = Database.getInstance().getUsers().values()
-            .stream()
-            .toList();
-        for (User user : users) {
-            String password = user.getPassword();
-            String encryptedPassword = CipherPassword.encryptPassword(password);
-            if (encryptedPassword != null) {
-                user.setPassword(encryptedPassword);
-                String json = GSON.toJson(user);
-                writer.write(json + System.lineSeparator());
-                writer.flush();
-            } else {
-                close();
-                return;
+    /**
+     * Stream the users in chunks to the pool and write the serialized chunks in their order. Only a few chunks per
+     * thread of the pool are in progress at once, so the export does not hold all the users in the memory.
+     *
+     * @param users - the usernames with their users, a null user is written as a tombstone
+     * @return false if a password cannot be encrypted
+     */
+    private static boolean writeUsers(FileChannel channel, Iterator<Map.Entry<String, User>> users,
+                                      ForkJoinPool pool) throws IOException {
+        Deque<ForkJoinTask<byte[]>> chunks = new ArrayDeque<>();
+        int maxChunks = pool.getParallelism() * CHUNKS_PER_THREAD;
+        try {
+            List<Map.Entry<String, User>> chunk = new ArrayList<>(USERS_PER_CHUNK);
+            while (users.hasNext()) {
+                chunk.add(users.next());
+                if (chunk.size() == USERS_PER_CHUNK) {
+                    chunks.add(pool.submit(serializeChunk(chunk)));
+                    chunk = new ArrayList<>(USERS_PER_CHUNK);
+                }
+                if (chunks.size() == maxChunks && !writeChunk(channel, chunks.poll())) {
+                    return false;
+                }
             }
+            if (!chunk.isEmpty()) {
+                chunks.add(pool.submit(serializeChunk(chunk)));
+            }
+            while (!chunks.isEmpty()) {
+                if (!writeChunk(channel, chunks.poll())) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(false));
         }
-        close();
+    }
+
+    /**
+     * @return false if the passwords of the chunk cannot be encrypted
+     */
+    private static boolean writeChunk(FileChannel channel, ForkJoinTask<byte[]> chunk) throws IOException {
+        byte[] bytes = chunk.join();
+        if (bytes == null) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return true;
+    }
+
+    /**
+     * Encrypt the passwords of the users with a single cipher and serialize the users as lines of JSON
+     *
+     * @return the task, which results in the UTF-8 bytes of the lines or null if a password cannot be encrypted
+     */
+    private static Callable<byte[]> serializeChunk(List<Map.Entry<String, User>> users) {
+        return () -> {
+            List<User> presentUsers = users.stream().map(Map.Entry::getValue).filter(Objects::nonNull).toList();
+            List<String> encryptedPasswords =
+                CipherPassword.encryptPasswords(presentUsers.stream().map(User::getPassword).toList());
+            if (encryptedPasswords == null) {
+                return null;
+            }
+            for (int i = 0; i < presentUsers.size(); i++) {
+                presentUsers.get(i).setPassword(encryptedPasswords.get(i));
+            }
+            StringWriter lines = new StringWriter(users.size() * CHUNK_BYTES_PER_USER);
+            JsonWriter jsonWriter = GSON.newJsonWriter(lines);
+            // Every line is a separate JSON document.
+            jsonWriter.setLenient(true);
+            for (Map.Entry<String, User> user : users) {
+                if (user.getValue() == null) {
+                    jsonWriter.beginObject().name(USERNAME_FIELD).value(user.getKey()).name(DELETED_FIELD).value(true)
+                        .endObject();
+                } else {
+                    USER_ADAPTER.write(jsonWriter, user.getValue());
+                }
+                lines.write(System.lineSeparator());
+            }
+            return lines.toString().getBytes(StandardCharsets.UTF_8);
+        };
     }
 
     public static String getLogFilePath() {
         return LOG_FILE_PATH;
     }
 
-    private static void close() {
-        writer.close();
+    public static String getChangesFilePath() {
+        return CHANGES_FILE_PATH;
     }
 }
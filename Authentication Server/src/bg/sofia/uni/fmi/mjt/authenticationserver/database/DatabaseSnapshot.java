@@ -0,0 +1,265 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.cipher.PasswordKey;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthorization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import java.util.function.Consumer;
+
+/**
+ * Binary snapshot of the users. The users are written in chunks, each of them prefixed by its count of users and
+ * its length in bytes, so the chunks can be found without decoding them and loaded in parallel.
+ *
+ * <pre>
+ * snapshot := MAGIC sequence:long chunk* END
+ * chunk    := userCount:int length:int user{userCount}
+ * user     := username password firstName lastName email authorization:byte
+ * string   := length:int utf8Bytes (length -1 for null)
+ * </pre>
+ *
+ * <p>The sequence is the change sequence of the last change in the snapshot. A snapshot of the previous format
+ * starts with {@code LEGACY_MAGIC} and no sequence, its sequence is 0.</p>
+ *
+ * <p>A snapshot written with a password key starts with {@code ENCRYPTED_MAGIC} and its passwords are encrypted
+ * with the key, so it can only be loaded with the same key. The file is readable only by its owner either way.</p>
+ *
+ * <p>A snapshot is written to a temporary file, which replaces the previous snapshot only when it is complete.</p>
+ */
+public class DatabaseSnapshot {
+    private static final int LEGACY_MAGIC = 0x41555331;
+    private static final int MAGIC = 0x41555332;
+    private static final int ENCRYPTED_MAGIC = 0x41555333;
+    private static final int END = -1;
+    private static final int NULL_LENGTH = -1;
+    private static final int CHUNK_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int USERS_PER_CHUNK = 64 * 1024;
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private static final UserAuthorization[] AUTHORIZATIONS = UserAuthorization.values();
+
+    private record Chunk(long position, int length) {
+    }
+
+    private DatabaseSnapshot() {
+    }
+
+    /**
+     * Write the users to the snapshot, replacing the previous snapshot atomically
+     *
+     * @param snapshot - the file of the snapshot
+     * @param users    - the users, which may be changed while they are written
+     * @param sequence - the change sequence, up to which every change is part of the users
+     * @param key      - the key, which encrypts the passwords, or null to write them unencrypted
+     * @return count of the written users
+     */
+    public static int write(Path snapshot, Iterable<User> users, long sequence, PasswordKey key)
+        throws IOException {
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + TEMPORARY_FILE_SUFFIX);
+        int userCount = 0;
+        try (FileChannel channel = OwnerOnlyFiles.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.allocate(Integer.BYTES + Long.BYTES)
+                .putInt(key == null ? MAGIC : ENCRYPTED_MAGIC).putLong(sequence).flip());
+
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(chunk);
+            int chunkUsers = 0;
+            for (User user : users) {
+                writeUser(output, user, key);
+                chunkUsers++;
+                if (chunkUsers == USERS_PER_CHUNK) {
+                    writeChunk(channel, chunkUsers, chunk);
+                    userCount += chunkUsers;
+                    chunkUsers = 0;
+                }
+            }
+            if (chunkUsers > 0) {
+                writeChunk(channel, chunkUsers, chunk);
+                userCount += chunkUsers;
+            }
+
+            writeInt(channel, END);
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return userCount;
+    }
+
+    /**
+     * Decode the chunks of the snapshot in parallel and pass every user to the restore, which must be thread-safe
+     *
+     * @param snapshot - the file of the snapshot
+     * @param key      - the key, which the passwords were encrypted with, or null if there is none
+     * @param restore  - receives the users of the snapshot
+     * @return count of the loaded users, 0 if there is no snapshot
+     */
+    public static int load(Path snapshot, PasswordKey key, Consumer<User> restore) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            int magic = readMagic(channel);
+            if (magic == ENCRYPTED_MAGIC && key == null) {
+                throw new IOException("The passwords of the snapshot are encrypted, but there is no password key.");
+            }
+            PasswordKey passwordKey = magic == ENCRYPTED_MAGIC ? key : null;
+            List<Chunk> chunks = readChunks(channel, magic);
+            // Every chunk is mapped on its own, so a snapshot may be larger than a single mapping.
+            List<ByteBuffer> buffers = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, chunk.position(), chunk.length()));
+            }
+
+            return buffers.parallelStream()
+                .mapToInt(buffer -> readUsers(buffer, passwordKey, restore))
+                .sum();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("The snapshot of the database is corrupted.", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("The snapshot of the database cannot be decrypted with the password key.", e);
+        }
+    }
+
+    /**
+     * @param snapshot - the file of the snapshot
+     * @return the change sequence of the snapshot, 0 if there is no snapshot
+     */
+    public static long readSequence(Path snapshot) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            return readMagic(channel) == LEGACY_MAGIC ? 0 : readLong(channel, Integer.BYTES);
+        }
+    }
+
+    private static int readMagic(FileChannel channel) throws IOException {
+        int magic = readInt(channel, 0);
+        if (magic != ENCRYPTED_MAGIC && magic != MAGIC && magic != LEGACY_MAGIC) {
+            throw new IOException("The file is not a snapshot of the database.");
+        }
+        return magic;
+    }
+
+    private static List<Chunk> readChunks(FileChannel channel, int magic) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        long position = magic == LEGACY_MAGIC ? Integer.BYTES : Integer.BYTES + Long.BYTES;
+        int userCount;
+        while ((userCount = readInt(channel, position)) != END) {
+            int length = readInt(channel, position + Integer.BYTES);
+            long start = position + CHUNK_HEADER_BYTES;
+            if (userCount < 0 || length < 0 || start + length > channel.size()) {
+                throw new IOException("The snapshot of the database is corrupted.");
+            }
+            chunks.add(new Chunk(start, length));
+            position = start + length;
+        }
+        return chunks;
+    }
+
+    /**
+     * @throws BufferUnderflowException  if the chunk ends within a user
+     * @throws IndexOutOfBoundsException if a length or an authorization of the chunk is invalid
+     */
+    private static int readUsers(ByteBuffer buffer, PasswordKey key, Consumer<User> restore) {
+        int userCount = 0;
+        while (buffer.hasRemaining()) {
+            String username = readString(buffer);
+            String password = readString(buffer);
+            User user = new User(username, key == null || password == null ? password : key.decrypt(password),
+                readString(buffer), readString(buffer), readString(buffer));
+            user.setAuthorization(AUTHORIZATIONS[Objects.checkIndex(buffer.get(), AUTHORIZATIONS.length)]);
+            restore.accept(user);
+            userCount++;
+        }
+        return userCount;
+    }
+
+    private static void writeUser(DataOutputStream output, User user, PasswordKey key) throws IOException {
+        writeString(output, user.getUsername());
+        String password = user.getPassword();
+        writeString(output, key == null || password == null ? password : key.encrypt(password));
+        writeString(output, user.getFirstName());
+        writeString(output, user.getLastName());
+        writeString(output, user.getEmail());
+        output.writeByte(user.getAuthorization().ordinal());
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        Objects.checkIndex(length, buffer.remaining() + 1);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeChunk(FileChannel channel, int userCount, ByteArrayOutputStream chunk)
+        throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_BYTES);
+        header.putInt(userCount).putInt(chunk.size()).flip();
+        writeFully(channel, header);
+        writeFully(channel, ByteBuffer.wrap(chunk.toByteArray()));
+        chunk.reset();
+    }
+
+    private static void writeInt(FileChannel channel, int value) throws IOException {
+        writeFully(channel, ByteBuffer.allocate(Integer.BYTES).putInt(0, value));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int readInt(FileChannel channel, long position) throws IOException {
+        return read(channel, position, Integer.BYTES).getInt(0);
+    }
+
+    private static long readLong(FileChannel channel, long position) throws IOException {
+        return read(channel, position, Long.BYTES).getLong(0);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("The snapshot of the database is incomplete.");
+            }
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,179 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import java.util.concurrent.locks.Lock;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The users as they were when the view was opened, listed in the order of their usernames while the users keep
+ * changing. Before a user is changed for the first time after the view is opened, its previous version is kept by
+ * the view (copy on write), unless the view has already listed the username. So the view only holds the users
+ * changed while it is listed and the changes never wait for it.
+ *
+ * <p>The view is at the change sequence of the last change made before it was opened. Either every user is listed
+ * or only the users with some usernames, such as the users changed after another sequence.</p>
+ *
+ * <p>The authentication of the users is not part of the view, as it is changed by every login.</p>
+ */
+public class DatabaseView implements Iterable<User>, AutoCloseable {
+    private final NavigableSet<String> usernames;
+    private final Map<String, User> users;
+    private final Function<String, Lock> shards;
+    private final Consumer<DatabaseView> closer;
+    private final ConcurrentNavigableMap<String, Optional<User>> previousUsers;
+    private final long sequence;
+    private volatile String cursor;
+    private boolean iterated;
+
+    /**
+     * @param usernames - the sorted usernames of the current users
+     * @param users     - the current users by their usernames
+     * @param shards    - the lock of the shard of a username
+     * @param closer    - stops keeping the previous versions of the users for the view
+     * @param sequence  - the change sequence of the last change before the view
+     */
+    DatabaseView(NavigableSet<String> usernames, Map<String, User> users, Function<String, Lock> shards,
+                 Consumer<DatabaseView> closer, long sequence) {
+        this.usernames = usernames;
+        this.users = users;
+        this.shards = shards;
+        this.closer = closer;
+        this.previousUsers = new ConcurrentSkipListMap<>();
+        this.sequence = sequence;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Keep the version of the user before its first change. Called while the shard of the username is locked.
+     *
+     * @param previousUser - a copy of the user before the change or null if there is no such user
+     */
+    void keepPreviousUser(String username, User previousUser) {
+        if (!isListed(username)) {
+            previousUsers.putIfAbsent(username, Optional.ofNullable(previousUser));
+        }
+    }
+
+    /**
+     * List the username while its shard is locked, so the user cannot change in between
+     *
+     * @return a copy of the user with the username when the view was opened or null
+     */
+    private User list(String username) {
+        Lock shard = shards.apply(username);
+        shard.lock();
+        try {
+            cursor = username;
+            Optional<User> previousUser = previousUsers.remove(username);
+            if (previousUser != null) {
+                return previousUser.orElse(null);
+            }
+            User currentUser = users.get(username);
+            return currentUser == null ? null : new User(currentUser);
+        } finally {
+            shard.unlock();
+        }
+    }
+
+    private boolean isListed(String username) {
+        String listedUsername = cursor;
+        return listedUsername != null && username.compareTo(listedUsername) <= 0;
+    }
+
+    /**
+     * The next username after the cursor, either of a current user or of a changed one. The current usernames are
+     * read first, as a user is always kept by the view before its username is removed.
+     */
+    private String nextUsername() {
+        String listedUsername = cursor;
+        String current = listedUsername == null ? usernames.ceiling("") : usernames.higher(listedUsername);
+        String previous = listedUsername == null ? previousUsers.ceilingKey("") :
+            previousUsers.higherKey(listedUsername);
+        if (current == null || previous == null) {
+            return current != null ? current : previous;
+        }
+        return current.compareTo(previous) <= 0 ? current : previous;
+    }
+
+    /**
+     * @return the users of the view in the order of their usernames, which can be listed only once
+     */
+    @Override
+    public Iterator<User> iterator() {
+        startListing();
+        return new Iterator<>() {
+            private User next;
+
+            @Override
+            public boolean hasNext() {
+                String username;
+                while (next == null && (username = nextUsername()) != null) {
+                    next = list(username);
+                }
+                return next != null;
+            }
+
+            @Override
+            public User next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                User user = next;
+                next = null;
+                return user;
+            }
+        };
+    }
+
+    /**
+     * List only the users with the usernames instead of every user. The view can still be listed only once.
+     *
+     * @param listedUsernames - the sorted usernames to list
+     * @return the usernames in their order with their users, null for a username without a user in the view
+     */
+    public Iterator<Map.Entry<String, User>> list(NavigableSet<String> listedUsernames) {
+        startListing();
+        Iterator<String> remainingUsernames = listedUsernames.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return remainingUsernames.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, User> next() {
+                String username = remainingUsernames.next();
+                return new AbstractMap.SimpleImmutableEntry<>(username, list(username));
+            }
+        };
+    }
+
+    private synchronized void startListing() {
+        if (iterated) {
+            throw new IllegalStateException("The view of the database is already listed.");
+        }
+        iterated = true;
+    }
+
+    @Override
+    public void close() {
+        closer.accept(this);
+        previousUsers.clear();
+    }
+}
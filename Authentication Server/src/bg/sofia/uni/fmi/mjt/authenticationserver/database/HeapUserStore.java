@@ -0,0 +1,144 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Keeps the users as objects on the heap. It is the default store of the database.
+ *
+ * <p>The users are kept in a concurrent hash map, whose compute methods are atomic and run their function exactly
+ * once, so every operation is delegated to it.</p>
+ */
+public class HeapUserStore extends AbstractMap<String, User> implements UserStore {
+    private final ConcurrentMap<String, User> users;
+
+    public HeapUserStore() {
+        this.users = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public boolean fits(User user) {
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return users.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return users.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return users.containsKey(key);
+    }
+
+    @Override
+    public User get(Object key) {
+        return users.get(key);
+    }
+
+    @Override
+    public User getOrDefault(Object key, User defaultValue) {
+        return users.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public User put(String key, User value) {
+        return users.put(key, value);
+    }
+
+    @Override
+    public User remove(Object key) {
+        return users.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        users.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return users.keySet();
+    }
+
+    @Override
+    public Collection<User> values() {
+        return users.values();
+    }
+
+    @Override
+    public Set<Entry<String, User>> entrySet() {
+        return users.entrySet();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super User> action) {
+        users.forEach(action);
+    }
+
+    @Override
+    public User putIfAbsent(String key, User value) {
+        return users.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return users.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, User oldValue, User newValue) {
+        return users.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public User replace(String key, User value) {
+        return users.replace(key, value);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super User, ? extends User> function) {
+        users.replaceAll(function);
+    }
+
+    @Override
+    public User computeIfAbsent(String key, Function<? super String, ? extends User> mappingFunction) {
+        return users.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public User computeIfPresent(String key,
+                                 BiFunction<? super String, ? super User, ? extends User> remappingFunction) {
+        return users.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public User compute(String key, BiFunction<? super String, ? super User, ? extends User> remappingFunction) {
+        return users.compute(key, remappingFunction);
+    }
+
+    @Override
+    public User merge(String key, User value,
+                      BiFunction<? super User, ? super User, ? extends User> remappingFunction) {
+        return users.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,629 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthentication;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthorization;
+
+import java.io.IOException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Keeps the users off the heap, in fixed-size records of a memory-mapped file, and finds them through an off-heap
+ * open-addressing index of the hashes of their usernames. A user is only materialized as an object when it is read,
+ * so the heap used by the store itself does not grow with the count of the users. The indexes of the database, the
+ * sorted usernames, the emails and the admins, are still kept on the heap, so the heap of the server keeps growing
+ * with the count of the users, only more slowly than with the users on the heap.
+ *
+ * <p>The file is only a scratch space which grows in segments. The users are made durable by the write-ahead log
+ * and the snapshots, so the file is cleared when the store is opened and deleted when it is closed. It holds the
+ * passwords unencrypted, so it is readable only by its owner.</p>
+ *
+ * <p>A user is read and changed while the stripe lock of its username is held. The index and the allocation of the
+ * records are changed under a single lock, and the store grows while every other operation waits.</p>
+ */
+public class MappedUserStore extends AbstractMap<String, User> implements UserStore {
+    private static final int RECORD_SIZE = 512;
+    private static final int RECORDS_PER_SEGMENT_BITS = 16;
+    private static final int RECORDS_PER_SEGMENT = 1 << RECORDS_PER_SEGMENT_BITS;
+    private static final int STATE_OFFSET = 0;
+    private static final int AUTHORIZATION_OFFSET = 1;
+    private static final int AUTHENTICATION_OFFSET = 2;
+    private static final int NEXT_FREE_OFFSET = 4;
+    private static final int LENGTHS_OFFSET = 8;
+    private static final int FIELD_COUNT = 5;
+    private static final int DATA_OFFSET = LENGTHS_OFFSET + FIELD_COUNT * Short.BYTES;
+    private static final int[] MAX_FIELD_BYTES = {64, 128, 64, 64, 128};
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+    private static final short NULL_LENGTH = -1;
+    private static final int NO_RECORD = -1;
+    private static final int NO_SLOT = -1;
+    private static final long EMPTY = 0;
+    private static final long DELETED = -1;
+    private static final int INITIAL_INDEX_CAPACITY = 1 << 10;
+    private static final int STRIPE_BITS = 8;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+    private static final VarHandle INDEX_ENTRY =
+        MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final UserAuthorization[] AUTHORIZATIONS = UserAuthorization.values();
+    private static final UserAuthentication[] AUTHENTICATIONS = UserAuthentication.values();
+    private final Path path;
+    private final FileChannel channel;
+    private final ReentrantLock[] stripes;
+    private final ReadWriteLock tableLock;
+    private final Object allocationLock;
+    private final AtomicInteger size;
+    private final Set<Entry<String, User>> entries;
+    private MappedByteBuffer[] segments;
+    private ByteBuffer index;
+    private int indexMask;
+    private int usedSlots;
+    private int reserved;
+    private volatile int recordCount;
+    private int freeRecord;
+    private int freeCount;
+
+    private MappedUserStore(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.stripes = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.tableLock = new ReentrantReadWriteLock();
+        this.allocationLock = new Object();
+        this.size = new AtomicInteger();
+        this.entries = new EntrySet();
+        this.segments = new MappedByteBuffer[] {mapSegment(0)};
+        this.index = ByteBuffer.allocateDirect(INITIAL_INDEX_CAPACITY * Long.BYTES);
+        this.indexMask = INITIAL_INDEX_CAPACITY - 1;
+        this.freeRecord = NO_RECORD;
+    }
+
+    /**
+     * @param path - the file of the records, cleared if it exists
+     */
+    public static MappedUserStore open(Path path) throws IOException {
+        FileChannel channel = OwnerOnlyFiles.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new MappedUserStore(path, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean fits(User user) {
+        String[] fields = fieldsOf(user);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (fields[i] != null && fields[i].getBytes(StandardCharsets.UTF_8).length > MAX_FIELD_BYTES[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public User get(Object key) {
+        if (!(key instanceof String username)) {
+            return null;
+        }
+        return update(username, null, false, false);
+    }
+
+    @Override
+    public User put(String key, User value) {
+        Objects.requireNonNull(value);
+        User[] previous = new User[1];
+        update(key, (currentKey, user) -> {
+            previous[0] = user;
+            return value;
+        }, true, true);
+        return previous[0];
+    }
+
+    @Override
+    public User putIfAbsent(String key, User value) {
+        Objects.requireNonNull(value);
+        User user = update(key, (currentKey, currentUser) -> value, true, false);
+        return user == value ? null : user;
+    }
+
+    @Override
+    public User remove(Object key) {
+        if (!(key instanceof String username)) {
+            return null;
+        }
+        User[] previous = new User[1];
+        update(username, (currentKey, user) -> {
+            previous[0] = user;
+            return null;
+        }, false, true);
+        return previous[0];
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (!(key instanceof String username) || value == null) {
+            return false;
+        }
+        boolean[] removed = new boolean[1];
+        update(username, (currentKey, user) -> {
+            removed[0] = value.equals(user);
+            return removed[0] ? null : user;
+        }, false, true);
+        return removed[0];
+    }
+
+    @Override
+    public boolean replace(String key, User oldValue, User newValue) {
+        Objects.requireNonNull(newValue);
+        boolean[] replaced = new boolean[1];
+        update(key, (currentKey, user) -> {
+            replaced[0] = oldValue.equals(user);
+            return replaced[0] ? newValue : user;
+        }, false, true);
+        return replaced[0];
+    }
+
+    @Override
+    public User replace(String key, User value) {
+        Objects.requireNonNull(value);
+        User[] previous = new User[1];
+        update(key, (currentKey, user) -> {
+            previous[0] = user;
+            return value;
+        }, false, true);
+        return previous[0];
+    }
+
+    @Override
+    public User computeIfAbsent(String key, Function<? super String, ? extends User> mappingFunction) {
+        return update(key, (currentKey, user) -> mappingFunction.apply(currentKey), true, false);
+    }
+
+    @Override
+    public User computeIfPresent(String key,
+                                 BiFunction<? super String, ? super User, ? extends User> remappingFunction) {
+        return update(key, remappingFunction, false, true);
+    }
+
+    @Override
+    public User compute(String key, BiFunction<? super String, ? super User, ? extends User> remappingFunction) {
+        return update(key, remappingFunction, true, true);
+    }
+
+    @Override
+    public Set<Entry<String, User>> entrySet() {
+        return entries;
+    }
+
+    /**
+     * Clear and delete the file of the records.
+     */
+    @Override
+    public void close() throws IOException {
+        tableLock.writeLock().lock();
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply the function to the current user, or to null if there is no user, and store its result. A user changed
+     * in place by the function is stored as well.
+     *
+     * @param applyToAbsent  - whether the function is applied when there is no user
+     * @param applyToPresent - whether the function is applied to the current user, which is returned otherwise
+     */
+    private User update(String key, BiFunction<? super String, ? super User, ? extends User> function,
+                        boolean applyToAbsent, boolean applyToPresent) {
+        int hash = key.hashCode();
+        while (true) {
+            tableLock.readLock().lock();
+            try {
+                ReentrantLock stripe = stripeOf(hash);
+                stripe.lock();
+                try {
+                    int slot = findSlot(key, hash);
+                    if (slot != NO_SLOT) {
+                        User current = readRecord(recordOf(entryAt(slot)));
+                        return applyToPresent ? change(key, slot, current, function) : current;
+                    }
+                    if (!applyToAbsent) {
+                        return null;
+                    }
+                    if (reserve()) {
+                        return insert(key, hash, function);
+                    }
+                } finally {
+                    stripe.unlock();
+                }
+            } finally {
+                tableLock.readLock().unlock();
+            }
+            grow();
+        }
+    }
+
+    private User insert(String key, int hash, BiFunction<? super String, ? super User, ? extends User> function) {
+        User user;
+        try {
+            user = function.apply(key, null);
+        } catch (RuntimeException | Error e) {
+            release();
+            throw e;
+        }
+        if (user == null || !fits(user)) {
+            release();
+            checkFits(key, user);
+            return null;
+        }
+
+        synchronized (allocationLock) {
+            int record = allocateRecord();
+            writeRecord(record, key, user);
+            addToIndex(hash, record);
+            reserved--;
+        }
+        size.incrementAndGet();
+        return user;
+    }
+
+    private User change(String key, int slot, User current,
+                        BiFunction<? super String, ? super User, ? extends User> function) {
+        int record = recordOf(entryAt(slot));
+        User user = function.apply(key, current);
+        if (user == null) {
+            synchronized (allocationLock) {
+                INDEX_ENTRY.setVolatile(index, slot * Long.BYTES, DELETED);
+                freeRecord(record);
+            }
+            size.decrementAndGet();
+        } else {
+            checkFits(key, user);
+            writeRecord(record, key, user);
+        }
+        return user;
+    }
+
+    private void checkFits(String key, User user) {
+        if (user != null && !fits(user)) {
+            throw new IllegalArgumentException("The fields of the user " + key + " are too long to be stored.");
+        }
+    }
+
+    /**
+     * Reserve a record and a slot of the index for an insert, so the function of the insert runs only once
+     *
+     * @return false if the store has to grow first
+     */
+    private boolean reserve() {
+        synchronized (allocationLock) {
+            boolean indexFull = (usedSlots + reserved + 1L) * 2 > indexMask + 1L;
+            long records = (long) segments.length * RECORDS_PER_SEGMENT;
+            boolean recordsFull = recordCount - freeCount + reserved + 1L > records;
+            if (indexFull || recordsFull) {
+                return false;
+            }
+            reserved++;
+            return true;
+        }
+    }
+
+    private void release() {
+        synchronized (allocationLock) {
+            reserved--;
+        }
+    }
+
+    private void grow() {
+        tableLock.writeLock().lock();
+        try {
+            if ((usedSlots + 1L) * 2 > indexMask + 1L) {
+                rebuildIndex();
+            }
+            if (recordCount - freeCount + 1L > (long) segments.length * RECORDS_PER_SEGMENT) {
+                MappedByteBuffer[] grownSegments = Arrays.copyOf(segments, segments.length + 1);
+                grownSegments[segments.length] = mapSegment(segments.length);
+                segments = grownSegments;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("The user store cannot grow.", e);
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rehash the live users to an index which is at most a quarter full, dropping the deleted entries
+     */
+    private void rebuildIndex() {
+        int capacity = INITIAL_INDEX_CAPACITY;
+        while (capacity < (size.get() + 1L) * 4) {
+            capacity <<= 1;
+        }
+        ByteBuffer rebuilt = ByteBuffer.allocateDirect(capacity * Long.BYTES);
+        int mask = capacity - 1;
+        for (int slot = 0; slot <= indexMask; slot++) {
+            long entry = entryAt(slot);
+            if (entry != EMPTY && entry != DELETED) {
+                int newSlot = spread((int) (entry >>> Integer.SIZE)) & mask;
+                while ((long) INDEX_ENTRY.get(rebuilt, newSlot * Long.BYTES) != EMPTY) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                INDEX_ENTRY.set(rebuilt, newSlot * Long.BYTES, entry);
+            }
+        }
+        index = rebuilt;
+        indexMask = mask;
+        usedSlots = size.get();
+    }
+
+    private int findSlot(String key, int hash) {
+        for (int slot = spread(hash) & indexMask; ; slot = (slot + 1) & indexMask) {
+            long entry = entryAt(slot);
+            if (entry == EMPTY) {
+                return NO_SLOT;
+            }
+            if (entry != DELETED && (int) (entry >>> Integer.SIZE) == hash &&
+                key.equals(readField(recordOf(entry), 0))) {
+                return slot;
+            }
+        }
+    }
+
+    private void addToIndex(int hash, int record) {
+        int slot = spread(hash) & indexMask;
+        long entry;
+        while ((entry = entryAt(slot)) != EMPTY && entry != DELETED) {
+            slot = (slot + 1) & indexMask;
+        }
+        if (entry == EMPTY) {
+            usedSlots++;
+        }
+        INDEX_ENTRY.setVolatile(index, slot * Long.BYTES, ((long) hash << Integer.SIZE) | (record + 1L));
+    }
+
+    private long entryAt(int slot) {
+        return (long) INDEX_ENTRY.getVolatile(index, slot * Long.BYTES);
+    }
+
+    private static int recordOf(long entry) {
+        return (int) entry - 1;
+    }
+
+    private ReentrantLock stripeOf(int hash) {
+        // The stripe takes the high bits of the spread hash, while the slot of the index takes the low bits.
+        return stripes[spread(hash) >>> (Integer.SIZE - STRIPE_BITS)];
+    }
+
+    private static int spread(int hash) {
+        int spread = hash * 0x9E3779B9;
+        return spread ^ (spread >>> (Integer.SIZE / 2));
+    }
+
+    private int allocateRecord() {
+        if (freeRecord == NO_RECORD) {
+            return recordCount++;
+        }
+        int record = freeRecord;
+        freeRecord = segmentOf(record).getInt(offsetOf(record) + NEXT_FREE_OFFSET);
+        freeCount--;
+        return record;
+    }
+
+    private void freeRecord(int record) {
+        ByteBuffer segment = segmentOf(record);
+        int offset = offsetOf(record);
+        segment.put(offset + STATE_OFFSET, FREE);
+        segment.putInt(offset + NEXT_FREE_OFFSET, freeRecord);
+        freeRecord = record;
+        freeCount++;
+    }
+
+    private MappedByteBuffer mapSegment(int segment) throws IOException {
+        long segmentSize = (long) RECORD_SIZE * RECORDS_PER_SEGMENT;
+        return channel.map(FileChannel.MapMode.READ_WRITE, segment * segmentSize, segmentSize);
+    }
+
+    private ByteBuffer segmentOf(int record) {
+        return segments[record >>> RECORDS_PER_SEGMENT_BITS];
+    }
+
+    private static int offsetOf(int record) {
+        return (record & (RECORDS_PER_SEGMENT - 1)) * RECORD_SIZE;
+    }
+
+    private static String[] fieldsOf(User user) {
+        return new String[] {user.getUsername(), user.getPassword(), user.getFirstName(), user.getLastName(),
+            user.getEmail()};
+    }
+
+    private void writeRecord(int record, String username, User user) {
+        ByteBuffer segment = segmentOf(record);
+        int offset = offsetOf(record);
+        String[] fields = fieldsOf(user);
+        fields[0] = username;
+
+        int position = offset + DATA_OFFSET;
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            int lengthOffset = offset + LENGTHS_OFFSET + i * Short.BYTES;
+            if (fields[i] == null) {
+                segment.putShort(lengthOffset, NULL_LENGTH);
+                continue;
+            }
+            byte[] bytes = fields[i].getBytes(StandardCharsets.UTF_8);
+            segment.putShort(lengthOffset, (short) bytes.length);
+            segment.put(position, bytes);
+            position += bytes.length;
+        }
+        segment.put(offset + AUTHORIZATION_OFFSET, (byte) user.getAuthorization().ordinal());
+        segment.put(offset + AUTHENTICATION_OFFSET, (byte) user.getAuthentication().ordinal());
+        segment.put(offset + STATE_OFFSET, USED);
+    }
+
+    private User readRecord(int record) {
+        ByteBuffer segment = segmentOf(record);
+        int offset = offsetOf(record);
+        String[] fields = new String[FIELD_COUNT];
+        int position = offset + DATA_OFFSET;
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            short length = segment.getShort(offset + LENGTHS_OFFSET + i * Short.BYTES);
+            if (length != NULL_LENGTH) {
+                fields[i] = readString(segment, position, length);
+                position += length;
+            }
+        }
+
+        User user = new User(fields[0], fields[1], fields[2], fields[3], fields[4]);
+        user.setAuthorization(AUTHORIZATIONS[segment.get(offset + AUTHORIZATION_OFFSET)]);
+        user.setAuthentication(AUTHENTICATIONS[segment.get(offset + AUTHENTICATION_OFFSET)]);
+        return user;
+    }
+
+    /**
+     * @param field - the index of the field, which is only found after the fields before it
+     */
+    private String readField(int record, int field) {
+        ByteBuffer segment = segmentOf(record);
+        int offset = offsetOf(record);
+        int position = offset + DATA_OFFSET;
+        for (int i = 0; i < field; i++) {
+            position += Math.max(0, segment.getShort(offset + LENGTHS_OFFSET + i * Short.BYTES));
+        }
+        short length = segment.getShort(offset + LENGTHS_OFFSET + field * Short.BYTES);
+        return length == NULL_LENGTH ? null : readString(segment, position, length);
+    }
+
+    private static String readString(ByteBuffer segment, int position, int length) {
+        byte[] bytes = new byte[length];
+        segment.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the username of a record without any lock, only as a hint which record to read under the lock
+     */
+    private String peekUsername(int record) {
+        tableLock.readLock().lock();
+        try {
+            ByteBuffer segment = segmentOf(record);
+            int offset = offsetOf(record);
+            short length = segment.getShort(offset + LENGTHS_OFFSET);
+            if (segment.get(offset + STATE_OFFSET) != USED || length < 0 || length > MAX_FIELD_BYTES[0]) {
+                return null;
+            }
+            return readString(segment, offset + DATA_OFFSET, length);
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the user if the username is still stored in the record
+     */
+    private User readIfStoredAt(String username, int record) {
+        int hash = username.hashCode();
+        tableLock.readLock().lock();
+        try {
+            ReentrantLock stripe = stripeOf(hash);
+            stripe.lock();
+            try {
+                int slot = findSlot(username, hash);
+                return slot != NO_SLOT && recordOf(entryAt(slot)) == record ? readRecord(record) : null;
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Weakly consistent view of the users in the order of their records
+     */
+    private class EntrySet extends AbstractSet<Entry<String, User>> {
+        @Override
+        public Iterator<Entry<String, User>> iterator() {
+            return new Iterator<>() {
+                private int record;
+                private Entry<String, User> next;
+
+                @Override
+                public boolean hasNext() {
+                    while (next == null && record < recordCount) {
+                        int current = record++;
+                        String username = peekUsername(current);
+                        User user = username == null ? null : readIfStoredAt(username, current);
+                        if (user != null) {
+                            next = new SimpleImmutableEntry<>(username, user);
+                        }
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public Entry<String, User> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Entry<String, User> entry = next;
+                    next = null;
+                    return entry;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return MappedUserStore.this.size();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import java.io.IOException;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import java.util.Set;
+
+/**
+ * Opens the files of the database, which hold the users with their passwords, readable and writable only by their
+ * owner. A file created before is restricted as well when it is opened. On a file system without POSIX permissions
+ * the files keep the permissions of their directory, which must then be restricted instead.
+ */
+public final class OwnerOnlyFiles {
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    private OwnerOnlyFiles() {
+    }
+
+    public static FileChannel open(Path path, OpenOption... options) throws IOException {
+        if (!POSIX) {
+            return FileChannel.open(path, options);
+        }
+        FileChannel channel = FileChannel.open(path, Set.of(options), PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        try {
+            Files.setPosixFilePermissions(path, OWNER_ONLY);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+}
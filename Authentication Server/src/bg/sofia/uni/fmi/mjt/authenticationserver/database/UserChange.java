@@ -0,0 +1,74 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * A single change of the users, as it is written to the write-ahead log. A put carries the whole new state of the
+ * user, so replaying the changes in their order restores the users. Every change carries its change sequence, which
+ * is 0 for the changes logged before the changes were numbered.
+ *
+ * <p>The password of a put is encrypted with the password key of the database, when it has one. The changes logged
+ * before the passwords were encrypted are marked as not encrypted, as the mark is missing from them.</p>
+ */
+public class UserChange {
+    @SerializedName("Sequence")
+    private final long sequence;
+    @SerializedName("Operation")
+    private final Operation operation;
+    @SerializedName("Username")
+    private final String username;
+    @SerializedName("User")
+    private final User user;
+    @SerializedName("EncryptedPassword")
+    private final boolean encryptedPassword;
+
+    public enum Operation {
+        PUT,
+        REMOVE
+    }
+
+    private UserChange(long sequence, Operation operation, String username, User user, boolean encryptedPassword) {
+        this.sequence = sequence;
+        this.operation = operation;
+        this.username = username;
+        this.user = user;
+        this.encryptedPassword = encryptedPassword;
+    }
+
+    public static UserChange put(long sequence, User user) {
+        return new UserChange(sequence, Operation.PUT, user.getUsername(), user, false);
+    }
+
+    /**
+     * @param user - the user with its password already encrypted
+     */
+    public static UserChange putEncrypted(long sequence, User user) {
+        return new UserChange(sequence, Operation.PUT, user.getUsername(), user, true);
+    }
+
+    public static UserChange remove(long sequence, String username) {
+        return new UserChange(sequence, Operation.REMOVE, username, null, false);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public boolean isEncryptedPassword() {
+        return encryptedPassword;
+    }
+}
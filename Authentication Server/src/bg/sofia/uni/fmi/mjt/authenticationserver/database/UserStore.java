@@ -0,0 +1,24 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+
+import java.io.Closeable;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The storage of the users by their usernames. The compute methods must be atomic for a username and must run
+ * their function exactly once, because the database keeps its indexes up to date inside of them.
+ *
+ * <p>A store may return a new instance of a user on every read, so users are compared by their fields and a user
+ * changed in a compute method must be returned by it to be stored.</p>
+ *
+ * <p>A compute method can only find out that the user returned by its function does not fit after the function has
+ * run, and then throws {@link IllegalArgumentException}. The callers check that the user fits first.</p>
+ */
+public interface UserStore extends ConcurrentMap<String, User>, Closeable {
+    /**
+     * @return false if the fields of the user are too long to be stored
+     */
+    boolean fits(User user);
+}
@@ -0,0 +1,356 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.troubleshootlog.TroubleshootLog;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of records, one record per line. The records are written and forced to the disk by a single
+ * thread, so the records appended while the previous force is running are forced together (group commit). The
+ * durability window delays the force a little to collect more records, so the disk is not forced once per record.
+ *
+ * <p>A record is complete only when its line is. A line torn by a crash is dropped when the log is opened.</p>
+ *
+ * <p>The log can be rotated to a next file, after which the records before the rotation are dropped by truncating
+ * the log. The next file replaces the log only then, so after a crash in between both files are replayed.</p>
+ *
+ * <p>The files of the log are readable only by their owner.</p>
+ */
+public class WriteAheadLog implements AutoCloseable {
+    private static final byte LINE_SEPARATOR = '\n';
+    private static final String NEXT_FILE_SUFFIX = ".next";
+    private static final int NO_ROTATION = -1;
+    private final Path path;
+    private final Path nextPath;
+    private final long durabilityWindow;
+    private final Object lock;
+    private final Thread flusher;
+    private FileChannel channel;
+    private List<String> pending;
+    private int rotationIndex;
+    private boolean rotated;
+    private long appendedSequence;
+    private long durableSequence;
+    private long forceCount;
+    private boolean failed;
+    private boolean closed;
+
+    private WriteAheadLog(Path path, FileChannel channel, long durabilityWindow) {
+        this.path = path;
+        this.nextPath = nextPath(path);
+        this.channel = channel;
+        this.durabilityWindow = durabilityWindow;
+        this.lock = new Object();
+        this.pending = new ArrayList<>();
+        this.rotationIndex = NO_ROTATION;
+        this.flusher = new Thread(this::flushRecords, "write-ahead-log");
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Open the log, pass its complete records to the replay in their order and start accepting new records.
+     *
+     * @param path             - the file of the log, created if it does not exist
+     * @param durabilityWindow - time in milliseconds to collect records before the disk is forced
+     * @param replay           - receives the records already in the log
+     */
+    public static WriteAheadLog open(Path path, long durabilityWindow, Consumer<String> replay) throws IOException {
+        if (durabilityWindow < 0) {
+            throw new IllegalArgumentException("The durability window must not be negative.");
+        }
+        FileChannel channel = OwnerOnlyFiles.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            long validLength = replay(Files.readAllBytes(path), replay);
+            channel.truncate(validLength);
+            channel.position(validLength);
+            mergeNextFile(nextPath(path), channel, replay);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        WriteAheadLog writeAheadLog = new WriteAheadLog(path, channel, durabilityWindow);
+        writeAheadLog.flusher.start();
+        return writeAheadLog;
+    }
+
+    /**
+     * Move the records of a next file left by a crash during a rotation to the end of the log
+     */
+    private static void mergeNextFile(Path nextPath, FileChannel channel, Consumer<String> replay)
+        throws IOException {
+        if (!Files.exists(nextPath)) {
+            return;
+        }
+        byte[] content = Files.readAllBytes(nextPath);
+        int validLength = (int) replay(content, replay);
+        ByteBuffer buffer = ByteBuffer.wrap(content, 0, validLength);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        Files.delete(nextPath);
+    }
+
+    private static Path nextPath(Path path) {
+        return path.resolveSibling(path.getFileName() + NEXT_FILE_SUFFIX);
+    }
+
+    /**
+     * @return the length of the complete records
+     */
+    private static long replay(byte[] content, Consumer<String> replay) {
+        int start = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == LINE_SEPARATOR) {
+                if (i > start) {
+                    replay.accept(new String(content, start, i - start, StandardCharsets.UTF_8));
+                }
+                start = i + 1;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Add a record after the records appended before it. The record is not durable until a sync returns.
+     *
+     * @param record - a single line of text
+     * @return false if the log is closed or has failed and the record is dropped
+     */
+    public boolean append(String record) {
+        synchronized (lock) {
+            if (closed || failed) {
+                return false;
+            }
+            pending.add(record);
+            appendedSequence++;
+            if (pending.size() == 1) {
+                lock.notifyAll();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Wait until every record appended so far is forced to the disk.
+     *
+     * @return true if the records are durable, false if writing the log has failed
+     */
+    public boolean sync() {
+        synchronized (lock) {
+            long sequence = appendedSequence;
+            boolean interrupted = false;
+            while (durableSequence < sequence && !failed) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return !failed;
+        }
+    }
+
+    /**
+     * @return true if writing the log has failed, after which no record is accepted
+     */
+    public boolean isFailed() {
+        synchronized (lock) {
+            return failed;
+        }
+    }
+
+    /**
+     * Write the records appended from now on to the next file. If the log is already rotated and not truncated yet,
+     * the next file is kept, because it holds the records after the previous rotation, which is only more than
+     * needed.
+     */
+    public void rotate() {
+        synchronized (lock) {
+            if (!closed && !rotated && rotationIndex == NO_ROTATION) {
+                rotationIndex = pending.size();
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Drop the records before the last rotation by replacing the log with the next file.
+     */
+    public void truncate() throws IOException {
+        synchronized (lock) {
+            boolean interrupted = false;
+            while (rotationIndex != NO_ROTATION && !failed) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failed) {
+                throw new IOException("The write-ahead log has failed and cannot be truncated.");
+            }
+            if (rotated) {
+                // The open channel follows the file, so the records keep being appended to it after the move.
+                Files.move(nextPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                rotated = false;
+            }
+        }
+    }
+
+    /**
+     * @return count of the forces of the disk, each of which makes a group of records durable
+     */
+    public long getForceCount() {
+        synchronized (lock) {
+            return forceCount;
+        }
+    }
+
+    private void flushRecords() {
+        while (true) {
+            List<String> records;
+            int rotationAt;
+            long sequence;
+            synchronized (lock) {
+                if (!awaitRecords()) {
+                    return;
+                }
+                records = pending;
+                rotationAt = rotationIndex;
+                sequence = appendedSequence;
+                pending = new ArrayList<>();
+            }
+
+            boolean written = writeRecords(records, rotationAt);
+            synchronized (lock) {
+                if (written) {
+                    durableSequence = sequence;
+                    forceCount += records.isEmpty() ? 0 : 1;
+                    if (rotationAt != NO_ROTATION) {
+                        rotationIndex = NO_ROTATION;
+                        rotated = true;
+                    }
+                } else {
+                    failed = true;
+                }
+                lock.notifyAll();
+                if (failed) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false if the log is closed and there are no records left
+     */
+    private boolean awaitRecords() {
+        try {
+            while (pending.isEmpty() && rotationIndex == NO_ROTATION && !closed) {
+                lock.wait();
+            }
+            long deadline = System.currentTimeMillis() + durabilityWindow;
+            long remaining = durabilityWindow;
+            while (!closed && remaining > 0) {
+                lock.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        } catch (InterruptedException e) {
+            closed = true;
+        }
+        return !pending.isEmpty() || rotationIndex != NO_ROTATION;
+    }
+
+    /**
+     * @param rotationAt - index of the first record which goes to the next file or -1 if there is no rotation
+     */
+    private boolean writeRecords(List<String> records, int rotationAt) {
+        try {
+            if (rotationAt == NO_ROTATION) {
+                writeRecords(channel, records);
+                return true;
+            }
+
+            writeRecords(channel, records.subList(0, rotationAt));
+            FileChannel nextChannel = OwnerOnlyFiles.open(nextPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            FileChannel previousChannel;
+            synchronized (lock) {
+                previousChannel = channel;
+                channel = nextChannel;
+            }
+            previousChannel.close();
+            writeRecords(nextChannel, records.subList(rotationAt, records.size()));
+            return true;
+        } catch (IOException e) {
+            System.out.println("Failed to write the write-ahead log. " +
+                "Try again later or contact administrator by providing the logs in " +
+                TroubleshootLog.getLogFilePath());
+            TroubleshootLog.getInstance()
+                .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
+                    Arrays.toString(e.getStackTrace()) + ".");
+            return false;
+        }
+    }
+
+    private static void writeRecords(FileChannel channel, List<String> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (String record : records) {
+            lines.append(record).append((char) LINE_SEPARATOR);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Force the records appended so far and close the log.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (lock) {
+                channel.close();
+            }
+        }
+    }
+}
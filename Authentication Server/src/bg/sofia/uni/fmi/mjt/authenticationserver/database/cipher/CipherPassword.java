@@ -14,7 +14,9 @@ import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public class CipherPassword {
     private static final String ENCRYPTION_ALGORITHM = "AES";
@@ -38,11 +40,25 @@ public class CipherPassword {
     }
 
     public static String encryptPassword(String password) {
+        List<String> encryptedPasswords = encryptPasswords(List.of(password));
+        return encryptedPasswords == null ? null : encryptedPasswords.get(0);
+    }
+
+    /**
+     * Encrypt the passwords with a single cipher, as creating the cipher costs more than encrypting a password
+     *
+     * @return the encrypted passwords in the order of the passwords or null if the encryption has failed
+     */
+    public static List<String> encryptPasswords(List<String> passwords) {
         try {
             Cipher cipher = Cipher.getInstance(ENCRYPTION_ALGORITHM);
             cipher.init(Cipher.ENCRYPT_MODE, SECRET_KEY);
-            byte[] dataBytes = cipher.doFinal(password.getBytes(StandardCharsets.UTF_8));
-            return new String(dataBytes, StandardCharsets.UTF_8);
+            List<String> encryptedPasswords = new ArrayList<>(passwords.size());
+            for (String password : passwords) {
+                byte[] dataBytes = cipher.doFinal(password.getBytes(StandardCharsets.UTF_8));
+                encryptedPasswords.add(new String(dataBytes, StandardCharsets.UTF_8));
+            }
+            return encryptedPasswords;
         } catch (NoSuchPaddingException | BadPaddingException e) {
             System.out.println(
                 "The padding of password encryption scheme is incorrect." +
@@ -0,0 +1,117 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database.cipher;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.OwnerOnlyFiles;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import java.util.Base64;
+
+/**
+ * The key, which encrypts the passwords the database writes to the disk. Unlike the key of {@link CipherPassword},
+ * it is kept in a file of its own, so the passwords can be decrypted after a restart. The file is created with a new
+ * key if it does not exist and is readable only by its owner.
+ *
+ * <p>Every password is encrypted with AES-GCM and a random IV, so equal passwords are encrypted differently and a
+ * changed encrypted password is not decrypted at all. The IV and the encrypted password are written as Base64.</p>
+ */
+public class PasswordKey {
+    private static final String ENCRYPTION_ALGORITHM = "AES";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int KEY_SIZE_IN_BITS = 128;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private final SecretKey key;
+    private final SecureRandom random;
+
+    private PasswordKey(SecretKey key) {
+        this.key = key;
+        this.random = new SecureRandom();
+    }
+
+    /**
+     * @param path - the file of the key, created with a new key if it does not exist
+     */
+    public static PasswordKey open(Path path) throws IOException {
+        if (Files.exists(path)) {
+            byte[] encoded;
+            try {
+                encoded = Base64.getDecoder().decode(Files.readString(path, StandardCharsets.US_ASCII).trim());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("The file is not a password key.", e);
+            }
+            if (encoded.length * Byte.SIZE != KEY_SIZE_IN_BITS) {
+                throw new IOException("The file is not a password key.");
+            }
+            return new PasswordKey(new SecretKeySpec(encoded, ENCRYPTION_ALGORITHM));
+        }
+
+        SecretKey key;
+        try {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance(ENCRYPTION_ALGORITHM);
+            keyGenerator.init(KEY_SIZE_IN_BITS);
+            key = keyGenerator.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("The password key cannot be generated.", e);
+        }
+        try (FileChannel channel = OwnerOnlyFiles.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getEncoder().encode(key.getEncoded()));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        return new PasswordKey(key);
+    }
+
+    public String encrypt(String password) {
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] encrypted = cipher.doFinal(password.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(
+                ByteBuffer.allocate(IV_BYTES + encrypted.length).put(iv).put(encrypted).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("The password cannot be encrypted.", e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the password was not encrypted with this key or was changed since
+     */
+    public String decrypt(String encryptedPassword) {
+        try {
+            byte[] bytes = Base64.getDecoder().decode(encryptedPassword);
+            if (bytes.length < IV_BYTES) {
+                throw new IllegalArgumentException("The encrypted password is incomplete.");
+            }
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, bytes, 0, IV_BYTES));
+            return new String(cipher.doFinal(bytes, IV_BYTES, bytes.length - IV_BYTES), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("The password cannot be decrypted with the password key.", e);
+        }
+    }
+}
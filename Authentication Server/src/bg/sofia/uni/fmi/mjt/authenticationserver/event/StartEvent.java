@@ -12,8 +12,12 @@ public class StartEvent extends BasicEvent {
 
     public static StartEvent of(CommandBehavior commandBehavior, String username, String ipAddress,
                                 String description) {
+        return of(System.currentTimeMillis(), commandBehavior, username, ipAddress, description);
+    }
+
+    public static StartEvent of(long timestamp, CommandBehavior commandBehavior, String username, String ipAddress,
+                                String description) {
         increment();
-        return new StartEvent(new Timestamp(System.currentTimeMillis()), commandBehavior, username,
-            ipAddress, description);
+        return new StartEvent(new Timestamp(timestamp), commandBehavior, username, ipAddress, description);
     }
 }
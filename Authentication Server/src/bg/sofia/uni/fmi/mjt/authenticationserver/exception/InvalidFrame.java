@@ -0,0 +1,13 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.exception;
+
+import java.io.IOException;
+
+public class InvalidFrame extends IOException {
+    public InvalidFrame(String message) {
+        super(message);
+    }
+
+    public InvalidFrame(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
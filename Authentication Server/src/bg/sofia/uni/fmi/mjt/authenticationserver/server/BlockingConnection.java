@@ -0,0 +1,114 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.buffer.BufferPool;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Request;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Response;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidFrame;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.troubleshootlog.TroubleshootLog;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+
+import java.util.Arrays;
+
+/**
+ * Serves a single client over a blocking channel. Meant to run on its own virtual thread, which is
+ * unmounted from its carrier while it waits for the client. The requests are read through the socket, so
+ * a client which sends nothing for longer than the idle timeout is disconnected by the read timeout.
+ */
+class BlockingConnection implements Runnable {
+    private final SocketChannel clientChannel;
+    private final ServerCommandExecutor serverCommandExecutor;
+    private final BufferPool bufferPool;
+    private final ServerMetrics metrics;
+    private final long idleTimeout;
+    private final MessageSerializer messageSerializer;
+    private final ByteBuffer lengthBuffer;
+    private ReadableByteChannel inputChannel;
+
+    BlockingConnection(SocketChannel clientChannel, ServerCommandExecutor serverCommandExecutor,
+                       BufferPool bufferPool, ServerMetrics metrics, long idleTimeout) {
+        this.clientChannel = clientChannel;
+        this.serverCommandExecutor = serverCommandExecutor;
+        this.bufferPool = bufferPool;
+        this.metrics = metrics;
+        this.idleTimeout = idleTimeout;
+        this.messageSerializer = new MessageSerializer(bufferPool);
+        this.lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    }
+
+    @Override
+    public void run() {
+        try (clientChannel) {
+            InetSocketAddress clientAddress = (InetSocketAddress) clientChannel.getRemoteAddress();
+            String ipAddress = clientAddress.getAddress().getHostAddress();
+            clientChannel.socket().setSoTimeout((int) Math.min(idleTimeout, Integer.MAX_VALUE));
+            inputChannel = Channels.newChannel(clientChannel.socket().getInputStream());
+
+            Request clientRequest;
+            while ((clientRequest = readRequest()) != null) {
+                Response response = serverCommandExecutor.executeRequest(clientRequest, ipAddress);
+                writeResponse(response);
+            }
+        } catch (SocketTimeoutException e) {
+            metrics.connectionReaped();
+        } catch (IOException e) {
+            TroubleshootLog.getInstance()
+                .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
+                    Arrays.toString(e.getStackTrace()) + ".");
+        }
+    }
+
+    private Request readRequest() throws IOException {
+        lengthBuffer.clear();
+        if (inputChannel.read(lengthBuffer) < 0) {
+            return null;
+        }
+        readFully(lengthBuffer);
+
+        int length = lengthBuffer.getInt(0);
+        if (length < 0 || length > ConnectionContext.MAX_FRAME_SIZE) {
+            throw new InvalidFrame("Invalid frame length: " + length + ".");
+        }
+
+        ByteBuffer serializedRequest = bufferPool.acquire(length);
+        try {
+            serializedRequest.limit(length);
+            readFully(serializedRequest);
+            return messageSerializer.deserializeRequest(serializedRequest.flip());
+        } finally {
+            bufferPool.release(serializedRequest);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (inputChannel.read(buffer) < 0) {
+                throw new EOFException("The client closed the connection in the middle of a request.");
+            }
+        }
+    }
+
+    private void writeResponse(Response response) throws IOException {
+        ByteBuffer serializedResponse = messageSerializer.serializeResponse(response);
+        try {
+            while (serializedResponse.hasRemaining()) {
+                clientChannel.write(serializedResponse);
+            }
+        } finally {
+            bufferPool.release(serializedResponse);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.buffer.BufferPool;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.codec.MessageCodec;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidFrame;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * State of a single client connection, attached to its {@link java.nio.channels.SelectionKey}.
+ * Keeps the bytes of a partially received frame until the rest of it arrives and chains the untagged
+ * requests of the connection, so they are executed and answered in the order they were received. Requests
+ * tagged with a request id are executed independently and answered as soon as they complete. The responses
+ * wait in the outbound queue until the client is ready to receive them. All buffers held by the context come
+ * from the {@link BufferPool} and are returned to it once they are consumed.
+ */
+class ConnectionContext {
+    static final int MAX_FRAME_SIZE = MessageCodec.MAX_FRAME_SIZE;
+    private final BufferPool bufferPool;
+    private final String ipAddress;
+    private ByteBuffer pending;
+    private boolean endOfStream;
+    private CompletableFuture<Void> lastRequest;
+    private int requestsInFlight;
+    private final Deque<ByteBuffer> outbound;
+    private long outboundBytes;
+    private boolean closeRequested;
+    private long lastActivity;
+    private TimerWheel.Timeout idleTimeout;
+
+    ConnectionContext(BufferPool bufferPool, String ipAddress) {
+        this.bufferPool = bufferPool;
+        this.ipAddress = ipAddress;
+        this.lastRequest = CompletableFuture.completedFuture(null);
+        this.outbound = new ArrayDeque<>();
+    }
+
+    String getIpAddress() {
+        return ipAddress;
+    }
+
+    boolean isEndOfStream() {
+        return endOfStream;
+    }
+
+    void markEndOfStream() {
+        this.endOfStream = true;
+    }
+
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    void markActivity(long nowMillis) {
+        this.lastActivity = nowMillis;
+    }
+
+    void setIdleTimeout(TimerWheel.Timeout idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    int getRequestsInFlight() {
+        return requestsInFlight;
+    }
+
+    boolean hasRequestsInFlight() {
+        return requestsInFlight > 0;
+    }
+
+    /**
+     * Executes the request after all requests enqueued before it have completed.
+     */
+    void enqueue(Runnable request, Executor executor) {
+        requestsInFlight++;
+        lastRequest = lastRequest.thenRunAsync(request, executor);
+    }
+
+    /**
+     * Executes the request without waiting for the other requests of the connection.
+     */
+    void submit(Runnable request, Executor executor) {
+        requestsInFlight++;
+        executor.execute(request);
+    }
+
+    /**
+     * Marks an enqueued or submitted request as answered. Called by the thread owning the connection.
+     */
+    void completeRequest() {
+        requestsInFlight--;
+    }
+
+    /**
+     * Queues a response frame. The context takes the ownership of the pooled buffer.
+     *
+     * @param response - pooled buffer in read mode
+     */
+    void addResponse(ByteBuffer response) {
+        outbound.add(response);
+        outboundBytes += response.remaining();
+    }
+
+    /**
+     * Writes as much of the queued responses as the channel accepts without blocking.
+     *
+     * @param channel - channel of the client
+     * @return true if all queued responses were written
+     * @throws IOException if the channel fails
+     */
+    boolean flush(WritableByteChannel channel) throws IOException {
+        while (!outbound.isEmpty()) {
+            ByteBuffer response = outbound.peek();
+            outboundBytes -= channel.write(response);
+            if (response.hasRemaining()) {
+                return false;
+            }
+            bufferPool.release(outbound.poll());
+        }
+        return true;
+    }
+
+    long getOutboundBytes() {
+        return outboundBytes;
+    }
+
+    boolean isCloseRequested() {
+        return closeRequested;
+    }
+
+    void requestClose() {
+        this.closeRequested = true;
+    }
+
+    /**
+     * Consumes the readable bytes of data and passes the payload of every frame completed by them to the
+     * handler. The payload is a view of the received bytes which is valid only during the call.
+     *
+     * @param data    - buffer in read mode with the newly received bytes
+     * @param handler - consumer of the complete frames, called in the order they were received
+     * @throws InvalidFrame if a frame declares a negative length or a length above {@link #MAX_FRAME_SIZE}
+     */
+    void readFrames(ByteBuffer data, FrameHandler handler) throws IOException {
+        ByteBuffer source = data;
+        if (pending != null) {
+            ensurePendingCapacity(data.remaining());
+            pending.put(data);
+            pending.flip();
+            source = pending;
+        }
+
+        try {
+            while (source.remaining() >= Integer.BYTES) {
+                int length = getFrameLength(source);
+                if (source.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                int payloadPosition = source.position() + Integer.BYTES;
+                ByteBuffer payload = source.slice(payloadPosition, length);
+                source.position(payloadPosition + length);
+                handler.handle(payload);
+            }
+        } finally {
+            keepRemainder(source);
+        }
+    }
+
+    boolean hasPartialFrame() {
+        return pending != null;
+    }
+
+    /**
+     * Returns the buffers held by the connection to the pool and cancels its idle timeout.
+     * Called once the connection is closed.
+     */
+    void release() {
+        if (idleTimeout != null) {
+            idleTimeout.cancel();
+            idleTimeout = null;
+        }
+        if (pending != null) {
+            bufferPool.release(pending);
+            pending = null;
+        }
+        outbound.forEach(bufferPool::release);
+        outbound.clear();
+        outboundBytes = 0;
+    }
+
+    private static int getFrameLength(ByteBuffer source) throws InvalidFrame {
+        int length = source.getInt(source.position());
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+            throw new InvalidFrame("Invalid frame length: " + length + ".");
+        }
+        return length;
+    }
+
+    private void keepRemainder(ByteBuffer source) throws InvalidFrame {
+        if (source == pending) {
+            if (pending.hasRemaining()) {
+                pending.compact();
+            } else {
+                bufferPool.release(pending);
+                pending = null;
+            }
+        } else if (source.hasRemaining()) {
+            int frameSize = source.remaining();
+            if (source.remaining() >= Integer.BYTES) {
+                frameSize = Integer.BYTES + getFrameLength(source);
+            }
+            pending = bufferPool.acquire(frameSize);
+            pending.put(source);
+        }
+    }
+
+    private void ensurePendingCapacity(int additionalBytes) {
+        if (pending.remaining() >= additionalBytes) {
+            return;
+        }
+        int required = pending.position() + additionalBytes;
+        ByteBuffer enlarged = bufferPool.acquire(Math.max(pending.capacity() * 2, required));
+        pending.flip();
+        enlarged.put(pending);
+        bufferPool.release(pending);
+        pending = enlarged;
+    }
+
+    @FunctionalInterface
+    interface FrameHandler {
+        void handle(ByteBuffer payload) throws IOException;
+    }
+}
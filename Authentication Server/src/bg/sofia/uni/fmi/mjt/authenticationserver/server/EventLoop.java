@@ -0,0 +1,377 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.buffer.BufferPool;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Request;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Response;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.troubleshootlog.TroubleshootLog;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+import java.net.InetSocketAddress;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A selector loop serving the client connections registered to it. Every loop owns its selector and its
+ * read buffer, so several loops can run on different threads without sharing any I/O state.
+ * The loop only decodes requests and writes responses - the commands are executed by the workers and
+ * their responses are handed back to the loop as tasks. A connection is not read while it has the maximum
+ * count of pending requests or too many response bytes waiting to be written. Connections without any
+ * traffic for longer than the idle timeout are closed by the timer wheel of the loop.
+ *
+ * <p>Once the loop stops, its connections are closed and released, and the tasks handed to it afterwards run on
+ * the thread handing them over, so the responses of the workers still return their buffers to the pool.</p>
+ */
+class EventLoop implements Runnable {
+    private static final Integer BUFFER_SIZE = 8192;
+    private static final long TIMER_TICK = 100;
+    private static final int TIMER_WHEEL_SIZE = 512;
+    private final BufferPool bufferPool;
+    private final MessageSerializer messageSerializer;
+    private final Selector selector;
+    private final ByteBuffer readBuffer;
+    private final ServerCommandExecutor serverCommandExecutor;
+    private final Executor workers;
+    private final Queue<Runnable> tasks;
+    private final long writeHighWaterMark;
+    private final long writeLowWaterMark;
+    private final long idleTimeout;
+    private final int maxConnections;
+    private final int maxPendingRequests;
+    private final TimerWheel timerWheel;
+    private final ServerMetrics metrics;
+    private volatile boolean isWorking;
+    private volatile boolean isClosed;
+
+    EventLoop(ServerConfiguration configuration, ServerCommandExecutor serverCommandExecutor, Executor workers,
+              ServerMetrics metrics) throws IOException {
+        this.writeHighWaterMark = configuration.getWriteHighWaterMark();
+        this.writeLowWaterMark = writeHighWaterMark / 2;
+        this.idleTimeout = configuration.getIdleTimeout();
+        this.maxConnections = configuration.getMaxConnections();
+        this.maxPendingRequests = configuration.getMaxPendingRequests();
+        this.timerWheel = new TimerWheel(Math.min(TIMER_TICK, idleTimeout), TIMER_WHEEL_SIZE, now());
+        this.metrics = metrics;
+        this.bufferPool = BufferPool.getInstance();
+        this.messageSerializer = new MessageSerializer(bufferPool);
+        this.selector = Selector.open();
+        this.readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.serverCommandExecutor = serverCommandExecutor;
+        this.workers = workers;
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.isWorking = true;
+    }
+
+    void listen(ServerSocketChannel serverSocketChannel) throws IOException {
+        serverSocketChannel.configureBlocking(false);
+        serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Hands over an accepted connection to the loop. The caller has already taken a connection slot for it.
+     *
+     * @param clientChannel - accepted client channel
+     */
+    void register(SocketChannel clientChannel) {
+        execute(() -> {
+            try {
+                configureClientChannel(clientChannel);
+            } catch (IOException | ClosedSelectorException e) {
+                logError(e);
+                closeChannel(clientChannel);
+                metrics.connectionClosed();
+            }
+        });
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (isClosed) {
+            // Every key of the stopped loop is cancelled, so the task only releases what it holds.
+            runTasks();
+        } else {
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (isWorking) {
+            try {
+                selector.select(timerWheel.isEmpty() ? 0 : timerWheel.getTickMillis());
+                runTasks();
+                processSelectedKeys();
+                timerWheel.advance(now());
+            } catch (IOException e) {
+                System.out.println("Error occurred while processing client request. " +
+                    "Try again later or contact administrator by providing the logs in " +
+                    TroubleshootLog.getLogFilePath());
+                logError(e);
+            }
+        }
+        close();
+    }
+
+    void shutdown() {
+        isWorking = false;
+        selector.wakeup();
+    }
+
+    private void processSelectedKeys() throws IOException {
+        Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+        while (keyIterator.hasNext()) {
+            SelectionKey key = keyIterator.next();
+            keyIterator.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isWritable()) {
+                flush(key);
+            }
+            if (key.isValid() && key.isReadable()) {
+                try {
+                    handleReadable(key);
+                } catch (StreamCorruptedException e) {
+                    System.out.println(
+                        "Error occurred while processing client request - the request is not in the right format." +
+                            "Try again later or contact administrator by providing the logs in " +
+                            TroubleshootLog.getLogFilePath());
+                    logError(e);
+                    closeConnection(key);
+                } catch (IOException e) {
+                    logError(e);
+                    closeConnection(key);
+                }
+            } else if (key.isAcceptable()) {
+                accept(key);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private void accept(SelectionKey key) throws IOException {
+        ServerSocketChannel sockChannel = (ServerSocketChannel) key.channel();
+        SocketChannel clientChannel = sockChannel.accept();
+        if (clientChannel == null) {
+            return;
+        }
+        if (!metrics.tryOpenConnection(maxConnections)) {
+            closeChannel(clientChannel);
+            return;
+        }
+        try {
+            configureClientChannel(clientChannel);
+        } catch (IOException e) {
+            closeChannel(clientChannel);
+            metrics.connectionClosed();
+            throw e;
+        }
+    }
+
+    private void configureClientChannel(SocketChannel clientChannel) throws IOException {
+        InetSocketAddress clientAddress = (InetSocketAddress) clientChannel.getRemoteAddress();
+        ConnectionContext context = new ConnectionContext(bufferPool, clientAddress.getAddress().getHostAddress());
+        context.markActivity(now());
+
+        clientChannel.configureBlocking(false);
+        SelectionKey key = clientChannel.register(selector, SelectionKey.OP_READ, context);
+        context.setIdleTimeout(timerWheel.schedule(() -> checkIdle(key), idleTimeout));
+    }
+
+    private void checkIdle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        ConnectionContext context = (ConnectionContext) key.attachment();
+        long idleTime = now() - context.getLastActivity();
+        if (idleTime >= idleTimeout && !context.hasRequestsInFlight()) {
+            metrics.connectionReaped();
+            closeConnection(key);
+        } else {
+            long delay = Math.max(idleTimeout - idleTime, timerWheel.getTickMillis());
+            context.setIdleTimeout(timerWheel.schedule(() -> checkIdle(key), delay));
+        }
+    }
+
+    private void handleReadable(SelectionKey key) throws IOException {
+        SocketChannel clientChannel = (SocketChannel) key.channel();
+        ConnectionContext context = (ConnectionContext) key.attachment();
+        context.markActivity(now());
+
+        List<Request> clientRequests = getClientRequests(clientChannel, context);
+        for (Request clientRequest : clientRequests) {
+            Runnable execution = () -> executeRequest(key, context, clientRequest);
+            if (clientRequest.hasRequestId()) {
+                context.submit(execution, workers);
+            } else {
+                context.enqueue(execution, workers);
+            }
+        }
+        updateInterestOps(key, context);
+        if (context.isEndOfStream() && !context.hasRequestsInFlight()) {
+            closeWhenFlushed(key);
+        }
+    }
+
+    private void executeRequest(SelectionKey key, ConnectionContext context, Request clientRequest) {
+        try {
+            Response response = serverCommandExecutor.executeRequest(clientRequest, context.getIpAddress());
+            ByteBuffer serializedResponse = messageSerializer.serializeResponse(response);
+            execute(() -> sendResponse(key, serializedResponse));
+        } catch (RuntimeException e) {
+            logError(e);
+            execute(() -> closeConnection(key));
+        }
+    }
+
+    private List<Request> getClientRequests(SocketChannel clientChannel, ConnectionContext context)
+        throws IOException {
+        List<Request> requests = new ArrayList<>();
+
+        int readBytes;
+        do {
+            readBuffer.clear();
+            readBytes = clientChannel.read(readBuffer);
+            readBuffer.flip();
+
+            context.readFrames(readBuffer,
+                serializedRequest -> requests.add(messageSerializer.deserializeRequest(serializedRequest)));
+        } while (readBytes == readBuffer.capacity());
+
+        if (readBytes < 0) {
+            context.markEndOfStream();
+        }
+        return requests;
+    }
+
+    private void sendResponse(SelectionKey key, ByteBuffer response) {
+        if (!key.isValid()) {
+            bufferPool.release(response);
+            return;
+        }
+        ConnectionContext context = (ConnectionContext) key.attachment();
+        context.completeRequest();
+        context.addResponse(response);
+        if (context.isEndOfStream() && !context.hasRequestsInFlight()) {
+            closeWhenFlushed(key);
+        } else {
+            flush(key);
+        }
+    }
+
+    private void flush(SelectionKey key) {
+        ConnectionContext context = (ConnectionContext) key.attachment();
+        try {
+            long outboundBytes = context.getOutboundBytes();
+            boolean flushed = context.flush((SocketChannel) key.channel());
+            if (context.getOutboundBytes() < outboundBytes) {
+                context.markActivity(now());
+            }
+            if (flushed && context.isCloseRequested()) {
+                closeConnection(key);
+            } else {
+                updateInterestOps(key, context);
+            }
+        } catch (IOException e) {
+            logError(e);
+            closeConnection(key);
+        }
+    }
+
+    private void updateInterestOps(SelectionKey key, ConnectionContext context) {
+        int interestOps = key.interestOps();
+        if (context.getOutboundBytes() == 0) {
+            interestOps &= ~SelectionKey.OP_WRITE;
+        } else {
+            interestOps |= SelectionKey.OP_WRITE;
+        }
+
+        if (context.isEndOfStream() || context.getOutboundBytes() > writeHighWaterMark ||
+            context.getRequestsInFlight() >= maxPendingRequests) {
+            interestOps &= ~SelectionKey.OP_READ;
+        } else if (context.getOutboundBytes() <= writeLowWaterMark) {
+            interestOps |= SelectionKey.OP_READ;
+        }
+        key.interestOps(interestOps);
+    }
+
+    private void closeWhenFlushed(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        ConnectionContext context = (ConnectionContext) key.attachment();
+        context.requestClose();
+        flush(key);
+    }
+
+    private void closeConnection(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        key.cancel();
+        closeChannel(key.channel());
+        ((ConnectionContext) key.attachment()).release();
+        metrics.connectionClosed();
+    }
+
+    private void closeChannel(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logError(e);
+        }
+    }
+
+    private void close() {
+        for (SelectionKey key : new ArrayList<>(selector.keys())) {
+            if (key.attachment() instanceof ConnectionContext) {
+                closeConnection(key);
+            } else {
+                closeChannel(key.channel());
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logError(e);
+        }
+        isClosed = true;
+        runTasks();
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private void logError(Exception e) {
+        TroubleshootLog.getInstance()
+            .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
+                Arrays.toString(e.getStackTrace()) + ".");
+    }
+}
@@ -0,0 +1,39 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.buffer.BufferPool;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.codec.MessageCodec;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Request;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Response;
+
+import java.io.StreamCorruptedException;
+
+import java.nio.ByteBuffer;
+
+class MessageSerializer {
+    private final BufferPool bufferPool;
+
+    MessageSerializer(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    Request deserializeRequest(ByteBuffer serializedData) throws StreamCorruptedException {
+        return MessageCodec.decodeRequest(serializedData);
+    }
+
+    /**
+     * Serializes the response in a length-prefixed frame.
+     *
+     * @param response - the response to a request
+     * @return pooled buffer in read mode which the caller has to release
+     */
+    ByteBuffer serializeResponse(Response response) {
+        int size = MessageCodec.encodedSize(response);
+        ByteBuffer buffer = bufferPool.acquire(Integer.BYTES + size);
+        buffer.putInt(size);
+        MessageCodec.encode(response, buffer);
+        return buffer.flip();
+    }
+}
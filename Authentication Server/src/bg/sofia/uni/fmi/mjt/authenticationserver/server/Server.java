@@ -2,91 +2,144 @@ package bg.sofia.uni.fmi.mjt.authenticationserver.server;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.auditlog.AuditLog;
 
-import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Input;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.buffer.BufferPool;
 
-import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Output;
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.Database;
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.MappedUserStore;
 
-import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
 import bg.sofia.uni.fmi.mjt.authenticationserver.troubleshootlog.TroubleshootLog;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ByteArrayInputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.UncheckedIOException;
 
 import java.net.InetSocketAddress;
 
-import java.nio.ByteBuffer;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 
+import java.nio.file.Path;
+
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Server {
-    private static final Integer BUFFER_SIZE = 512;
-    private static final ByteBuffer BUFFER = ByteBuffer.allocateDirect(BUFFER_SIZE);
     private static final String HOST = "localhost";
+    private static final String WRITE_AHEAD_LOG_PATH = "write.ahead.log.txt";
+    private static final String SNAPSHOT_PATH = "database.snapshot";
+    private static final String PASSWORD_KEY_PATH = "database.key";
     private static ServerCommandExecutor serverCommandExecutor;
-    private final Integer port;
+    private final ServerConfiguration configuration;
+    private final List<EventLoop> eventLoops;
+    private final ExecutorService workers;
+    private final Set<SocketChannel> blockingConnections;
+    private final ServerMetrics metrics;
+    private final ScheduledExecutorService snapshots;
+    private volatile ServerSocketChannel serverSocketChannel;
+    private volatile boolean isServerWorking;
 
     public Server(int port) {
-        this.port = port;
+        this(ServerConfiguration.builder(port).build());
+    }
+
+    public Server(ServerConfiguration configuration) {
+        this.configuration = configuration;
+        this.eventLoops = new ArrayList<>();
+        this.workers = createWorkers(configuration);
+        this.blockingConnections = ConcurrentHashMap.newKeySet();
+        this.metrics = new ServerMetrics();
         serverCommandExecutor = new ServerCommandExecutor();
+        openUserStore();
+        restoreDatabase();
+        Database.getInstance().setUniqueEmails(configuration.isUniqueEmails());
+        Database.getInstance().setChangeLogCapacity(configuration.getChangeLogCapacity());
+        this.snapshots = scheduleSnapshots();
     }
 
-    private void serverWorking(Selector selector, boolean isServerWorking) {
-        while (isServerWorking) {
-            try {
-                int readyChannels = selector.select();
-                if (readyChannels == 0) {
-                    continue;
-                }
-                Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
-                while (keyIterator.hasNext()) {
-                    SelectionKey key = keyIterator.next();
-                    if (key.isReadable()) {
-                        try {
-                            handleReadable(key);
-                        } catch (IOException e) {
-                            TroubleshootLog.getInstance()
-                                .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
-                                    Arrays.toString(e.getStackTrace()) + ".");
-                        }
-                    } else if (key.isAcceptable()) {
-                        accept(selector, key);
-                    }
-                    keyIterator.remove();
-                }
-            } catch (IOException e) {
-                System.out.println("Error occurred while processing client request. " +
-                    "Try again later or contact administrator by providing the logs in " +
-                    TroubleshootLog.getLogFilePath());
-                TroubleshootLog.getInstance()
-                    .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
-                        Arrays.toString(e.getStackTrace()) + ".");
-            } catch (ClassNotFoundException e) {
-                System.out.println(
-                    "Error occurred while processing client request - the request is not in the right format." +
-                        "Try again later or contact administrator by providing the logs in " +
-                        TroubleshootLog.getLogFilePath());
-                TroubleshootLog.getInstance()
-                    .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
-                        Arrays.toString(e.getStackTrace()) + ".");
+    private void openUserStore() {
+        if (configuration.getUserStore() == null) {
+            return;
+        }
+        try {
+            Database.getInstance().setUserStore(MappedUserStore.open(configuration.getUserStore()));
+        } catch (IOException e) {
+            TroubleshootLog.getInstance()
+                .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
+                    Arrays.toString(e.getStackTrace()) + ".");
+            throw new UncheckedIOException("Failed to open the user store.", e);
+        }
+    }
+
+    private void restoreDatabase() {
+        if (configuration.getWriteAheadLog() == null) {
+            return;
+        }
+        Database database = Database.getInstance();
+        long start = System.nanoTime();
+        try {
+            if (configuration.getPasswordKey() != null) {
+                database.openPasswordKey(configuration.getPasswordKey());
+            }
+            if (configuration.getSnapshot() != null) {
+                database.loadSnapshot(configuration.getSnapshot());
             }
+            database.openWriteAheadLog(configuration.getWriteAheadLog(), configuration.getDurabilityWindow());
+        } catch (IOException e) {
+            TroubleshootLog.getInstance()
+                .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
+                    Arrays.toString(e.getStackTrace()) + ".");
+            throw new UncheckedIOException("Failed to restore the database.", e);
+        }
+        metrics.databaseRestored(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), database.getUserCount());
+    }
+
+    private ScheduledExecutorService scheduleSnapshots() {
+        if (configuration.getWriteAheadLog() == null || configuration.getSnapshot() == null) {
+            return null;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        long interval = configuration.getSnapshotInterval();
+        executor.scheduleWithFixedDelay(this::takeSnapshot, interval, interval, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    private void takeSnapshot() {
+        long start = System.nanoTime();
+        try {
+            int users = Database.getInstance().takeSnapshot(configuration.getSnapshot());
+            metrics.snapshotTaken(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), users);
+        } catch (IOException e) {
+            TroubleshootLog.getInstance()
+                .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
+                    Arrays.toString(e.getStackTrace()) + ".");
         }
     }
 
     public void startServer() {
         try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
-            Selector selector = Selector.open();
-            configureServerSocketChannel(serverSocketChannel, selector);
-            boolean isServerWorking = true;
-            serverWorking(selector, isServerWorking);
+            this.serverSocketChannel = serverSocketChannel;
+            serverSocketChannel.bind(new InetSocketAddress(HOST, configuration.getPort()));
+            isServerWorking = true;
+            if (configuration.getMode() == ServerMode.MULTI_REACTOR) {
+                startEventLoops(configuration.getEventLoops());
+                acceptConnections(serverSocketChannel);
+            } else if (configuration.getMode() == ServerMode.VIRTUAL_THREADS) {
+                acceptBlockingConnections(serverSocketChannel);
+            } else {
+                EventLoop eventLoop = new EventLoop(configuration, serverCommandExecutor, workers, metrics);
+                eventLoops.add(eventLoop);
+                eventLoop.listen(serverSocketChannel);
+                eventLoop.run();
+            }
         } catch (IOException e) {
             TroubleshootLog.getInstance()
                 .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
@@ -99,82 +152,130 @@ public class Server {
         }
     }
 
-    private void handleReadable(SelectionKey key) throws IOException, ClassNotFoundException {
-        SocketChannel clientChannel = (SocketChannel) key.channel();
-        InetSocketAddress clientAddress = (InetSocketAddress) clientChannel.getRemoteAddress();
-        String clientIpAddress = clientAddress.getAddress().getHostAddress();
-
-        Input clientInput = getClientInput(clientChannel);
-        if (clientInput != null) {
-            Output output = serverCommandExecutor.executeCommand(clientInput, clientIpAddress);
-            sendObject(clientChannel, output);
-        }
+    public ServerMetrics getMetrics() {
+        return metrics;
     }
 
-    private void configureServerSocketChannel(ServerSocketChannel channel, Selector selector) throws IOException {
-        channel.bind(new InetSocketAddress(HOST, port));
-        channel.configureBlocking(false);
-        channel.register(selector, SelectionKey.OP_ACCEPT);
+    private static ExecutorService createWorkers(ServerConfiguration configuration) {
+        if (configuration.getWorkerType() == WorkerType.VIRTUAL_THREADS) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return Executors.newFixedThreadPool(configuration.getWorkerThreads());
     }
 
-    private Input deserializeInput(byte[] serializedData) throws IOException, ClassNotFoundException {
-        try (ByteArrayInputStream byteArray = new ByteArrayInputStream(serializedData);
-             ObjectInputStream objectStream = new ObjectInputStream(byteArray)) {
-
-            return (Input) objectStream.readObject();
+    private void startEventLoops(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            EventLoop eventLoop = new EventLoop(configuration, serverCommandExecutor, workers, metrics);
+            eventLoops.add(eventLoop);
+            new Thread(eventLoop, "event-loop-" + i).start();
         }
     }
 
-    private Input getClientInput(SocketChannel clientChannel) throws IOException, ClassNotFoundException {
-        BUFFER.clear();
-
-        int readBytes = clientChannel.read(BUFFER);
-        if (readBytes < 0) {
-            clientChannel.close();
-            return null;
+    private void acceptConnections(ServerSocketChannel serverSocketChannel) {
+        int nextEventLoop = 0;
+        while (isServerWorking) {
+            try {
+                SocketChannel clientChannel = serverSocketChannel.accept();
+                if (!metrics.tryOpenConnection(configuration.getMaxConnections())) {
+                    closeChannel(clientChannel);
+                    continue;
+                }
+                eventLoops.get(nextEventLoop).register(clientChannel);
+                nextEventLoop = (nextEventLoop + 1) % eventLoops.size();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                TroubleshootLog.getInstance()
+                    .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
+                        Arrays.toString(e.getStackTrace()) + ".");
+            }
         }
-
-        BUFFER.flip();
-
-        int length = BUFFER.getInt();
-        byte[] serializedInput = new byte[length];
-        BUFFER.get(serializedInput);
-
-        return deserializeInput(serializedInput);
     }
 
-    private void sendObject(SocketChannel clientChannel, Output output) throws IOException {
-        try (ByteArrayOutputStream byteArray = new ByteArrayOutputStream();
-             ObjectOutputStream objectStream = new ObjectOutputStream(byteArray)) {
-
-            objectStream.writeObject(output);
-            objectStream.flush();
-
-            byte[] serializedOutput = byteArray.toByteArray();
-
-            ByteBuffer buffer = ByteBuffer.allocate(serializedOutput.length + Integer.BYTES);
-            buffer.putInt(serializedOutput.length);
-            buffer.put(serializedOutput);
-            buffer.flip();
-
-            clientChannel.write(buffer);
+    private void acceptBlockingConnections(ServerSocketChannel serverSocketChannel) {
+        BufferPool bufferPool = BufferPool.getInstance();
+        while (isServerWorking) {
+            try {
+                SocketChannel clientChannel = serverSocketChannel.accept();
+                if (!metrics.tryOpenConnection(configuration.getMaxConnections())) {
+                    closeChannel(clientChannel);
+                    continue;
+                }
+                blockingConnections.add(clientChannel);
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        new BlockingConnection(clientChannel, serverCommandExecutor, bufferPool, metrics,
+                            configuration.getIdleTimeout()).run();
+                    } finally {
+                        blockingConnections.remove(clientChannel);
+                        metrics.connectionClosed();
+                    }
+                });
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                TroubleshootLog.getInstance()
+                    .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
+                        Arrays.toString(e.getStackTrace()) + ".");
+            }
         }
     }
 
-    private void accept(Selector selector, SelectionKey key) throws IOException {
-        ServerSocketChannel sockChannel = (ServerSocketChannel) key.channel();
-        SocketChannel clientChannel = sockChannel.accept();
-
-        clientChannel.configureBlocking(false);
-        clientChannel.register(selector, SelectionKey.OP_READ);
+    private void closeChannel(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            TroubleshootLog.getInstance()
+                .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
+                    Arrays.toString(e.getStackTrace()) + ".");
+        }
     }
 
     public void shutdown() {
+        isServerWorking = false;
+        if (serverSocketChannel != null) {
+            closeChannel(serverSocketChannel);
+        }
+        blockingConnections.forEach(this::closeChannel);
+        eventLoops.forEach(EventLoop::shutdown);
+        workers.shutdown();
         serverCommandExecutor.shutdown();
+        if (snapshots != null) {
+            snapshots.shutdown();
+        }
+        closeDatabase();
+    }
+
+    private void closeDatabase() {
+        try {
+            Database.getInstance().closeWriteAheadLog();
+            Database.getInstance().closePasswordKey();
+            if (configuration.getUserStore() != null) {
+                Database.getInstance().closeUserStore();
+            }
+        } catch (IOException e) {
+            TroubleshootLog.getInstance()
+                .log(TroubleshootLog.getId() + ".Error message: " + e.getMessage() + ", StackTrace: " +
+                    Arrays.toString(e.getStackTrace()) + ".");
+        }
     }
 
     public static void main(String[] args) {
-        Server server = new Server(9999);
+        ServerConfiguration.ServerConfigurationBuilder configuration = ServerConfiguration.builder(9999)
+            .setWriteAheadLog(Path.of(WRITE_AHEAD_LOG_PATH))
+            .setSnapshot(Path.of(SNAPSHOT_PATH))
+            .setPasswordKey(Path.of(PASSWORD_KEY_PATH));
+        if (args.length > 0) {
+            ServerMode mode = ServerMode.getModeByDescription(args[0]);
+            if (mode == null) {
+                System.out.println("Unknown server mode " + args[0] + ". The supported modes are: " +
+                    Arrays.stream(ServerMode.values()).map(ServerMode::getModeDescription).toList() + ".");
+                return;
+            }
+            configuration.setMode(mode);
+        }
+
+        Server server = new Server(configuration.build());
         server.startServer();
     }
-}
\ No newline at end of file
+}
@@ -2,23 +2,19 @@ package bg.sofia.uni.fmi.mjt.authenticationserver.server;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.auditlog.AuditLog;
 
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.BatchInput;
 import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Input;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Request;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.BatchOutput;
 import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Output;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Response;
 
-import bg.sofia.uni.fmi.mjt.authenticationserver.command.AddAdminUser;
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.BasicCommand;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandDispatcher;
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandBehavior;
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandStatus;
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandType;
-import bg.sofia.uni.fmi.mjt.authenticationserver.command.DeleteUser;
-import bg.sofia.uni.fmi.mjt.authenticationserver.command.DownloadDatabase;
-import bg.sofia.uni.fmi.mjt.authenticationserver.command.LoginBySessionId;
-import bg.sofia.uni.fmi.mjt.authenticationserver.command.LoginByUsername;
-import bg.sofia.uni.fmi.mjt.authenticationserver.command.Logout;
-import bg.sofia.uni.fmi.mjt.authenticationserver.command.Register;
-import bg.sofia.uni.fmi.mjt.authenticationserver.command.RemoveAdminUser;
-import bg.sofia.uni.fmi.mjt.authenticationserver.command.ResetPassword;
-import bg.sofia.uni.fmi.mjt.authenticationserver.command.UpdateUser;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.RequestContext;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.database.Database;
 
@@ -32,7 +28,9 @@ import bg.sofia.uni.fmi.mjt.authenticationserver.troubleshootlog.TroubleshootLog
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthentication;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import java.util.concurrent.Executors;
@@ -50,134 +48,106 @@ public class ServerCommandExecutor {
         this.executor.scheduleAtFixedRate(this::unauthenticateUsers, 0, 1, TimeUnit.MINUTES);
     }
 
-    private BasicCommand createCommand(String message, CommandBehavior behavior) throws InvalidCommand {
-        switch (behavior) {
-            case REGISTER -> {
-                return new Register(message);
-            }
-            case LOGIN_BY_USERNAME -> {
-                return new LoginByUsername(message);
-            }
-            case LOGIN_BY_SESSION_ID -> {
-                return new LoginBySessionId(message);
-            }
-            case UPDATE_USER -> {
-                return UpdateUser.builder(message).build();
-            }
-            case RESET_PASSWORD -> {
-                return new ResetPassword(message);
-            }
-            case LOGOUT -> {
-                return new Logout(message);
-            }
-            case ADD_ADMIN_USER -> {
-                return new AddAdminUser(message);
-            }
-            case REMOVE_ADMIN_USER -> {
-                return new RemoveAdminUser(message);
-            }
-            case DELETE_USER -> {
-                return new DeleteUser(message);
-            }
-            case DOWNLOAD_DATABASE -> {
-                return new DownloadDatabase(message);
-            }
-            default -> throw new InvalidCommand("Invalid login command.");
-        }
-    }
-
-    private BasicCommand parserCommand(String message) throws InvalidCommand {
-        String blankSpace = " ";
-        String login = "login";
-        final String sessionId = "--session-id";
-        final String userName = "--username";
-        String[] words = message.split(blankSpace);
-        final int commandIndicatorPosition = 0;
-        final int minCountWords = 3;
-        String command = words[commandIndicatorPosition];
-        if (words.length < minCountWords) {
-            throw new InvalidCommand("Invalid command.");
-        }
-        if (command.equals(login)) {
-            final int loginCommandIndicatorPosition = 1;
-            switch (words[loginCommandIndicatorPosition]) {
-                case userName -> command += blankSpace + userName;
-                case sessionId -> command += blankSpace + sessionId;
-                default -> throw new InvalidCommand("Invalid login command.");
-            }
-        }
-
-        CommandBehavior behavior = CommandBehavior.getCommandByDescription(command);
-        if (behavior == null) {
-            throw new InvalidCommand("Invalid command format.");
-        }
-        return createCommand(message, behavior);
-    }
-
-    private void handleCommand(BasicCommand command, String ipAddress) {
+    private void handleCommand(BasicCommand command, String ipAddress, List<Event> events) {
+        RequestContext context = command.createContext(ipAddress, database, sessionManager);
         if (isLoginCommand(command)) {
-            setLoginCommandLogs(command, ipAddress);
+            setLoginCommandLogs(command, context, events);
         } else if (isEventlessCommand(command)) {
-            command.execute(database, sessionManager);
+            command.execute(context);
         } else {
-            setActionCommandsLogs(command, ipAddress);
+            setActionCommandsLogs(command, context, events);
         }
     }
 
-    private Output createOutput(BasicCommand command) {
+    private Output createOutput(long requestId, BasicCommand command) {
         if (command.getLoggedOut().isPresent()) {
-            return new Output(command.getStatusMessage(), command.getCommandStatus(),
+            return new Output(requestId, command.getStatusMessage(), command.getCommandStatus(),
                 command.getCommandBehavior(), true);
         } else {
-            return new Output(command.getStatusMessage(), command.getCommandStatus(),
+            return new Output(requestId, command.getStatusMessage(), command.getCommandStatus(),
                 command.getCommandBehavior(), false);
         }
     }
 
+    public Response executeRequest(Request request, String ipAddress) {
+        return switch (request) {
+            case Input input -> executeCommand(input, ipAddress);
+            case BatchInput batchInput -> executeBatch(batchInput, ipAddress);
+        };
+    }
+
     public Output executeCommand(Input input, String ipAddress) {
+        List<Event> events = new ArrayList<>();
+        Output output = executeCommand(input, ipAddress, events);
+        auditLog.logAll(events);
+        return output;
+    }
+
+    /**
+     * Executes the commands of the batch one after another. The commands of other requests may run meanwhile,
+     * as every change of the users and the sessions is atomic on its own. The audit events of all commands are
+     * written together once the batch is complete.
+     *
+     * @param batchInput - the commands to execute
+     * @param ipAddress  - the ip address of the client
+     * @return the outputs of the commands in the order of the commands
+     */
+    public BatchOutput executeBatch(BatchInput batchInput, String ipAddress) {
+        List<Event> events = new ArrayList<>();
+        List<Output> outputs = new ArrayList<>(batchInput.inputs().size());
+        for (Input input : batchInput.inputs()) {
+            outputs.add(executeCommand(input, ipAddress, events));
+        }
+        auditLog.logAll(events);
+        return new BatchOutput(batchInput.requestId(), outputs);
+    }
+
+    private Output executeCommand(Input input, String ipAddress, List<Event> events) {
         try {
             CommandType commandType = input.commandType();
-            BasicCommand command = parserCommand(input.message());
+            BasicCommand command = input.isStructured() ?
+                CommandDispatcher.createCommand(input.commandBehavior(), input.fields()) :
+                CommandDispatcher.createCommand(input.message());
             if (!isUnSecureCommand(command, commandType) && !isSecureCommand(command, commandType)) {
                 TroubleshootLog.getInstance()
                     .log(TroubleshootLog.getId() +
                         ".Error message: The user tried to execute unsupported command. Ip address: " + ipAddress +
                         ".");
-                return new Output("Invalid command. Please enter new command.", CommandStatus.UNSUCCESSFUL,
-                    CommandBehavior.INVALID_COMMAND, false);
+                return new Output(input.requestId(), "Invalid command. Please enter new command.",
+                    CommandStatus.UNSUCCESSFUL, CommandBehavior.INVALID_COMMAND, false);
             }
-            handleCommand(command, ipAddress);
-            return createOutput(command);
+            handleCommand(command, ipAddress, events);
+            return createOutput(input.requestId(), command);
         } catch (InvalidCommand invalidCommand) {
             TroubleshootLog.getInstance()
                 .log(TroubleshootLog.getId() + ".Error message: " + invalidCommand.getMessage() + "Ip address: " +
                     ipAddress + "." + System.lineSeparator() + "StackTrace: " +
                     Arrays.toString(invalidCommand.getStackTrace()) + ".");
-            return new Output("Invalid command. Please enter new command.", CommandStatus.UNSUCCESSFUL,
-                CommandBehavior.INVALID_COMMAND, false);
+            return new Output(input.requestId(), "Invalid command. Please enter new command.",
+                CommandStatus.UNSUCCESSFUL, CommandBehavior.INVALID_COMMAND, false);
         }
     }
 
-    private void setActionCommandsLogs(BasicCommand command, String ipAddress) {
-        Optional<Event> startEvent = command.createStartEvent(ipAddress, database, sessionManager);
+    private void setActionCommandsLogs(BasicCommand command, RequestContext context, List<Event> events) {
+        Optional<Event> startEvent = command.createStartEvent(context);
         if (startEvent.isPresent()) {
-            auditLog.log(startEvent);
-            command.execute(database, sessionManager);
-            Optional<Event> endEvent = command.createEndEvent(ipAddress, database, sessionManager);
-            auditLog.log(endEvent);
+            events.add(startEvent.get());
+            command.execute(context);
+            Optional<Event> endEvent = command.createEndEvent(context);
+            endEvent.ifPresent(events::add);
         }
     }
 
-    private void setLoginCommandLogs(BasicCommand command, String ipAddress) {
-        command.execute(database, sessionManager);
-        Optional<Event> failedLogin = command.createFailedLoginEvent(ipAddress, database, sessionManager);
-        if (failedLogin.isPresent()) {
-            auditLog.log(failedLogin);
-        }
+    private void setLoginCommandLogs(BasicCommand command, RequestContext context, List<Event> events) {
+        command.execute(context);
+        Optional<Event> failedLogin = command.createFailedLoginEvent(context);
+        failedLogin.ifPresent(events::add);
     }
 
     private boolean isEventlessCommand(BasicCommand command) {
         return command.getCommandBehavior().equals(CommandBehavior.DOWNLOAD_DATABASE) ||
+            command.getCommandBehavior().equals(CommandBehavior.LIST_USERS) ||
+            command.getCommandBehavior().equals(CommandBehavior.FIND_USER) ||
             command.getCommandBehavior().equals(CommandBehavior.LOGOUT);
     }
 
@@ -195,10 +165,9 @@ public class ServerCommandExecutor {
         return command.getCommandType().equals(CommandType.UNSECURE) && commandType.equals(CommandType.UNSECURE);
     }
 
-    private synchronized void unauthenticateUsers() {
+    private void unauthenticateUsers() {
         sessionManager.getUsersWithExpiredSessions()
-            .forEach(
-                element -> database.getUsers().get(element).setAuthentication(UserAuthentication.UNAUTHENTICATED));
+            .forEach(element -> database.setAuthentication(element, UserAuthentication.UNAUTHENTICATED));
     }
 
     public void shutdown() {
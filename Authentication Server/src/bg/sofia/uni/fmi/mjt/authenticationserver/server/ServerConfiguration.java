@@ -0,0 +1,305 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+import java.nio.file.Path;
+
+public class ServerConfiguration {
+    private static final int DEFAULT_WRITE_HIGH_WATER_MARK = 1024 * 1024;
+    private static final long DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+    private static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+    private static final int DEFAULT_MAX_PENDING_REQUESTS = 1024;
+    private static final long DEFAULT_DURABILITY_WINDOW = 2;
+    private static final long DEFAULT_SNAPSHOT_INTERVAL = 10 * 60 * 1000;
+    private static final int DEFAULT_CHANGE_LOG_CAPACITY = 100_000;
+    private final int port;
+    private final ServerMode mode;
+    private final int eventLoops;
+    private final WorkerType workerType;
+    private final int workerThreads;
+    private final int writeHighWaterMark;
+    private final long idleTimeout;
+    private final int maxConnections;
+    private final int maxPendingRequests;
+    private final boolean uniqueEmails;
+    private final Path writeAheadLog;
+    private final long durabilityWindow;
+    private final Path snapshot;
+    private final Path passwordKey;
+    private final long snapshotInterval;
+    private final Path userStore;
+    private final int changeLogCapacity;
+
+    private ServerConfiguration(ServerConfigurationBuilder builder) {
+        this.port = builder.port;
+        this.mode = builder.mode;
+        this.eventLoops = builder.eventLoops;
+        this.workerType = builder.workerType;
+        this.workerThreads = builder.workerThreads;
+        this.writeHighWaterMark = builder.writeHighWaterMark;
+        this.idleTimeout = builder.idleTimeout;
+        this.maxConnections = builder.maxConnections;
+        this.maxPendingRequests = builder.maxPendingRequests;
+        this.uniqueEmails = builder.uniqueEmails;
+        this.writeAheadLog = builder.writeAheadLog;
+        this.durabilityWindow = builder.durabilityWindow;
+        this.snapshot = builder.snapshot;
+        this.passwordKey = builder.passwordKey;
+        this.snapshotInterval = builder.snapshotInterval;
+        this.userStore = builder.userStore;
+        this.changeLogCapacity = builder.changeLogCapacity;
+    }
+
+    public static ServerConfigurationBuilder builder(int port) {
+        return new ServerConfigurationBuilder(port);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public ServerMode getMode() {
+        return mode;
+    }
+
+    public int getEventLoops() {
+        return eventLoops;
+    }
+
+    public WorkerType getWorkerType() {
+        return workerType;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public int getWriteHighWaterMark() {
+        return writeHighWaterMark;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    public boolean isUniqueEmails() {
+        return uniqueEmails;
+    }
+
+    public Path getWriteAheadLog() {
+        return writeAheadLog;
+    }
+
+    public long getDurabilityWindow() {
+        return durabilityWindow;
+    }
+
+    public Path getSnapshot() {
+        return snapshot;
+    }
+
+    public Path getPasswordKey() {
+        return passwordKey;
+    }
+
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public Path getUserStore() {
+        return userStore;
+    }
+
+    public int getChangeLogCapacity() {
+        return changeLogCapacity;
+    }
+
+    public static class ServerConfigurationBuilder {
+        private final int port;
+        private ServerMode mode;
+        private int eventLoops;
+        private WorkerType workerType;
+        private int workerThreads;
+        private int writeHighWaterMark;
+        private long idleTimeout;
+        private int maxConnections;
+        private int maxPendingRequests;
+        private boolean uniqueEmails;
+        private Path writeAheadLog;
+        private long durabilityWindow;
+        private Path snapshot;
+        private Path passwordKey;
+        private long snapshotInterval;
+        private Path userStore;
+        private int changeLogCapacity;
+
+        private ServerConfigurationBuilder(int port) {
+            this.port = port;
+            this.mode = ServerMode.SINGLE_SELECTOR;
+            this.eventLoops = Runtime.getRuntime().availableProcessors();
+            this.workerType = WorkerType.PLATFORM_THREADS;
+            this.workerThreads = Runtime.getRuntime().availableProcessors();
+            this.writeHighWaterMark = DEFAULT_WRITE_HIGH_WATER_MARK;
+            this.idleTimeout = DEFAULT_IDLE_TIMEOUT;
+            this.maxConnections = DEFAULT_MAX_CONNECTIONS;
+            this.maxPendingRequests = DEFAULT_MAX_PENDING_REQUESTS;
+            this.durabilityWindow = DEFAULT_DURABILITY_WINDOW;
+            this.snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+            this.changeLogCapacity = DEFAULT_CHANGE_LOG_CAPACITY;
+        }
+
+        public ServerConfigurationBuilder setMode(ServerMode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public ServerConfigurationBuilder setEventLoops(int eventLoops) {
+            if (eventLoops < 1) {
+                throw new IllegalArgumentException("The count of the event loops must be positive.");
+            }
+            this.eventLoops = eventLoops;
+            return this;
+        }
+
+        public ServerConfigurationBuilder setWorkerType(WorkerType workerType) {
+            this.workerType = workerType;
+            return this;
+        }
+
+        public ServerConfigurationBuilder setWorkerThreads(int workerThreads) {
+            if (workerThreads < 1) {
+                throw new IllegalArgumentException("The count of the worker threads must be positive.");
+            }
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        public ServerConfigurationBuilder setWriteHighWaterMark(int writeHighWaterMark) {
+            if (writeHighWaterMark < 1) {
+                throw new IllegalArgumentException("The write high-water mark must be positive.");
+            }
+            this.writeHighWaterMark = writeHighWaterMark;
+            return this;
+        }
+
+        /**
+         * @param idleTimeout - time in milliseconds after which a connection without any traffic is closed
+         */
+        public ServerConfigurationBuilder setIdleTimeout(long idleTimeout) {
+            if (idleTimeout < 1) {
+                throw new IllegalArgumentException("The idle timeout must be positive.");
+            }
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        public ServerConfigurationBuilder setMaxConnections(int maxConnections) {
+            if (maxConnections < 1) {
+                throw new IllegalArgumentException("The maximum count of the connections must be positive.");
+            }
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * @param maxPendingRequests - count of the requests of a connection executed or waiting to be executed
+         *                           at once, after which the server stops reading from the connection
+         */
+        public ServerConfigurationBuilder setMaxPendingRequests(int maxPendingRequests) {
+            if (maxPendingRequests < 1) {
+                throw new IllegalArgumentException("The maximum count of the pending requests must be positive.");
+            }
+            this.maxPendingRequests = maxPendingRequests;
+            return this;
+        }
+
+        /**
+         * @param uniqueEmails - whether a user can register or change to an email another user already has
+         */
+        public ServerConfigurationBuilder setUniqueEmails(boolean uniqueEmails) {
+            this.uniqueEmails = uniqueEmails;
+            return this;
+        }
+
+        /**
+         * @param writeAheadLog - the file the users are restored from and their changes are logged to, or null to
+         *                      keep the users only in memory
+         */
+        public ServerConfigurationBuilder setWriteAheadLog(Path writeAheadLog) {
+            this.writeAheadLog = writeAheadLog;
+            return this;
+        }
+
+        /**
+         * @param durabilityWindow - time in milliseconds to collect the changes of the users before they are forced
+         *                         to the disk together, 0 to force them as soon as the previous force ends
+         */
+        public ServerConfigurationBuilder setDurabilityWindow(long durabilityWindow) {
+            if (durabilityWindow < 0) {
+                throw new IllegalArgumentException("The durability window must not be negative.");
+            }
+            this.durabilityWindow = durabilityWindow;
+            return this;
+        }
+
+        /**
+         * @param snapshot - the file the users are periodically written to, so the write-ahead log can be truncated,
+         *                 or null to keep the whole log
+         */
+        public ServerConfigurationBuilder setSnapshot(Path snapshot) {
+            this.snapshot = snapshot;
+            return this;
+        }
+
+        /**
+         * @param passwordKey - the file of the key, which encrypts the passwords in the write-ahead log and the
+         *                    snapshots, created if it does not exist, or null to write the passwords unencrypted
+         */
+        public ServerConfigurationBuilder setPasswordKey(Path passwordKey) {
+            this.passwordKey = passwordKey;
+            return this;
+        }
+
+        /**
+         * @param snapshotInterval - time in milliseconds between two snapshots of the users
+         */
+        public ServerConfigurationBuilder setSnapshotInterval(long snapshotInterval) {
+            if (snapshotInterval < 1) {
+                throw new IllegalArgumentException("The snapshot interval must be positive.");
+            }
+            this.snapshotInterval = snapshotInterval;
+            return this;
+        }
+
+        /**
+         * @param userStore - the file the users are kept in off the heap, or null to keep the users on the heap. The
+         *                  indexes of the users stay on the heap either way.
+         */
+        public ServerConfigurationBuilder setUserStore(Path userStore) {
+            this.userStore = userStore;
+            return this;
+        }
+
+        /**
+         * @param changeLogCapacity - the count of the latest changes, which can be downloaded without the whole
+         *                          database
+         */
+        public ServerConfigurationBuilder setChangeLogCapacity(int changeLogCapacity) {
+            if (changeLogCapacity < 1) {
+                throw new IllegalArgumentException("The capacity of the change log must be positive.");
+            }
+            this.changeLogCapacity = changeLogCapacity;
+            return this;
+        }
+
+        public ServerConfiguration build() {
+            return new ServerConfiguration(this);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection counters shared by the accepting thread and all event loops of a server, and the timings of the
+ * snapshots and the restore of the database.
+ */
+public class ServerMetrics {
+    private final AtomicInteger openConnections;
+    private final LongAdder reapedConnections;
+    private final LongAdder rejectedConnections;
+    private final LongAdder snapshots;
+    private volatile long lastSnapshotMillis;
+    private volatile int lastSnapshotUsers;
+    private volatile long restoreMillis;
+    private volatile int restoredUsers;
+
+    ServerMetrics() {
+        this.openConnections = new AtomicInteger();
+        this.reapedConnections = new LongAdder();
+        this.rejectedConnections = new LongAdder();
+        this.snapshots = new LongAdder();
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public long getReapedConnections() {
+        return reapedConnections.sum();
+    }
+
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    public long getSnapshots() {
+        return snapshots.sum();
+    }
+
+    public long getLastSnapshotMillis() {
+        return lastSnapshotMillis;
+    }
+
+    public int getLastSnapshotUsers() {
+        return lastSnapshotUsers;
+    }
+
+    public long getRestoreMillis() {
+        return restoreMillis;
+    }
+
+    public int getRestoredUsers() {
+        return restoredUsers;
+    }
+
+    /**
+     * Takes a connection slot for a newly accepted connection.
+     *
+     * @param maxConnections - limit of the simultaneously open connections
+     * @return true if the connection can be served, false if it has to be rejected
+     */
+    boolean tryOpenConnection(int maxConnections) {
+        int current;
+        do {
+            current = openConnections.get();
+            if (current >= maxConnections) {
+                rejectedConnections.increment();
+                return false;
+            }
+        } while (!openConnections.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    void connectionReaped() {
+        reapedConnections.increment();
+    }
+
+    void snapshotTaken(long millis, int users) {
+        lastSnapshotMillis = millis;
+        lastSnapshotUsers = users;
+        snapshots.increment();
+    }
+
+    void databaseRestored(long millis, int users) {
+        restoreMillis = millis;
+        restoredUsers = users;
+    }
+}
@@ -0,0 +1,26 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+public enum ServerMode {
+    SINGLE_SELECTOR("single-selector"),
+    MULTI_REACTOR("multi-reactor"),
+    VIRTUAL_THREADS("virtual-threads");
+
+    private final String modeDescription;
+
+    ServerMode(String modeDescription) {
+        this.modeDescription = modeDescription;
+    }
+
+    public String getModeDescription() {
+        return modeDescription;
+    }
+
+    public static ServerMode getModeByDescription(String modeDescription) {
+        for (ServerMode mode : ServerMode.values()) {
+            if (mode.getModeDescription().equalsIgnoreCase(modeDescription)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,162 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+/**
+ * Hashed timer wheel. The timeouts are kept in a ring of buckets, one bucket per tick, and every bucket is
+ * a doubly linked list, so scheduling and cancelling a timeout take constant time. Timeouts further away
+ * than a full turn of the wheel wait in their bucket for the remaining rounds.
+ * The wheel is not thread-safe - it is meant to be owned and advanced by a single thread.
+ */
+class TimerWheel {
+    private final long tickMillis;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long startMillis;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis  - duration of a single tick, which is also the precision of the timeouts
+     * @param wheelSize   - count of the buckets, rounded up to a power of two
+     * @param startMillis - current time in milliseconds
+     */
+    TimerWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("The tick of the timer wheel must be positive.");
+        }
+        if (wheelSize < 1) {
+            throw new IllegalArgumentException("The size of the timer wheel must be positive.");
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new Timeout[roundUpToPowerOfTwo(wheelSize)];
+        this.mask = buckets.length - 1;
+        this.startMillis = startMillis;
+    }
+
+    private static int roundUpToPowerOfTwo(int value) {
+        int powerOfTwo = Integer.highestOneBit(value);
+        return powerOfTwo < value ? powerOfTwo << 1 : powerOfTwo;
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Schedules a task to run once the delay has passed. The task runs on the thread advancing the wheel,
+     * within a tick of the deadline.
+     *
+     * @param task        - task to run
+     * @param delayMillis - delay from the last time the wheel was advanced to
+     * @return the timeout, which can be cancelled until the task has run
+     */
+    Timeout schedule(Runnable task, long delayMillis) {
+        long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        Timeout timeout = new Timeout(this, task, (ticks - 1) / buckets.length);
+        timeout.bucket = (int) ((currentTick + ticks) & mask);
+        link(timeout);
+        return timeout;
+    }
+
+    /**
+     * Runs the tasks of all timeouts which have expired until the given time.
+     *
+     * @param nowMillis - current time in milliseconds
+     */
+    void advance(long nowMillis) {
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            expireBucket((int) (currentTick & mask));
+        }
+    }
+
+    private void expireBucket(int bucket) {
+        Timeout expired = null;
+        Timeout timeout = buckets[bucket];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else {
+                unlink(timeout);
+                timeout.expiring = true;
+                timeout.next = expired;
+                expired = timeout;
+            }
+            timeout = next;
+        }
+
+        // An expired timeout can still be cancelled by the task of another timeout, until its own task runs.
+        while (expired != null) {
+            Timeout next = expired.next;
+            expired.next = null;
+            if (expired.wheel != null) {
+                expired.wheel = null;
+                expired.task.run();
+            }
+            expired = next;
+        }
+    }
+
+    private void link(Timeout timeout) {
+        Timeout head = buckets[timeout.bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+        size++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        size--;
+    }
+
+    static class Timeout {
+        private TimerWheel wheel;
+        private final Runnable task;
+        private long remainingRounds;
+        private int bucket;
+        private boolean expiring;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(TimerWheel wheel, Runnable task, long remainingRounds) {
+            this.wheel = wheel;
+            this.task = task;
+            this.remainingRounds = remainingRounds;
+        }
+
+        boolean isPending() {
+            return wheel != null;
+        }
+
+        void cancel() {
+            if (wheel == null) {
+                return;
+            }
+            if (!expiring) {
+                wheel.unlink(this);
+            }
+            wheel = null;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+public enum WorkerType {
+    PLATFORM_THREADS,
+    VIRTUAL_THREADS
+}
@@ -1,10 +1,10 @@
 package bg.sofia.uni.fmi.mjt.authenticationserver.session;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -19,33 +19,32 @@ public class SessionManager {
     private final ScheduledExecutorService executor;
 
     private SessionManager() {
-        this.sessions = new HashMap<>();
-        this.lastSessionOfUser = new HashMap<>();
+        this.sessions = new ConcurrentHashMap<>();
+        this.lastSessionOfUser = new ConcurrentHashMap<>();
         this.executor = Executors.newScheduledThreadPool(10);
         this.executor.scheduleAtFixedRate(this::removeExpiredSessions, 0, 1, TimeUnit.MINUTES);
     }
 
     public String createSession(String username) {
         String sessionId = UUID.randomUUID().toString();
-        String lastSession = lastSessionOfUser.get(username);
-        if (isSessionValid(lastSession)) {
-            sessions.remove(lastSession);
-        }
         sessions.put(sessionId, new Session(username, sessionId, System.currentTimeMillis() + TTL));
-        lastSessionOfUser.put(username, sessionId);
+        String lastSession = lastSessionOfUser.put(username, sessionId);
+        removeUserSession(lastSession);
         return sessionId;
     }
 
     public boolean isSessionValid(String sessionId) {
-        return sessions.get(sessionId) != null && sessions.get(sessionId).ttl() >= System.currentTimeMillis();
+        Session session = getSessionBySessionId(sessionId);
+        return session != null && session.ttl() >= System.currentTimeMillis();
     }
 
     public Session getSessionBySessionId(String sessionId) {
-        return sessions.get(sessionId);
+        return sessionId == null ? null : sessions.get(sessionId);
     }
 
     public String getUsernameBySessionId(String sessionId) {
-        return sessions.get(sessionId).username();
+        Session session = getSessionBySessionId(sessionId);
+        return session == null ? null : session.username();
     }
 
     public void removeAllUserSession(String username) {
@@ -54,20 +53,22 @@ public class SessionManager {
     }
 
     public void removeUserSession(String sessionId) {
-        sessions.remove(sessionId);
+        if (sessionId != null) {
+            sessions.remove(sessionId);
+        }
     }
 
     public void replaceSession(Session session) {
         sessions.put(session.sessionId(), session);
     }
 
-    public synchronized void removeExpiredSessions() {
+    public void removeExpiredSessions() {
         long currentTime = System.currentTimeMillis();
         sessions.entrySet().removeIf(entry -> entry.getValue().ttl() <= currentTime);
     }
 
     public boolean checkLastSessionBySessionId(String sessionId) {
-        return lastSessionOfUser.containsValue(sessionId);
+        return sessionId != null && lastSessionOfUser.containsValue(sessionId);
     }
 
     public static SessionManager getInstance() {
@@ -26,7 +26,7 @@ public class TroubleshootLog {
         }
     }
 
-    public void log(String message) {
+    public synchronized void log(String message) {
         writer.println(message);
         writer.flush();
         id++;
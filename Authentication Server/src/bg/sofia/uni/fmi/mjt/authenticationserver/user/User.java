@@ -30,6 +30,12 @@ public class User {
         this.authorization = UserAuthorization.USER;
     }
 
+    public User(User user) {
+        this(user.username, user.password, user.firstName, user.lastName, user.email);
+        this.authentication = user.authentication;
+        this.authorization = user.authorization;
+    }
+
     public String getUsername() {
         return this.username;
     }
@@ -50,6 +56,10 @@ public class User {
         return this.email;
     }
 
+    public UserAuthentication getAuthentication() {
+        return this.authentication;
+    }
+
     public UserAuthorization getAuthorization() {
         return this.authorization;
     }
@@ -73,6 +73,18 @@ public class AddAdminUserTest {
         assertTrue(addAdminUser.getStatusMessage().endsWith("is logged out."));
     }
 
+    @Test
+    public void testExecuteAddAdminUserRemovedCaller() {
+        when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+        when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(null);
+        when(sessionManager.checkLastSessionBySessionId(anyString())).thenReturn(false);
+
+        addAdminUser.execute(database, sessionManager);
+
+        assertEquals(CommandStatus.UNSUCCESSFUL, addAdminUser.getCommandStatus());
+        assertTrue(addAdminUser.getStatusMessage().endsWith("doesn't exist."));
+    }
+
     @Test
     public void testExecuteAddAdminUserInvalidSessionId() {
         when(sessionManager.isSessionValid(anyString())).thenReturn(false);
@@ -127,6 +139,7 @@ public class AddAdminUserTest {
         when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
         when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN).thenReturn(UserAuthorization.USER);
         when(database.getUserByUsername(anyString())).thenReturn(user);
+        when(database.setAuthorization(anyString(), eq(UserAuthorization.ADMIN))).thenReturn(true);
 
         addAdminUser.execute(database, sessionManager);
 
@@ -232,6 +245,7 @@ public class AddAdminUserTest {
         when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
         when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN).thenReturn(UserAuthorization.USER);
         when(database.getUserByUsername(anyString())).thenReturn(user);
+        when(database.setAuthorization(anyString(), eq(UserAuthorization.ADMIN))).thenReturn(true);
 
         addAdminUser.execute(database, sessionManager);
 
@@ -0,0 +1,86 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CommandTokensTest {
+    @Test
+    public void testOfSplitsCommandIntoParameters() throws InvalidCommand {
+        CommandTokens command = CommandTokens.of("add-admin-user --session-id <sessionId> --username <username>");
+
+        assertEquals("add-admin-user", command.getCommandWord());
+        assertEquals(2, command.getParameterCount());
+        assertTrue(command.isFlag(0, "--session-id"));
+        assertFalse(command.isFlag(0, "--session"), "A prefix of the flag was matched.");
+        assertEquals("<sessionId>", command.getValue(0));
+        assertEquals("--username", command.getFlag(1));
+        assertEquals("<username>", command.getValue(1));
+        assertEquals("<username>", command.get(CommandField.USERNAME));
+        assertTrue(command.hasFields(CommandField.SESSION_ID, CommandField.USERNAME));
+        assertFalse(command.hasFields(CommandField.USERNAME, CommandField.SESSION_ID),
+            "The order of the flags was ignored.");
+    }
+
+    @Test
+    public void testOfMatchesSplitWords() throws InvalidCommand {
+        String[] commands = {"", " ", "logout", "logout ", "logout  --session-id x", " logout --session-id x  "};
+        for (String text : commands) {
+            CommandTokens command = CommandTokens.of(text);
+            String[] words = text.split(" ");
+
+            assertEquals(words.length, command.getTokenCount(), "Different words for: '" + text + "'.");
+            if (words.length > 0) {
+                assertEquals(words[0], command.getCommandWord());
+            }
+            for (int i = 0; 2 * i + 2 < words.length; i++) {
+                assertEquals(words[2 * i + 1], command.getFlag(i));
+                assertEquals(words[2 * i + 2], command.getValue(i));
+            }
+        }
+    }
+
+    @Test
+    public void testFlagWithoutValue() throws InvalidCommand {
+        CommandTokens command = CommandTokens.of("logout --session-id");
+
+        assertEquals(1, command.getParameterCount());
+        assertFalse(command.hasValue(0));
+        assertFalse(command.hasFields(CommandField.SESSION_ID), "A flag without a value was accepted.");
+        assertFalse(command.isFlag(1, "--session-id"));
+    }
+
+    @Test
+    public void testOfNull() {
+        assertThrows(InvalidCommand.class, () -> CommandTokens.of(null),
+            "It is not thrown exception when the command is null.");
+    }
+
+    @Test
+    public void testDispatcherResolvesCommandsByWordAndFlag() throws InvalidCommand {
+        assertInstanceOf(LoginByUsername.class,
+            CommandDispatcher.createCommand("login --username <username> --password <password>"));
+        assertInstanceOf(LoginBySessionId.class, CommandDispatcher.createCommand("login --session-id <sessionId>"));
+        assertInstanceOf(UpdateUser.class,
+            CommandDispatcher.createCommand("update-user --session-id <sessionId> --new-email <email>"));
+        assertEquals(CommandBehavior.REGISTER, CommandDispatcher.getCommandBehavior(CommandTokens.of("Register")));
+    }
+
+    @Test
+    public void testDispatcherInvalidCommands() {
+        assertThrows(InvalidCommand.class, () -> CommandDispatcher.createCommand("login --email <email>"),
+            "It is not thrown exception for an unknown login flag.");
+        assertThrows(InvalidCommand.class, () -> CommandDispatcher.createCommand("unknown --session-id <sessionId>"),
+            "It is not thrown exception for an unknown command.");
+        assertThrows(InvalidCommand.class, () -> CommandDispatcher.createCommand("logout"),
+            "It is not thrown exception for a command without parameters.");
+        assertThrows(InvalidCommand.class, () -> CommandDispatcher.createCommand("   "),
+            "It is not thrown exception for a blank command.");
+    }
+}
@@ -22,7 +22,6 @@ import org.mockito.Mock;
 
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -45,8 +44,6 @@ public class DeleteUserTest {
     private SessionManager sessionManager;
     @Mock
     private User user;
-    @Mock
-    private Map<String, User> admins;
 
     @BeforeAll
     public static void setCorrectDeleteUserCommand() throws InvalidCommand {
@@ -118,8 +115,7 @@ public class DeleteUserTest {
         when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN);
         when(database.getUserByUsername(anyString())).thenReturn(user);
         when(user.getUsername()).thenReturn("<username>");
-        when(database.getAdmins()).thenReturn(admins);
-        when(admins.size()).thenReturn(1);
+        when(database.getAdminCount()).thenReturn(1);
 
         deleteUser.execute(database, sessionManager);
 
@@ -127,6 +123,22 @@ public class DeleteUserTest {
         assertTrue(deleteUser.getStatusMessage().endsWith("is the only left admin."));
     }
 
+    @Test
+    public void testExecuteDeleteUserNotSaved() {
+        when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+        when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
+        when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN);
+        when(database.getUserByUsername(anyString())).thenReturn(user);
+        when(user.getUsername()).thenReturn("usernameAdmin");
+        when(database.removeUser(anyString())).thenReturn(false);
+        when(database.isWriteAheadLogFailed()).thenReturn(true);
+
+        deleteUser.execute(database, sessionManager);
+
+        assertEquals(CommandStatus.UNSUCCESSFUL, deleteUser.getCommandStatus());
+        assertTrue(deleteUser.getStatusMessage().endsWith("The changes cannot be saved, try again later."));
+    }
+
     @Test
     public void testExecuteDeleteUser() {
         when(sessionManager.isSessionValid(anyString())).thenReturn(true);
@@ -134,6 +146,7 @@ public class DeleteUserTest {
         when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN);
         when(database.getUserByUsername(anyString())).thenReturn(user);
         when(user.getUsername()).thenReturn("usernameAdmin");
+        when(database.removeUser(anyString())).thenReturn(true);
 
         deleteUser.execute(database, sessionManager);
 
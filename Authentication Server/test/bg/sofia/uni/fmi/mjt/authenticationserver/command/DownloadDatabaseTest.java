@@ -7,6 +7,8 @@ import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
 
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,6 +29,7 @@ import static org.mockito.Mockito.when;
 public class DownloadDatabaseTest {
     private static final String correctCommand = "download-database --session-id <sessionId>";
     private static final String incorrectCommand = "download-database --Session-id <sessionId>";
+    private static final String username = "download";
     private static DownloadDatabase downloadDatabase;
     @Mock
     private Database database;
@@ -74,12 +77,56 @@ public class DownloadDatabaseTest {
 
     @Test
     public void testExecuteDownloadDatabase() {
-        when(sessionManager.isSessionValid(anyString())).thenReturn(true);
-
-        downloadDatabase.execute(database, sessionManager);
+        executeForStoredUser(downloadDatabase);
 
         assertEquals(CommandStatus.SUCCESSFUL, downloadDatabase.getCommandStatus());
-        assertEquals("The download of the database is successful in the file: " + DatabaseFile.getLogFilePath() + ".",
-            downloadDatabase.getStatusMessage());
+        assertTrue(downloadDatabase.getStatusMessage().matches("The download of the database is successful in the " +
+            "file: " + DatabaseFile.getLogFilePath() + ". The database is at the change sequence \\d+."));
+    }
+
+    @Test
+    public void testDownloadDatabaseCheckValidCommandInvalidSince() {
+        assertThrows(InvalidCommand.class, () -> new DownloadDatabase(correctCommand + " --since -1"),
+            "It is not thrown exception when the sequence is negative.");
+        assertThrows(InvalidCommand.class, () -> new DownloadDatabase(correctCommand + " --since latest"),
+            "It is not thrown exception when the sequence is not a number.");
+    }
+
+    @Test
+    public void testExecuteDownloadDatabaseSince() throws InvalidCommand {
+        long sequence = Database.getInstance().getChangeSequence();
+        DownloadDatabase downloadChanges = new DownloadDatabase(correctCommand + " --since " + sequence);
+
+        executeForStoredUser(downloadChanges);
+
+        assertEquals(CommandStatus.SUCCESSFUL, downloadChanges.getCommandStatus());
+        assertTrue(downloadChanges.getStatusMessage().startsWith("The download of the changes since the sequence " +
+            sequence + " is successful in the file: " + DatabaseFile.getChangesFilePath() + "."));
+    }
+
+    @Test
+    public void testExecuteDownloadDatabaseSinceUnknownSequence() throws InvalidCommand {
+        DownloadDatabase downloadChanges = new DownloadDatabase(correctCommand + " --since " + Long.MAX_VALUE);
+
+        executeForStoredUser(downloadChanges);
+
+        assertEquals(CommandStatus.UNSUCCESSFUL, downloadChanges.getCommandStatus());
+        assertTrue(downloadChanges.getStatusMessage().endsWith("download the whole database."));
+    }
+
+    /**
+     * Execute the download for a user of the database, which the download exports
+     */
+    private void executeForStoredUser(DownloadDatabase command) {
+        Database storedDatabase = Database.getInstance();
+        storedDatabase.addUser(new User(username, "password", "John", "Doe", null));
+        try {
+            when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+            when(sessionManager.getUsernameBySessionId(anyString())).thenReturn(username);
+
+            command.execute(storedDatabase, sessionManager);
+        } finally {
+            storedDatabase.removeUser(username);
+        }
     }
 }
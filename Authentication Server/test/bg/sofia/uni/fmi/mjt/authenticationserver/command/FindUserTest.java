@@ -0,0 +1,101 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.Database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthorization;
+
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FindUserTest {
+    private static final String correctCommand = "find-user --session-id <sessionId> --email john@example.com";
+    private static final String incorrectCommand = "find-user --session-id <sessionId> --Email john@example.com";
+    @Mock
+    private Database database;
+    @Mock
+    private SessionManager sessionManager;
+    @Mock
+    private User user;
+
+    @Test
+    public void testCreateFindUserCommandNull() {
+        assertThrows(InvalidCommand.class, () -> new FindUser(null),
+            "It is not thrown exception when the command is null.");
+    }
+
+    @Test
+    public void testFindUserCheckValidCommandInvalidFormat() {
+        assertThrows(InvalidCommand.class, () -> new FindUser(incorrectCommand),
+            "It is not thrown exception when the command is with incorrect format.");
+    }
+
+    @Test
+    public void testDispatcherCreatesFindUser() throws InvalidCommand {
+        assertInstanceOf(FindUser.class, CommandDispatcher.createCommand(correctCommand));
+    }
+
+    @Test
+    public void testExecuteFindUserNonAdmin() throws InvalidCommand {
+        FindUser findUser = new FindUser(correctCommand);
+        when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+        when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
+        when(user.getAuthorization()).thenReturn(UserAuthorization.USER);
+
+        findUser.execute(database, sessionManager);
+
+        assertEquals(CommandStatus.UNSUCCESSFUL, findUser.getCommandStatus());
+        assertTrue(findUser.getStatusMessage().endsWith("doesn't have administrative permissions."));
+    }
+
+    @Test
+    public void testExecuteFindUserFound() throws InvalidCommand {
+        FindUser findUser = new FindUser(correctCommand);
+        when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+        when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
+        when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN);
+        when(database.getUsersByEmail("john@example.com"))
+            .thenReturn(List.of(new User("john", "password", "John", "Doe", "john@example.com")));
+
+        findUser.execute(database, sessionManager);
+
+        assertEquals(CommandStatus.SUCCESSFUL, findUser.getCommandStatus());
+        assertTrue(findUser.getStatusMessage().endsWith("john - John Doe, john@example.com, USER"));
+    }
+
+    @Test
+    public void testExecuteFindUserNotFound() throws InvalidCommand {
+        FindUser findUser = new FindUser(correctCommand);
+        when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+        when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
+        when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN);
+        when(database.getUsersByEmail("john@example.com")).thenReturn(List.of());
+
+        findUser.execute(database, sessionManager);
+
+        assertEquals(CommandStatus.UNSUCCESSFUL, findUser.getCommandStatus());
+        assertTrue(findUser.getStatusMessage().endsWith("An user with the email john@example.com doesn't exist."));
+    }
+}
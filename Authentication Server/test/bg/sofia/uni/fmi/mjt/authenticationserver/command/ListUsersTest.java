@@ -0,0 +1,116 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.Database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthorization;
+
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ListUsersTest {
+    private static final String correctCommand = "list-users --session-id <sessionId> --prefix jo --limit 2";
+    private static final String incorrectCommand = "list-users --session-id <sessionId> --Prefix jo";
+    @Mock
+    private Database database;
+    @Mock
+    private SessionManager sessionManager;
+    @Mock
+    private User user;
+
+    @Test
+    public void testCreateListUsersCommandNull() {
+        assertThrows(InvalidCommand.class, () -> new ListUsers(null),
+            "It is not thrown exception when the command is null.");
+    }
+
+    @Test
+    public void testListUsersCheckValidCommandInvalidFormat() {
+        assertThrows(InvalidCommand.class, () -> new ListUsers(incorrectCommand),
+            "It is not thrown exception when the command is with incorrect format.");
+    }
+
+    @Test
+    public void testListUsersInvalidLimit() {
+        assertThrows(InvalidCommand.class, () -> new ListUsers("list-users --session-id <sessionId> --limit 0"),
+            "It is not thrown exception when the limit is not positive.");
+        assertThrows(InvalidCommand.class, () -> new ListUsers("list-users --session-id <sessionId> --limit many"),
+            "It is not thrown exception when the limit is not a number.");
+    }
+
+    @Test
+    public void testDispatcherCreatesListUsers() throws InvalidCommand {
+        assertInstanceOf(ListUsers.class, CommandDispatcher.createCommand("list-users --session-id <sessionId>"));
+    }
+
+    @Test
+    public void testExecuteListUsersNonAdmin() throws InvalidCommand {
+        ListUsers listUsers = new ListUsers(correctCommand);
+        when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+        when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
+        when(user.getAuthorization()).thenReturn(UserAuthorization.USER);
+
+        listUsers.execute(database, sessionManager);
+
+        assertEquals(CommandStatus.UNSUCCESSFUL, listUsers.getCommandStatus());
+        assertTrue(listUsers.getStatusMessage().endsWith("doesn't have administrative permissions."));
+    }
+
+    @Test
+    public void testExecuteListUsersWithNextPage() throws InvalidCommand {
+        ListUsers listUsers = new ListUsers(correctCommand);
+        when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+        when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
+        when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN);
+        when(database.getUsersByPrefix("jo", null, 3)).thenReturn(List.of(
+            new User("joan", "password", "Joan", "Doe", "joan@example.com"),
+            new User("john", "password", "John", "Doe", "john@example.com"),
+            new User("josh", "password", "Josh", "Doe", "josh@example.com")));
+
+        listUsers.execute(database, sessionManager);
+
+        assertEquals(CommandStatus.SUCCESSFUL, listUsers.getCommandStatus());
+        assertTrue(listUsers.getStatusMessage().contains("john - John Doe, john@example.com"));
+        assertFalse(listUsers.getStatusMessage().contains("josh"), "The page is longer than the limit.");
+        assertTrue(listUsers.getStatusMessage().endsWith("Next cursor: john."));
+    }
+
+    @Test
+    public void testExecuteListUsersLastPage() throws InvalidCommand {
+        ListUsers listUsers = new ListUsers(correctCommand + " --cursor john");
+        when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+        when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
+        when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN);
+        when(database.getUsersByPrefix("jo", "john", 3))
+            .thenReturn(List.of(new User("josh", "password", "Josh", "Doe", "josh@example.com")));
+
+        listUsers.execute(database, sessionManager);
+
+        assertEquals(CommandStatus.SUCCESSFUL, listUsers.getCommandStatus());
+        assertTrue(listUsers.getStatusMessage().contains("josh - Josh Doe, josh@example.com"));
+        assertTrue(listUsers.getStatusMessage().endsWith("There are no more users."));
+    }
+}
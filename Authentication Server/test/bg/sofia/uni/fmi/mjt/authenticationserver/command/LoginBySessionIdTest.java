@@ -8,6 +8,8 @@ import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
 
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -24,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 
 import static org.mockito.Mockito.when;
 
@@ -36,6 +39,8 @@ public class LoginBySessionIdTest {
     private Database database;
     @Mock
     private SessionManager sessionManager;
+    @Mock
+    private User user;
 
     @BeforeAll
     public static void setCorrectLoginBySessionIdCommand() throws InvalidCommand {
@@ -79,6 +84,7 @@ public class LoginBySessionIdTest {
     @Test
     public void testExecuteLoginBySessionId() {
         when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+        when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
 
         login.execute(database, sessionManager);
 
@@ -110,6 +116,7 @@ public class LoginBySessionIdTest {
     @Test
     public void testLoginBySessionIdFailedLoginEventUnsuccessful() {
         when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+        when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
 
         login.execute(database, sessionManager);
 
@@ -20,7 +20,6 @@ import org.mockito.Mock;
 
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -42,8 +41,6 @@ public class LoginByUsernameTest {
     private SessionManager sessionManager;
     @Mock
     private User user;
-    @Mock
-    private Map<String, User> users;
 
     @BeforeAll
     public static void setCorrectLoginByUsernameCommand() throws InvalidCommand {
@@ -74,8 +71,6 @@ public class LoginByUsernameTest {
     @Test
     public void testExecuteLoginByUsernameIncorrectPassword() {
         when(database.getUserByUsername(anyString())).thenReturn(user);
-        when(database.getUsers()).thenReturn(users);
-        when(users.get(anyString())).thenReturn(user);
         when(user.getPassword()).thenReturn("<Password>");
 
         login.execute(database, sessionManager);
@@ -87,8 +82,6 @@ public class LoginByUsernameTest {
     @Test
     public void testExecuteLoginByUsername() {
         when(database.getUserByUsername(anyString())).thenReturn(user);
-        when(database.getUsers()).thenReturn(users);
-        when(users.get(anyString())).thenReturn(user);
         when(user.getPassword()).thenReturn("<password>");
 
         login.execute(database, sessionManager);
@@ -120,8 +113,6 @@ public class LoginByUsernameTest {
     @Test
     public void testLoginByUsernameFailedLoginEventUnsuccessful() {
         when(database.getUserByUsername(anyString())).thenReturn(user);
-        when(database.getUsers()).thenReturn(users);
-        when(users.get(anyString())).thenReturn(user);
         when(user.getPassword()).thenReturn("<password>");
 
         login.execute(database, sessionManager);
@@ -7,6 +7,7 @@ import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
 import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthentication;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -17,8 +18,6 @@ import org.mockito.Mock;
 
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Map;
-
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -27,6 +26,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 
 import static org.mockito.ArgumentMatchers.eq;
 
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,8 +40,6 @@ public class LogoutTest {
     private SessionManager sessionManager;
     @Mock
     private User user;
-    @Mock
-    private Map<String, User> users;
 
     @BeforeAll
     public static void setCorrectLogoutCommand() throws InvalidCommand {
@@ -87,12 +85,11 @@ public class LogoutTest {
         when(sessionManager.isSessionValid(anyString())).thenReturn(true);
         when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
         when(user.getUsername()).thenReturn("username");
-        when(database.getUsers()).thenReturn(users);
-        when(users.get(anyString())).thenReturn(user);
 
         logout.execute(database, sessionManager);
 
         assertEquals(CommandStatus.SUCCESSFUL, logout.getCommandStatus());
         assertEquals("The logout is successful.", logout.getStatusMessage());
+        verify(database).setAuthentication("username", UserAuthentication.UNAUTHENTICATED);
     }
 }
@@ -11,6 +11,7 @@ import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidCommand;
 import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthorization;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -21,14 +22,13 @@ import org.mockito.Mock;
 
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.any;
 
 import static org.mockito.Mockito.when;
 
@@ -45,8 +45,6 @@ public class RegisterTest {
     private SessionManager sessionManager;
     @Mock
     private User user;
-    @Mock
-    private Map<String, User> users;
 
     @BeforeAll
     public static void setCorrectRegisterCommand() throws InvalidCommand {
@@ -67,7 +65,7 @@ public class RegisterTest {
 
     @Test
     public void testExecuteRegisterExistingUser() {
-        when(database.getUserByUsername(anyString())).thenReturn(user);
+        when(database.registerUser(any(User.class))).thenReturn(false);
 
         register.execute(database, sessionManager);
 
@@ -77,9 +75,7 @@ public class RegisterTest {
 
     @Test
     public void testExecuteRegister() {
-        when(database.getUserByUsername(anyString())).thenReturn(null);
-        when(database.getUsers()).thenReturn(users);
-        when(users.get(anyString())).thenReturn(user);
+        when(database.registerUser(any(User.class))).thenReturn(true);
 
         register.execute(database, sessionManager);
 
@@ -89,10 +85,10 @@ public class RegisterTest {
 
     @Test
     public void testExecuteRegisterFirstUser() {
-        when(database.getUserByUsername(anyString())).thenReturn(null).thenReturn(user);
-        when(database.getUsers()).thenReturn(users);
-        when(database.getUsers().size()).thenReturn(1);
-        when(users.get(anyString())).thenReturn(user);
+        when(database.registerUser(any(User.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, User.class).setAuthorization(UserAuthorization.ADMIN);
+            return true;
+        });
 
         register.execute(database, sessionManager);
 
@@ -121,7 +117,7 @@ public class RegisterTest {
 
     @Test
     public void testRegisterCreateEndEventUnsuccessful() {
-        when(database.getUserByUsername(anyString())).thenReturn(user);
+        when(database.registerUser(any(User.class))).thenReturn(false);
         when(user.getUsername()).thenReturn("<username>");
 
         register.execute(database, sessionManager);
@@ -142,11 +138,33 @@ public class RegisterTest {
         assertEquals(register.getStatusMessage(), endEvent.getDescription());
     }
 
+    @Test
+    public void testRegisterTakenEmail() {
+        when(database.registerUser(any(User.class))).thenReturn(false);
+        when(database.getUserByUsername("<username>")).thenReturn(null);
+        when(database.isEmailTaken("<email>", "<username>")).thenReturn(true);
+
+        register.execute(database, sessionManager);
+
+        assertEquals(CommandStatus.UNSUCCESSFUL, register.getCommandStatus());
+        assertEquals("The registry is unsuccessful. An user with the email: <email> already exists.",
+            register.getStatusMessage());
+    }
+
+    @Test
+    public void testRegisterTooLargeUser() {
+        when(database.registerUser(any(User.class))).thenReturn(false);
+        when(database.isTooLarge(any(User.class))).thenReturn(true);
+
+        register.execute(database, sessionManager);
+
+        assertEquals(CommandStatus.UNSUCCESSFUL, register.getCommandStatus());
+        assertEquals("The registry is unsuccessful. The user details are too long.", register.getStatusMessage());
+    }
+
     @Test
     public void testRegisterCreateEndEventSuccessful() {
-        when(database.getUserByUsername(anyString())).thenReturn(null);
-        when(database.getUsers()).thenReturn(users);
-        when(users.get(anyString())).thenReturn(user);
+        when(database.registerUser(any(User.class))).thenReturn(true);
         when(user.getUsername()).thenReturn("<username>");
 
         register.execute(database, sessionManager);
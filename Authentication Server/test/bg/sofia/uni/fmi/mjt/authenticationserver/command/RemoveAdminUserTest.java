@@ -22,7 +22,6 @@ import org.mockito.Mock;
 
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -45,8 +44,6 @@ public class RemoveAdminUserTest {
     private SessionManager sessionManager;
     @Mock
     private User user;
-    @Mock
-    private Map<String, User> admins;
 
     @BeforeAll
     public static void setCorrectRemoveAdminUserCommand() throws InvalidCommand {
@@ -130,8 +127,7 @@ public class RemoveAdminUserTest {
         when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
         when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN);
         when(database.getUserByUsername(anyString())).thenReturn(user);
-        when(database.getAdmins()).thenReturn(admins);
-        when(admins.size()).thenReturn(1);
+        when(database.getAdminCount()).thenReturn(1);
 
         removeAdminUser.execute(database, sessionManager);
 
@@ -146,7 +142,8 @@ public class RemoveAdminUserTest {
         when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
         when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN);
         when(database.getUserByUsername(anyString())).thenReturn(user);
-        when(database.getAdmins()).thenReturn(admins);
+        when(database.getAdminCount()).thenReturn(2);
+        when(database.removeAdmin(anyString())).thenReturn(true);
 
         removeAdminUser.execute(database, sessionManager);
 
@@ -252,7 +249,8 @@ public class RemoveAdminUserTest {
         when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
         when(user.getAuthorization()).thenReturn(UserAuthorization.ADMIN);
         when(database.getUserByUsername(anyString())).thenReturn(user);
-        when(database.getAdmins()).thenReturn(admins);
+        when(database.getAdminCount()).thenReturn(2);
+        when(database.removeAdmin(anyString())).thenReturn(true);
 
         removeAdminUser.execute(database, sessionManager);
 
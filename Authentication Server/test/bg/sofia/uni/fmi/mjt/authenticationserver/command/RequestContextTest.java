@@ -0,0 +1,84 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.command;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.Database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.Mock;
+
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.mockito.ArgumentMatchers.anyString;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RequestContextTest {
+    private static final String SESSION_ID = "<sessionId>";
+    @Mock
+    private Database database;
+    @Mock
+    private SessionManager sessionManager;
+    @Mock
+    private User user;
+
+    @Test
+    public void testSessionAndCallerAreResolvedOnce() {
+        when(sessionManager.isSessionValid(SESSION_ID)).thenReturn(true);
+        when(database.getUserBySessionId(sessionManager, SESSION_ID)).thenReturn(user);
+
+        RequestContext context = RequestContext.of(SESSION_ID, "127.0.0.1", database, sessionManager);
+
+        assertTrue(context.isSessionValid());
+        assertTrue(context.isSessionValid());
+        assertSame(user, context.getCaller());
+        assertSame(user, context.getCaller());
+        verify(sessionManager, times(1)).isSessionValid(SESSION_ID);
+        verify(database, times(1)).getUserBySessionId(sessionManager, SESSION_ID);
+    }
+
+    @Test
+    public void testSessionOfRemovedUserIsNotValid() {
+        when(sessionManager.isSessionValid(SESSION_ID)).thenReturn(true);
+        when(database.getUserBySessionId(sessionManager, SESSION_ID)).thenReturn(null);
+
+        RequestContext context = RequestContext.of(SESSION_ID, "127.0.0.1", database, sessionManager);
+
+        assertFalse(context.isSessionValid(), "The session of a removed user is valid.");
+        assertNull(context.getCaller());
+    }
+
+    @Test
+    public void testInvalidSessionHasNoCaller() {
+        when(sessionManager.isSessionValid(SESSION_ID)).thenReturn(false);
+
+        RequestContext context = RequestContext.of(SESSION_ID, "127.0.0.1", database, sessionManager);
+
+        assertFalse(context.isSessionValid());
+        assertNull(context.getCaller());
+        verify(database, never()).getUserBySessionId(sessionManager, SESSION_ID);
+    }
+
+    @Test
+    public void testContextWithoutSession() {
+        RequestContext context = RequestContext.of(null, "127.0.0.1", database, sessionManager);
+
+        assertFalse(context.isSessionValid());
+        assertNull(context.getCaller());
+        verify(sessionManager, never()).isSessionValid(anyString());
+    }
+}
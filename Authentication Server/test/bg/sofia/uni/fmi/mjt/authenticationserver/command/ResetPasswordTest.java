@@ -27,6 +27,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 
 import static org.mockito.ArgumentMatchers.eq;
@@ -119,6 +120,7 @@ public class ResetPasswordTest {
         when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
         when(user.getUsername()).thenReturn("<username>");
         when(user.getPassword()).thenReturn("<password>");
+        when(database.replaceUser(eq(user), any(User.class))).thenReturn(true);
 
         resetPassword.execute(database, sessionManager);
 
@@ -224,6 +226,7 @@ public class ResetPasswordTest {
         when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
         when(user.getUsername()).thenReturn("<username>");
         when(user.getPassword()).thenReturn("<password>");
+        when(database.replaceUser(eq(user), any(User.class))).thenReturn(true);
 
         resetPassword.execute(database, sessionManager);
 
@@ -22,13 +22,13 @@ import org.mockito.Mock;
 
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 
@@ -48,8 +48,6 @@ public class UpdateUserTest {
     @Mock
     private SessionManager sessionManager;
     @Mock
-    private Map<String, User> users;
-    @Mock
     private Session session;
 
     @BeforeAll
@@ -95,7 +93,7 @@ public class UpdateUserTest {
     public void testExecuteUpdateUser() {
         when(sessionManager.isSessionValid(anyString())).thenReturn(true);
         when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
-        when(database.getUsers()).thenReturn(users);
+        when(database.replaceUser(eq(user), any(User.class))).thenReturn(true);
         when(sessionManager.getSessionBySessionId(anyString())).thenReturn(session);
 
         updateUser.execute(database, sessionManager);
@@ -104,6 +102,19 @@ public class UpdateUserTest {
         assertEquals("The update is successful.", updateUser.getStatusMessage());
     }
 
+    @Test
+    public void testExecuteUpdateUserTakenUsername() {
+        when(sessionManager.isSessionValid(anyString())).thenReturn(true);
+        when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
+        when(database.replaceUser(eq(user), any(User.class))).thenReturn(false);
+        when(database.getUserByUsername("<newUsername>")).thenReturn(user);
+
+        updateUser.execute(database, sessionManager);
+
+        assertEquals(CommandStatus.UNSUCCESSFUL, updateUser.getCommandStatus());
+        assertTrue(updateUser.getStatusMessage().endsWith("already exists."));
+    }
+
     @Test
     public void testUpdateUserCreateStartEventValidSessionId() {
         when(sessionManager.isSessionValid(anyString())).thenReturn(true);
@@ -173,7 +184,7 @@ public class UpdateUserTest {
     public void testUpdateUserCreateEndEventSuccessful() {
         when(sessionManager.isSessionValid(anyString())).thenReturn(true);
         when(database.getUserBySessionId(eq(sessionManager), anyString())).thenReturn(user);
-        when(database.getUsers()).thenReturn(users);
+        when(database.replaceUser(eq(user), any(User.class))).thenReturn(true);
         when(sessionManager.getSessionBySessionId(anyString())).thenReturn(session);
 
         updateUser.execute(database, sessionManager);
@@ -189,7 +200,7 @@ public class UpdateUserTest {
         EndEvent endEvent = (EndEvent) event;
 
         assertEquals(CommandBehavior.UPDATE_USER, endEvent.getCommandBehavior());
-        assertEquals(user.getUsername(), endEvent.getUsername());
+        assertEquals("<newUsername>", endEvent.getUsername());
         assertEquals(ipAddress, endEvent.getIpAddress());
         assertTrue(
             endEvent.getDescription().startsWith("The update is successful. The new information about the user is"));
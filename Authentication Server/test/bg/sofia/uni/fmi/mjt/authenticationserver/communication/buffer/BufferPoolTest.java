@@ -0,0 +1,68 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.communication.buffer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BufferPoolTest {
+    private BufferPool bufferPool;
+
+    @BeforeEach
+    public void setUp() {
+        bufferPool = new BufferPool(2);
+    }
+
+    @Test
+    public void testAcquireRoundsUpToSizeClass() {
+        ByteBuffer small = bufferPool.acquire(1);
+        ByteBuffer medium = bufferPool.acquire(BufferPool.MIN_BUFFER_SIZE + 1);
+
+        assertEquals(BufferPool.MIN_BUFFER_SIZE, small.capacity());
+        assertEquals(BufferPool.MIN_BUFFER_SIZE * 2, medium.capacity());
+        assertTrue(small.isDirect());
+
+        bufferPool.release(small);
+        bufferPool.release(medium);
+        assertEquals(0, bufferPool.getOutstandingBuffers());
+    }
+
+    @Test
+    public void testReleasedBufferIsReused() {
+        ByteBuffer buffer = bufferPool.acquire(1000);
+        buffer.putInt(42);
+        bufferPool.release(buffer);
+
+        ByteBuffer reused = bufferPool.acquire(700);
+
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(1, bufferPool.getAllocatedBuffers());
+        bufferPool.release(reused);
+    }
+
+    @Test
+    public void testAcquireAboveMaxSizeIsNotPooled() {
+        ByteBuffer buffer = bufferPool.acquire(BufferPool.MAX_BUFFER_SIZE + 1);
+
+        assertFalse(buffer.isDirect());
+        bufferPool.release(buffer);
+
+        assertFalse(bufferPool.acquire(BufferPool.MAX_BUFFER_SIZE + 1) == buffer);
+        assertEquals(1, bufferPool.getOutstandingBuffers());
+    }
+
+    @Test
+    public void testOutstandingBuffersDetectLeak() {
+        bufferPool.acquire(10);
+        ByteBuffer released = bufferPool.acquire(10);
+        bufferPool.release(released);
+
+        assertEquals(1, bufferPool.getOutstandingBuffers());
+    }
+}
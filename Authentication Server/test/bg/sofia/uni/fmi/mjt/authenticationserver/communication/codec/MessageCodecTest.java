@@ -0,0 +1,205 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.communication.codec;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandBehavior;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandField;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandStatus;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandType;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.BatchInput;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Input;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Request;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.BatchOutput;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Output;
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Response;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StreamCorruptedException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MessageCodecTest {
+    private static ByteBuffer encode(Request request) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MessageCodec.encodedSize(request));
+        MessageCodec.encode(request, buffer);
+        assertEquals(0, buffer.remaining(), "The encoded size does not match the written bytes.");
+        return buffer.flip();
+    }
+
+    private static ByteBuffer encode(Response response) {
+        ByteBuffer buffer = ByteBuffer.allocate(MessageCodec.encodedSize(response));
+        MessageCodec.encode(response, buffer);
+        assertEquals(0, buffer.remaining(), "The encoded size does not match the written bytes.");
+        return buffer.flip();
+    }
+
+    @Test
+    public void testInputRoundTrip() throws StreamCorruptedException {
+        Input input = new Input(42, "login --username user --password pass", CommandType.UNSECURE);
+
+        assertEquals(input, MessageCodec.decodeRequest(encode(input)));
+    }
+
+    @Test
+    public void testStructuredInputRoundTrip() throws StreamCorruptedException {
+        Input input = Input.of(CommandBehavior.UPDATE_USER, CommandType.SECURE,
+            Map.of(CommandField.SESSION_ID, "id", CommandField.NEW_EMAIL, "Йоана@mail.bg")).withRequestId(5);
+
+        Input decoded = (Input) MessageCodec.decodeRequest(encode(input));
+        assertEquals(input, decoded);
+        assertTrue(decoded.isStructured());
+    }
+
+    @Test
+    public void testDecodeStructuredInputDuplicateField() {
+        Input input = Input.of(CommandBehavior.ADD_ADMIN_USER, CommandType.SECURE,
+            Map.of(CommandField.SESSION_ID, "id", CommandField.USERNAME, "me"));
+        ByteBuffer buffer = encode(input);
+        final int firstFieldPosition = Byte.BYTES + Long.BYTES + 3 * Byte.BYTES;
+        final int secondFieldPosition = firstFieldPosition + Byte.BYTES + Integer.BYTES + "id".length();
+        buffer.put(secondFieldPosition, buffer.get(firstFieldPosition));
+
+        assertThrows(StreamCorruptedException.class, () -> MessageCodec.decodeRequest(buffer),
+            "StreamCorruptedException expected to be thrown for a repeated field.");
+    }
+
+    @Test
+    public void testOutputRoundTrip() throws StreamCorruptedException {
+        Output output = new Output(7, "The logout is successful.", CommandStatus.SUCCESSFUL,
+            CommandBehavior.LOGOUT, true);
+
+        assertEquals(output, MessageCodec.decodeResponse(encode(output)));
+    }
+
+    @Test
+    public void testBatchRoundTrip() throws StreamCorruptedException {
+        BatchInput batchInput = new BatchInput(3, List.of(
+            new Input("delete-user --session-id id --username first", CommandType.SECURE),
+            new Input(5, "delete-user --session-id id --username second", CommandType.SECURE)));
+        BatchOutput batchOutput = new BatchOutput(3, List.of(
+            new Output("first", CommandStatus.SUCCESSFUL, CommandBehavior.DELETE_USER, false),
+            new Output(5, "second", CommandStatus.UNSUCCESSFUL, CommandBehavior.DELETE_USER, false)));
+
+        assertEquals(batchInput, MessageCodec.decodeRequest(encode(batchInput)));
+        assertEquals(batchOutput, MessageCodec.decodeResponse(encode(batchOutput)));
+        assertEquals(new BatchInput(List.of()), MessageCodec.decodeRequest(encode(new BatchInput(List.of()))));
+    }
+
+    @Test
+    public void testDecodeBatchCountAboveRemainingBytes() {
+        ByteBuffer buffer = encode(new BatchInput(List.of(new Input("logout --session-id id", CommandType.SECURE))));
+        final int countPosition = Byte.BYTES + Long.BYTES;
+        buffer.putInt(countPosition, Integer.MAX_VALUE);
+
+        assertThrows(StreamCorruptedException.class, () -> MessageCodec.decodeRequest(buffer),
+            "StreamCorruptedException expected to be thrown for batch count above the remaining bytes.");
+    }
+
+    @Test
+    public void testDecodeRequestUnknownKind() {
+        ByteBuffer buffer = encode(new Input("logout --session-id id", CommandType.SECURE));
+        buffer.put(0, (byte) 2);
+
+        assertThrows(StreamCorruptedException.class, () -> MessageCodec.decodeRequest(buffer),
+            "StreamCorruptedException expected to be thrown for unknown kind of request.");
+    }
+
+    @Test
+    public void testOutputRoundTripWithNulls() throws StreamCorruptedException {
+        Output output = new Output(null, null, null, null);
+
+        assertEquals(output, MessageCodec.decodeResponse(encode(output)));
+    }
+
+    @Test
+    public void testDecodeInputWithoutCommandType() {
+        ByteBuffer buffer = encode(new Input("logout --session-id id", null));
+
+        assertThrows(StreamCorruptedException.class, () -> MessageCodec.decodeRequest(buffer),
+            "StreamCorruptedException expected to be thrown for an input without a command type.");
+    }
+
+    @Test
+    public void testDecodeTextInputWithoutMessage() {
+        ByteBuffer buffer = encode(new Input(null, CommandType.UNSECURE));
+
+        assertThrows(StreamCorruptedException.class, () -> MessageCodec.decodeRequest(buffer),
+            "StreamCorruptedException expected to be thrown for a text input without a message.");
+    }
+
+    @Test
+    public void testMessageEncodedAsUtf8() throws StreamCorruptedException {
+        String message = "register --first-name Йоана --last-name Пеева --email 😀@mail.bg";
+        Input input = new Input(message, CommandType.UNSECURE);
+        ByteBuffer buffer = encode(input);
+
+        byte[] expected = message.getBytes(StandardCharsets.UTF_8);
+        final int messageLengthPosition = Byte.BYTES + Long.BYTES + 2 * Byte.BYTES;
+        assertEquals(expected.length, buffer.getInt(messageLengthPosition));
+        assertEquals(input, MessageCodec.decodeRequest(buffer));
+    }
+
+    @Test
+    public void testUnpairedSurrogateReplaced() throws StreamCorruptedException {
+        Input input = new Input("broken \uD83D surrogate", CommandType.SECURE);
+
+        assertEquals("broken ? surrogate", ((Input) MessageCodec.decodeRequest(encode(input))).message());
+    }
+
+    @Test
+    public void testDecodeInputTruncated() {
+        ByteBuffer buffer = encode(new Input("logout --session-id id", CommandType.SECURE));
+        buffer.limit(buffer.limit() - 1);
+
+        assertThrows(StreamCorruptedException.class, () -> MessageCodec.decodeRequest(buffer),
+            "StreamCorruptedException expected to be thrown for truncated input.");
+    }
+
+    @Test
+    public void testDecodeInputTrailingBytes() {
+        Input input = new Input("logout --session-id id", CommandType.SECURE);
+        ByteBuffer buffer = ByteBuffer.allocate(MessageCodec.encodedSize(input) + 1);
+        MessageCodec.encode(input, buffer);
+
+        assertThrows(StreamCorruptedException.class, () -> MessageCodec.decodeRequest(buffer.clear()),
+            "StreamCorruptedException expected to be thrown for trailing bytes.");
+    }
+
+    @Test
+    public void testDecodeInputInvalidOrdinal() {
+        ByteBuffer buffer = encode(new Input("logout --session-id id", CommandType.SECURE));
+        buffer.put(Byte.BYTES + Long.BYTES, (byte) CommandType.values().length);
+
+        assertThrows(StreamCorruptedException.class, () -> MessageCodec.decodeRequest(buffer),
+            "StreamCorruptedException expected to be thrown for unknown command type.");
+    }
+
+    @Test
+    public void testDecodeOutputInvalidLoggedOutFlag() {
+        ByteBuffer buffer = encode(new Output("message", CommandStatus.SUCCESSFUL, CommandBehavior.LOGOUT, false));
+        final int loggedOutPosition = Byte.BYTES + Long.BYTES + 2 * Byte.BYTES;
+        buffer.put(loggedOutPosition, (byte) 2);
+
+        assertThrows(StreamCorruptedException.class, () -> MessageCodec.decodeResponse(buffer),
+            "StreamCorruptedException expected to be thrown for invalid logged out flag.");
+    }
+
+    @Test
+    public void testDecodeOutputNegativeMessageLength() {
+        ByteBuffer buffer = encode(new Output("message", CommandStatus.SUCCESSFUL, CommandBehavior.LOGOUT, false));
+        final int messageLengthPosition = Byte.BYTES + Long.BYTES + 3 * Byte.BYTES;
+        buffer.putInt(messageLengthPosition, -2);
+
+        assertThrows(StreamCorruptedException.class, () -> MessageCodec.decodeResponse(buffer),
+            "StreamCorruptedException expected to be thrown for negative message length.");
+    }
+}
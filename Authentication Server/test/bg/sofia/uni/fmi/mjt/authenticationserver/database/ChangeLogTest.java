@@ -0,0 +1,61 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChangeLogTest {
+    @Test
+    public void testChangedUsernamesAreSortedOnce() {
+        ChangeLog changeLog = new ChangeLog(10);
+        changeLog.record(1, "user");
+        changeLog.record(2, "admin");
+        changeLog.record(3, "user");
+        changeLog.record(4, "renamed");
+
+        assertEquals(List.of("admin", "renamed", "user"), List.copyOf(changeLog.getChanged(0, 4)));
+        assertEquals(List.of("admin", "user"), List.copyOf(changeLog.getChanged(1, 3)));
+        assertTrue(changeLog.getChanged(4, 4).isEmpty());
+    }
+
+    @Test
+    public void testOldestChangesAreDropped() {
+        ChangeLog changeLog = new ChangeLog(2);
+        changeLog.record(1, "user");
+        changeLog.record(2, "admin");
+        changeLog.record(3, "renamed");
+
+        assertFalse(changeLog.hasChangesSince(0));
+        assertNull(changeLog.getChanged(0, 3), "The changes are found after some of them are dropped.");
+        assertEquals(Set.of("admin", "renamed"), changeLog.getChanged(1, 3));
+
+        changeLog.setCapacity(1);
+        assertNull(changeLog.getChanged(1, 3));
+        assertEquals(Set.of("renamed"), changeLog.getChanged(2, 3));
+    }
+
+    @Test
+    public void testChangesUntilSequenceAreDropped() {
+        ChangeLog changeLog = new ChangeLog(10);
+        changeLog.record(1, "user");
+        changeLog.dropUntil(5);
+        changeLog.record(4, "admin");
+        changeLog.record(6, "renamed");
+
+        assertFalse(changeLog.hasChangesSince(4));
+        assertEquals(Set.of("renamed"), changeLog.getChanged(5, 6));
+    }
+
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new ChangeLog(0),
+            "It is not thrown exception when the capacity is not positive.");
+    }
+}
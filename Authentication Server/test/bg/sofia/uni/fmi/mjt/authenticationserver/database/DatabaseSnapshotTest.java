@@ -0,0 +1,154 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.database.cipher.PasswordKey;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthorization;
+
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.nio.file.attribute.PosixFilePermissions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DatabaseSnapshotTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testWriteAndLoadSeveralChunks() throws IOException {
+        final int userCount = 100_000;
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < userCount; i++) {
+            users.add(new User("user" + i, "password" + i, "First", "Last", "user" + i + "@example.com"));
+        }
+        User admin = new User("admin", "password", "Админ", "User", null);
+        admin.setAuthorization(UserAuthorization.ADMIN);
+        users.add(admin);
+        Path snapshot = directory.resolve("snapshot");
+
+        assertEquals(userCount + 1, DatabaseSnapshot.write(snapshot, users, 42, null));
+        assertEquals(42, DatabaseSnapshot.readSequence(snapshot));
+
+        Map<String, User> loaded = new ConcurrentHashMap<>();
+        assertEquals(userCount + 1,
+            DatabaseSnapshot.load(snapshot, null, user -> loaded.put(user.getUsername(), user)));
+        assertEquals(userCount + 1, loaded.size());
+        assertEquals("password42", loaded.get("user42").getPassword());
+        assertEquals("user42@example.com", loaded.get("user42").getEmail());
+        assertEquals("Админ", loaded.get("admin").getFirstName());
+        assertNull(loaded.get("admin").getEmail());
+        assertEquals(UserAuthorization.ADMIN, loaded.get("admin").getAuthorization());
+        assertFalse(Files.exists(directory.resolve("snapshot.tmp")), "The temporary file is left behind.");
+    }
+
+    @Test
+    public void testLoadMissingSnapshot() throws IOException {
+        assertEquals(0, DatabaseSnapshot.load(directory.resolve("snapshot"), null, user -> { }));
+        assertEquals(0, DatabaseSnapshot.readSequence(directory.resolve("snapshot")));
+    }
+
+    @Test
+    public void testLoadSnapshotWithoutSequence() throws IOException {
+        Path snapshot = directory.resolve("snapshot");
+        Files.write(snapshot, ByteBuffer.allocate(2 * Integer.BYTES).putInt(0x41555331).putInt(-1).array());
+
+        assertEquals(0, DatabaseSnapshot.load(snapshot, null, user -> { }));
+        assertEquals(0, DatabaseSnapshot.readSequence(snapshot));
+    }
+
+    @Test
+    public void testLoadInvalidSnapshot() throws IOException {
+        Path snapshot = directory.resolve("snapshot");
+        Files.writeString(snapshot, "not a snapshot");
+
+        assertThrows(IOException.class, () -> DatabaseSnapshot.load(snapshot, null, user -> { }),
+            "It is not thrown exception when the file is not a snapshot.");
+    }
+
+    @Test
+    public void testEncryptedSnapshotHidesThePasswords() throws IOException {
+        Path snapshot = directory.resolve("snapshot");
+        Path key = directory.resolve("key");
+        List<User> users = List.of(new User("user", "secret-password", "John", "Doe", "john@example.com"));
+
+        assertEquals(1, DatabaseSnapshot.write(snapshot, users, 7, PasswordKey.open(key)));
+        assertFalse(new String(Files.readAllBytes(snapshot), StandardCharsets.UTF_8).contains("secret-password"),
+            "The password is written unencrypted.");
+        assertEquals(7, DatabaseSnapshot.readSequence(snapshot));
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(snapshot)));
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(key)));
+        }
+
+        Map<String, User> loaded = new ConcurrentHashMap<>();
+        assertEquals(1, DatabaseSnapshot.load(snapshot, PasswordKey.open(key),
+            user -> loaded.put(user.getUsername(), user)));
+        assertEquals("secret-password", loaded.get("user").getPassword());
+    }
+
+    @Test
+    public void testLoadEncryptedSnapshotWithoutTheKey() throws IOException {
+        Path snapshot = directory.resolve("snapshot");
+        List<User> users = List.of(new User("user", "secret-password", "John", "Doe", "john@example.com"));
+        DatabaseSnapshot.write(snapshot, users, 7, PasswordKey.open(directory.resolve("key")));
+
+        assertThrows(IOException.class, () -> DatabaseSnapshot.load(snapshot, null, user -> { }),
+            "It is not thrown exception when there is no password key.");
+        PasswordKey otherKey = PasswordKey.open(directory.resolve("other.key"));
+        assertThrows(IOException.class, () -> DatabaseSnapshot.load(snapshot, otherKey, user -> { }),
+            "It is not thrown exception when the password key is another one.");
+    }
+
+    @Test
+    public void testLoadSnapshotWithInvalidAuthorization() throws IOException {
+        Path snapshot = directory.resolve("snapshot");
+        DatabaseSnapshot.write(snapshot, List.of(new User("user", "password", "John", "Doe", null)), 1, null);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        final int authorizationPosition = bytes.length - Integer.BYTES - Byte.BYTES;
+        bytes[authorizationPosition] = Byte.MAX_VALUE;
+        Files.write(snapshot, bytes);
+
+        IOException exception = assertThrows(IOException.class,
+            () -> DatabaseSnapshot.load(snapshot, null, user -> { }),
+            "It is not thrown exception when the authorization is unknown.");
+        assertEquals("The snapshot of the database is corrupted.", exception.getMessage());
+    }
+
+    @Test
+    public void testLoadSnapshotWithStringPastItsChunk() throws IOException {
+        Path snapshot = directory.resolve("snapshot");
+        DatabaseSnapshot.write(snapshot, List.of(new User("user", "password", "John", "Doe", null)), 1, null);
+        final int usernameLengthPosition = Integer.BYTES + Long.BYTES + 2 * Integer.BYTES;
+        byte[] bytes = Files.readAllBytes(snapshot);
+        ByteBuffer.wrap(bytes).putInt(usernameLengthPosition, bytes.length);
+        Files.write(snapshot, bytes);
+
+        IOException exception = assertThrows(IOException.class,
+            () -> DatabaseSnapshot.load(snapshot, null, user -> { }),
+            "It is not thrown exception when a string does not fit its chunk.");
+        assertEquals("The snapshot of the database is corrupted.", exception.getMessage());
+    }
+}
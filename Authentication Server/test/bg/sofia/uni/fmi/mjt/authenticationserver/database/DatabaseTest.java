@@ -3,28 +3,55 @@ package bg.sofia.uni.fmi.mjt.authenticationserver.database;
 import bg.sofia.uni.fmi.mjt.authenticationserver.session.SessionManager;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthentication;
 import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthorization;
 
+import com.google.gson.Gson;
+
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import org.junit.jupiter.api.io.TempDir;
+
 import org.mockito.Mock;
 
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import static org.mockito.Mockito.when;
 
-import java.util.HashMap;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.util.function.Function;
+
+import java.util.stream.Collectors;
 
 @ExtendWith(MockitoExtension.class)
 public class DatabaseTest {
+    private static final Gson GSON = new Gson();
     private static Database database;
     @Mock
     private SessionManager sessionManager;
@@ -34,16 +61,22 @@ public class DatabaseTest {
         database = Database.getInstance();
     }
 
+    @AfterEach
+    public void tearDown() {
+        for (String username : List.of("user", "admin", "renamed")) {
+            database.setAuthorization(username, UserAuthorization.USER);
+            database.removeUser(username);
+        }
+    }
+
     @Test
     public void testGetAdmins() {
-        Map<String, User> users = new HashMap<>();
         User user = new User("user", "password", "John", "Doe", "john@example.com");
         User admin = new User("admin", "password", "Admin", "User", "admin@example.com");
         admin.setAuthorization(UserAuthorization.ADMIN);
-        users.put("user", user);
-        users.put("admin", admin);
 
-        database.getUsers().putAll(users);
+        database.addUser(user);
+        database.addUser(admin);
         Map<String, User> admins = database.getAdmins();
 
         assertTrue(admins.containsKey("admin"));
@@ -55,23 +88,628 @@ public class DatabaseTest {
         String sessionId = "12345678";
         when(sessionManager.getUsernameBySessionId(sessionId)).thenReturn("user");
 
-        Map<String, User> users = new HashMap<>();
         User user = new User("user", "password", "John", "Doe", "john@example.com");
-        users.put("user", user);
-        database.getUsers().putAll(users);
+        database.addUser(user);
 
         User userBySessionId = database.getUserBySessionId(sessionManager, sessionId);
         assertEquals(user, userBySessionId);
     }
 
+    @Test
+    public void testRegisterFirstUsersConcurrently() throws InterruptedException {
+        final int rounds = 100;
+        int adminCount = database.getAdminCount();
+        for (int round = 0; round < rounds; round++) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> registrations = new ArrayList<>();
+            for (String username : List.of("user", "admin")) {
+                User user = new User(username, "password", "John", "Doe", null);
+                registrations.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    database.registerUser(user);
+                }));
+            }
+            start.countDown();
+            for (Thread registration : registrations) {
+                registration.join();
+            }
+
+            assertEquals(Math.max(adminCount, 1), database.getAdminCount(),
+                "The first users registered at once are not granted a single admin.");
+            tearDown();
+        }
+    }
+
     @Test
     public void testGetUserByUsername() {
-        Map<String, User> users = new HashMap<>();
         User user = new User("user", "password", "John", "Doe", "john@example.com");
-        users.put("user", user);
-        database.getUsers().putAll(users);
+        database.addUser(user);
 
         User userByUsername = database.getUserByUsername("user");
         assertEquals(user, userByUsername);
     }
+
+    @Test
+    public void testAddUserExistingUsername() {
+        User user = new User("user", "password", "John", "Doe", "john@example.com");
+        User other = new User("user", "other", "Jane", "Doe", "jane@example.com");
+
+        assertTrue(database.addUser(user));
+        assertFalse(database.addUser(other), "An user with a taken username was added.");
+        assertSame(user, database.getUserByUsername("user"));
+    }
+
+    @Test
+    public void testAddUserConcurrently() throws InterruptedException {
+        final int threads = 8;
+        AtomicInteger added = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> registrations = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            User user = new User("user", "password" + i, "John", "Doe", "john@example.com");
+            registrations.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (database.addUser(user)) {
+                    added.incrementAndGet();
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread registration : registrations) {
+            registration.join();
+        }
+
+        assertEquals(1, added.get(), "The same username was registered more than once.");
+    }
+
+    @Test
+    public void testReplaceUserAfterAuthorizationChange() {
+        database.addUser(new User("user", "password", "John", "Doe", null));
+        User currentUser = database.getUserByUsername("user");
+        database.setAuthorization("user", UserAuthorization.ADMIN);
+
+        User newUser = new User("user", "newPassword", "John", "Doe", null);
+        newUser.setAuthorization(currentUser.getAuthorization());
+
+        assertEquals(UserAuthorization.USER, currentUser.getAuthorization(), "A read user is changed in place.");
+        assertFalse(database.replaceUser(currentUser, newUser), "The change of the authorization is lost.");
+        assertTrue(database.isAdmin("user"));
+        assertEquals(UserAuthorization.ADMIN, database.getUserByUsername("user").getAuthorization());
+    }
+
+    @Test
+    public void testReplaceUserWithNewUsername() {
+        User user = new User("user", "password", "John", "Doe", "john@example.com");
+        User renamed = new User("renamed", "password", "John", "Doe", "john@example.com");
+        database.addUser(user);
+
+        assertTrue(database.replaceUser(user, renamed));
+        assertNull(database.getUserByUsername("user"));
+        assertSame(renamed, database.getUserByUsername("renamed"));
+    }
+
+    @Test
+    public void testReplaceUserChangedMeanwhile() {
+        User user = new User("user", "password", "John", "Doe", "john@example.com");
+        User stale = new User("user", "oldPassword", "John", "Doe", "john@example.com");
+        User renamed = new User("renamed", "password", "John", "Doe", "john@example.com");
+        database.addUser(user);
+
+        assertFalse(database.replaceUser(stale, renamed), "A stale version of the user was replaced.");
+        assertSame(user, database.getUserByUsername("user"));
+        assertNull(database.getUserByUsername("renamed"));
+    }
+
+    @Test
+    public void testRenameUserConcurrently() throws InterruptedException {
+        final int renames = 1_000;
+        database.addUser(new User("user", "password", "John", "Doe", "john@example.com"));
+        int userCount = database.getUserCount();
+
+        List<Thread> threads = new ArrayList<>();
+        for (String[] usernames : List.of(new String[] {"user", "renamed"}, new String[] {"renamed", "user"})) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < renames; i++) {
+                    User currentUser = database.getUserByUsername(usernames[0]);
+                    if (currentUser != null) {
+                        database.replaceUser(currentUser,
+                            new User(usernames[1], "password", "John", "Doe", "john@example.com"));
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(userCount, database.getUserCount(), "A rename lost or duplicated the user.");
+        assertTrue(database.getUserByUsername("user") == null ^ database.getUserByUsername("renamed") == null);
+        assertEquals(1, database.getUsersByEmail("john@example.com").size());
+    }
+
+    @Test
+    public void testRenameUserToRegisteredUsername() throws InterruptedException {
+        User user = new User("user", "password", "John", "Doe", "john@example.com");
+        database.addUser(user);
+        User renamed = new User("renamed", "password", "John", "Doe", "john@example.com");
+        User registered = new User("renamed", "other", "Jane", "Doe", "jane@example.com");
+
+        Thread registration = Thread.ofPlatform().start(() -> database.addUser(registered));
+        boolean replaced = database.replaceUser(user, renamed);
+        registration.join();
+
+        User owner = database.getUserByUsername("renamed");
+        assertEquals(replaced ? "password" : "other", owner.getPassword());
+        assertEquals(replaced, database.getUserByUsername("user") == null);
+    }
+
+    @Test
+    public void testReplaceUserTakenUsername() {
+        User user = new User("user", "password", "John", "Doe", "john@example.com");
+        User admin = new User("admin", "password", "Admin", "User", "admin@example.com");
+        database.addUser(user);
+        database.addUser(admin);
+
+        User renamed = new User("admin", "password", "John", "Doe", "john@example.com");
+        assertFalse(database.replaceUser(user, renamed), "The user replaced another user.");
+        assertSame(user, database.getUserByUsername("user"));
+        assertSame(admin, database.getUserByUsername("admin"));
+    }
+
+    @Test
+    public void testAdminIndexFollowsAuthorization() {
+        User user = new User("user", "password", "John", "Doe", "john@example.com");
+        database.addUser(user);
+        int admins = database.getAdminCount();
+
+        assertTrue(database.setAuthorization("user", UserAuthorization.ADMIN));
+        assertEquals(admins + 1, database.getAdminCount());
+        assertTrue(database.isAdmin("user"));
+        assertTrue(database.getAdmins().containsKey("user"));
+
+        assertTrue(database.setAuthorization("user", UserAuthorization.USER));
+        assertEquals(admins, database.getAdminCount());
+        assertFalse(database.getAdmins().containsKey("user"));
+    }
+
+    @Test
+    public void testLastAdminCannotBeRemoved() {
+        // The database is shared, so the admins of the other tests are demoted meanwhile.
+        Set<String> otherAdmins = Set.copyOf(database.getAdmins().keySet());
+        otherAdmins.forEach(username -> database.setAuthorization(username, UserAuthorization.USER));
+        try {
+            User admin = new User("admin", "password", "Admin", "User", "admin@example.com");
+            admin.setAuthorization(UserAuthorization.ADMIN);
+            database.addUser(admin);
+            assertEquals(1, database.getAdminCount());
+
+            assertFalse(database.removeAdmin("admin"), "The last admin lost the administrative permissions.");
+            assertFalse(database.removeUser("admin"), "The last admin was deleted.");
+            User demoted = new User("admin", "password", "Admin", "User", "admin@example.com");
+            assertFalse(database.replaceUser(admin, demoted), "The last admin was replaced by an user.");
+            assertEquals(1, database.getAdminCount());
+
+            User user = new User("user", "password", "John", "Doe", "john@example.com");
+            database.addUser(user);
+            database.setAuthorization("user", UserAuthorization.ADMIN);
+
+            assertTrue(database.removeAdmin("admin"));
+            assertFalse(database.isAdmin("admin"));
+            assertEquals(1, database.getAdminCount());
+        } finally {
+            otherAdmins.forEach(username -> database.setAuthorization(username, UserAuthorization.ADMIN));
+        }
+    }
+
+    @Test
+    public void testRenameAdminKeepsIndex() {
+        User admin = new User("admin", "password", "Admin", "User", "admin@example.com");
+        admin.setAuthorization(UserAuthorization.ADMIN);
+        database.addUser(admin);
+        int admins = database.getAdminCount();
+        User renamed = new User("renamed", "password", "Admin", "User", "admin@example.com");
+        renamed.setAuthorization(UserAuthorization.ADMIN);
+
+        assertTrue(database.replaceUser(admin, renamed));
+        assertFalse(database.isAdmin("admin"));
+        assertTrue(database.isAdmin("renamed"));
+        assertEquals(admins, database.getAdminCount());
+    }
+
+    @Test
+    public void testGetUsersByPrefixPages() {
+        database.addUser(new User("user", "password", "John", "Doe", "john@example.com"));
+        database.addUser(new User("admin", "password", "Admin", "User", "admin@example.com"));
+        database.addUser(new User("renamed", "password", "Jane", "Doe", "jane@example.com"));
+
+        List<User> firstPage = database.getUsersByPrefix("", null, 2);
+        assertEquals(2, firstPage.size());
+        assertTrue(firstPage.get(0).getUsername().compareTo(firstPage.get(1).getUsername()) < 0,
+            "The users are not sorted by their usernames.");
+
+        List<User> page = database.getUsersByPrefix("re", null, 10);
+        assertEquals(List.of("renamed"), page.stream().map(User::getUsername).toList());
+        assertTrue(database.getUsersByPrefix("re", "renamed", 10).isEmpty(), "The cursor was returned again.");
+
+        database.removeUser("renamed");
+        assertTrue(database.getUsersByPrefix("re", null, 10).isEmpty(), "A deleted user is still listed.");
+    }
+
+    @Test
+    public void testGetUsersByPrefixAfterRename() {
+        User user = new User("user", "password", "John", "Doe", "john@example.com");
+        database.addUser(user);
+        database.replaceUser(user, new User("renamed", "password", "John", "Doe", "john@example.com"));
+
+        assertTrue(database.getUsersByPrefix("user", null, 10).isEmpty(), "The old username is still listed.");
+        assertEquals(1, database.getUsersByPrefix("renamed", null, 10).size());
+    }
+
+    @Test
+    public void testViewListsUsersAsOpened() {
+        User user = new User("user", "password", "John", "Doe", "john@example.com");
+        database.addUser(user);
+        database.addUser(new User("admin", "password", "Admin", "User", "admin@example.com"));
+
+        List<User> listed = new ArrayList<>();
+        try (DatabaseView view = database.openView()) {
+            database.replaceUser(user, new User("user", "newPassword", "John", "Doe", "john@example.com"));
+            database.setAuthorization("user", UserAuthorization.ADMIN);
+            database.removeUser("admin");
+            database.addUser(new User("renamed", "password", "Jane", "Doe", "jane@example.com"));
+            view.forEach(listed::add);
+        }
+
+        Map<String, User> users = listed.stream()
+            .filter(listedUser -> Set.of("user", "admin", "renamed").contains(listedUser.getUsername()))
+            .collect(Collectors.toMap(User::getUsername, Function.identity()));
+        assertEquals(Set.of("user", "admin"), users.keySet());
+        assertEquals("password", users.get("user").getPassword());
+        assertEquals(UserAuthorization.USER, users.get("user").getAuthorization());
+        assertEquals(database.getUserCount(), listed.size(), "The view lists a different count of users.");
+        assertTrue(listed.get(0).getUsername().compareTo(listed.get(1).getUsername()) < 0,
+            "The users are not listed in the order of their usernames.");
+    }
+
+    @Test
+    public void testViewListsUsersAsOpenedWhileChanged() throws InterruptedException {
+        final int userCount = 200;
+        for (int i = 0; i < userCount; i++) {
+            database.addUser(new User("view" + i, "password", "John", "Doe", null));
+        }
+
+        List<User> listed = new ArrayList<>();
+        try (DatabaseView view = database.openView()) {
+            Thread changes = Thread.ofPlatform().start(() -> {
+                for (int i = userCount - 1; i >= 0; i--) {
+                    User user = database.getUserByUsername("view" + i);
+                    database.replaceUser(user, new User("view" + i + "renamed", "changed", "John", "Doe", null));
+                    database.addUser(new User("view" + i + "added", "password", "John", "Doe", null));
+                }
+            });
+            view.forEach(listed::add);
+            changes.join();
+        } finally {
+            for (int i = 0; i < userCount; i++) {
+                database.removeUser("view" + i + "renamed");
+                database.removeUser("view" + i + "added");
+            }
+        }
+
+        List<User> viewUsers = listed.stream().filter(user -> user.getUsername().startsWith("view")).toList();
+        assertEquals(userCount, viewUsers.size());
+        for (User user : viewUsers) {
+            assertTrue(user.getUsername().matches("view\\d+"), "A user changed after the view is listed.");
+            assertEquals("password", user.getPassword());
+        }
+    }
+
+    @Test
+    public void testDownloadDatabaseKeepsThePasswords() throws IOException {
+        database.addUser(new User("user", "password", "John", "Doe", "john@example.com"));
+
+        assertEquals(database.getChangeSequence(), DatabaseFile.getDatabase(database));
+
+        assertEquals("password", database.getUserByUsername("user").getPassword());
+        Path file = Path.of(DatabaseFile.getLogFilePath());
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(database.getUserCount(), lines.size(), "Every user is not on a line of its own.");
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("{\"Username\":\"user\",")));
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")), "The temporary file is left.");
+    }
+
+    @Test
+    public void testParallelDownloadDatabaseKeepsTheOrder() throws IOException {
+        final int userCount = 10_000;
+        for (int i = 0; i < userCount; i++) {
+            database.addUser(new User("export" + i, "password", "John", "Doe", null));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(database.getChangeSequence(), DatabaseFile.getDatabase(database, pool));
+        } finally {
+            pool.shutdown();
+            for (int i = 0; i < userCount; i++) {
+                database.removeUser("export" + i);
+            }
+        }
+
+        List<String> usernames = Files.readAllLines(Path.of(DatabaseFile.getLogFilePath()), StandardCharsets.UTF_8)
+            .stream()
+            .map(line -> line.substring("{\"Username\":\"".length(), line.indexOf("\",")))
+            .toList();
+        assertEquals(usernames.stream().sorted().toList(), usernames, "The chunks are not written in their order.");
+        assertEquals(userCount, usernames.stream().filter(username -> username.startsWith("export")).count());
+    }
+
+    @Test
+    public void testChangesAreNumbered() {
+        long sequence = database.getChangeSequence();
+        User user = new User("user", "password", "John", "Doe", null);
+
+        database.addUser(user);
+        assertEquals(sequence + 1, database.getChangeSequence());
+        database.setAuthentication("user", UserAuthentication.AUTHENTICATED);
+        assertFalse(database.addUser(new User("user", "password", "John", "Doe", null)));
+        assertEquals(sequence + 1, database.getChangeSequence(), "A login or a rejected change is numbered.");
+        database.replaceUser(user, new User("renamed", "password", "John", "Doe", null));
+        assertEquals(sequence + 3, database.getChangeSequence(),
+            "A rename is not numbered as the changes of both usernames.");
+
+        assertEquals(Set.of("renamed", "user"), database.getChangedUsernames(sequence, sequence + 3));
+        assertEquals(Set.of("user"), database.getChangedUsernames(sequence, sequence + 1));
+        assertTrue(database.getChangedUsernames(sequence + 3, database.getChangeSequence()).isEmpty());
+    }
+
+    @Test
+    public void testDownloadChangesSinceSequence() throws IOException {
+        User user = new User("user", "password", "John", "Doe", null);
+        database.addUser(user);
+        database.addUser(new User("admin", "password", "Admin", "User", null));
+        long sequence = database.getChangeSequence();
+        database.replaceUser(user, new User("renamed", "password", "John", "Doe", null));
+        database.setAuthorization("admin", UserAuthorization.ADMIN);
+
+        assertEquals(database.getChangeSequence(), DatabaseFile.getChanges(database, sequence));
+
+        assertEquals("password", database.getUserByUsername("renamed").getPassword());
+        Path file = Path.of(DatabaseFile.getChangesFilePath());
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(3, lines.size(), "Only the changed users are exported.");
+        assertTrue(lines.get(0).startsWith("{\"Username\":\"admin\","));
+        assertTrue(lines.get(0).contains("\"Authorization\":\"ADMIN\""));
+        assertTrue(lines.get(1).startsWith("{\"Username\":\"renamed\","));
+        assertEquals("{\"Username\":\"user\",\"Deleted\":true}", lines.get(2), "The removed user is not exported.");
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")), "The temporary file is left.");
+    }
+
+    @Test
+    public void testDownloadChangesNoLongerKept() {
+        long sequence = database.getChangeSequence();
+        database.setChangeLogCapacity(2);
+        try {
+            database.addUser(new User("user", "password", "John", "Doe", null));
+            database.addUser(new User("admin", "password", "Admin", "User", null));
+            database.removeUser("user");
+
+            assertEquals(DatabaseFile.CHANGES_NOT_KEPT, DatabaseFile.getChanges(database, sequence));
+            assertEquals(database.getChangeSequence(), DatabaseFile.getChanges(database, sequence + 1));
+            assertEquals(DatabaseFile.CHANGES_NOT_KEPT,
+                DatabaseFile.getChanges(database, database.getChangeSequence() + 1),
+                "The changes since a sequence, which is not reached yet, are exported.");
+        } finally {
+            database.setChangeLogCapacity(100_000);
+        }
+    }
+
+    @Test
+    public void testGetUsersByEmailIgnoresCase() {
+        database.addUser(new User("user", "password", "John", "Doe", "John.Index@Example.com"));
+        database.addUser(new User("admin", "password", "Admin", "User", "john.index@example.com"));
+
+        List<User> users = database.getUsersByEmail("JOHN.INDEX@example.COM");
+
+        assertEquals(List.of("admin", "user"), users.stream().map(User::getUsername).toList());
+        assertTrue(database.getUsersByEmail("nobody.index@example.com").isEmpty());
+    }
+
+    @Test
+    public void testEmailIndexFollowsChanges() {
+        User user = new User("user", "password", "John", "Doe", "john.index@example.com");
+        database.addUser(user);
+        User renamed = new User("renamed", "password", "John", "Doe", "new.index@example.com");
+        database.replaceUser(user, renamed);
+
+        assertTrue(database.getUsersByEmail("john.index@example.com").isEmpty(), "The old email is still indexed.");
+        assertEquals(List.of(renamed), database.getUsersByEmail("new.index@example.com"));
+
+        database.removeUser("renamed");
+        assertTrue(database.getUsersByEmail("new.index@example.com").isEmpty(), "A removed user is still indexed.");
+    }
+
+    @Test
+    public void testUniqueEmailsRejectTakenEmail() {
+        database.setUniqueEmails(true);
+        try {
+            User user = new User("user", "password", "John", "Doe", "john.index@example.com");
+            User admin = new User("admin", "password", "Admin", "User", "admin.index@example.com");
+            assertTrue(database.addUser(user));
+            assertTrue(database.addUser(admin));
+
+            assertFalse(database.addUser(new User("renamed", "password", "J", "D", "JOHN.index@example.com")),
+                "A user is added with a taken email.");
+            assertFalse(database.replaceUser(admin,
+                new User("admin", "password", "Admin", "User", "john.index@example.com")),
+                "A user is changed to a taken email.");
+            assertTrue(database.isEmailTaken("john.index@example.com", "admin"));
+            assertFalse(database.isEmailTaken("john.index@example.com", "user"));
+            assertTrue(database.replaceUser(user,
+                new User("renamed", "password", "John", "Doe", "john.index@example.com")),
+                "A user cannot keep its own email.");
+        } finally {
+            database.setUniqueEmails(false);
+        }
+    }
+
+    @Test
+    public void testSharedEmailsAllowedByDefault() {
+        assertTrue(database.addUser(new User("user", "password", "John", "Doe", "john.index@example.com")));
+        assertTrue(database.addUser(new User("admin", "password", "Admin", "User", "john.index@example.com")));
+        assertFalse(database.isEmailTaken("john.index@example.com", "renamed"));
+    }
+
+    @Test
+    public void testWriteAheadLogRestoresUsers(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("wal.txt");
+        database.openWriteAheadLog(path, 0);
+        try {
+            User user = new User("user", "password", "John", "Doe", "john@example.com");
+            User admin = new User("admin", "password", "Admin", "User", "admin@example.com");
+            database.addUser(user);
+            database.addUser(admin);
+            database.setAuthorization("admin", UserAuthorization.ADMIN);
+            database.replaceUser(user, new User("renamed", "secret", "John", "Doe", "john@example.com"));
+        } finally {
+            database.closeWriteAheadLog();
+        }
+        List<String> changes = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertEquals(5, changes.size(), "Every change of the users must be logged.");
+        assertEquals(database.getChangeSequence(),
+            GSON.fromJson(changes.get(changes.size() - 1), UserChange.class).getSequence());
+
+        database.setAuthorization("admin", UserAuthorization.USER);
+        database.removeUser("admin");
+        database.removeUser("renamed");
+
+        database.openWriteAheadLog(path, 0);
+        try {
+            assertNull(database.getUserByUsername("user"));
+            assertEquals("secret", database.getUserByUsername("renamed").getPassword());
+            assertTrue(database.isAdmin("admin"));
+            assertEquals(List.of("renamed"),
+                database.getUsersByEmail("john@example.com").stream().map(User::getUsername).toList());
+        } finally {
+            database.closeWriteAheadLog();
+        }
+    }
+
+    @Test
+    public void testSnapshotTruncatesWriteAheadLog(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("wal.txt");
+        Path snapshot = directory.resolve("snapshot");
+        database.openWriteAheadLog(path, 0);
+        try {
+            database.addUser(new User("user", "password", "John", "Doe", "john@example.com"));
+            User admin = new User("admin", "password", "Admin", "User", "admin@example.com");
+            admin.setAuthorization(UserAuthorization.ADMIN);
+            database.addUser(admin);
+
+            assertTrue(database.takeSnapshot(snapshot) >= 2);
+            assertEquals(database.getChangeSequence(), DatabaseSnapshot.readSequence(snapshot));
+            database.removeUser("user");
+        } finally {
+            database.closeWriteAheadLog();
+        }
+        assertEquals(1, Files.readAllLines(path, StandardCharsets.UTF_8).size(),
+            "The changes before the snapshot are kept in the log.");
+
+        database.setAuthorization("admin", UserAuthorization.USER);
+        database.removeUser("admin");
+
+        assertTrue(database.loadSnapshot(snapshot) >= 2);
+        database.openWriteAheadLog(path, 0);
+        try {
+            assertNull(database.getUserByUsername("user"), "The change after the snapshot is not replayed.");
+            assertTrue(database.isAdmin("admin"));
+            assertEquals(List.of("admin"),
+                database.getUsersByEmail("admin@example.com").stream().map(User::getUsername).toList());
+        } finally {
+            database.closeWriteAheadLog();
+        }
+    }
+
+    @Test
+    public void testWriteAheadLogEncryptsThePasswords(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("wal.txt");
+        database.openPasswordKey(directory.resolve("key"));
+        try {
+            database.openWriteAheadLog(path, 0);
+            try {
+                database.addUser(new User("user", "secret-password", "John", "Doe", "john@example.com"));
+            } finally {
+                database.closeWriteAheadLog();
+            }
+            assertFalse(Files.readString(path, StandardCharsets.UTF_8).contains("secret-password"),
+                "The password is logged unencrypted.");
+
+            database.removeUser("user");
+            database.openWriteAheadLog(path, 0);
+            try {
+                assertEquals("secret-password", database.getUserByUsername("user").getPassword());
+            } finally {
+                database.closeWriteAheadLog();
+            }
+        } finally {
+            database.closePasswordKey();
+        }
+    }
+
+    @Test
+    public void testUserTooLargeForTheStoreChangesNothing(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("wal.txt");
+        String longName = "a".repeat(1024);
+        database.openWriteAheadLog(path, 0);
+        try {
+            database.addUser(new User("user", "password", longName, "Doe", "john@example.com"));
+        } finally {
+            database.closeWriteAheadLog();
+        }
+        // The store can only be changed without users, so the users left by the other tests are dropped.
+        database.closeUserStore();
+        database.setUserStore(MappedUserStore.open(directory.resolve("users")));
+        try {
+            database.openWriteAheadLog(path, 0);
+            try {
+                assertNull(database.getUserByUsername("user"), "The user too large for the store is restored.");
+                assertTrue(database.addUser(new User("user", "password", "John", "Doe", "john@example.com")));
+                long sequence = database.getChangeSequence();
+
+                assertFalse(database.replaceUser(database.getUserByUsername("user"),
+                    new User("user", "password", longName, "Doe", "other@example.com")));
+                assertEquals(sequence, database.getChangeSequence(), "The rejected change is logged.");
+                assertEquals("John", database.getUserByUsername("user").getFirstName());
+                assertTrue(database.getUsersByEmail("other@example.com").isEmpty());
+            } finally {
+                database.closeWriteAheadLog();
+            }
+        } finally {
+            database.closeUserStore();
+        }
+    }
+
+    @Test
+    public void testSnapshotWithoutWriteAheadLog(@TempDir Path directory) {
+        assertThrows(IllegalStateException.class, () -> database.takeSnapshot(directory.resolve("snapshot")),
+            "It is not thrown exception when the write-ahead log is not open.");
+    }
+
+    @Test
+    public void testSetAuthorizationMissingUser() {
+        assertFalse(database.setAuthorization("user", UserAuthorization.ADMIN));
+    }
+
+    @Test
+    public void testGetUsersIsReadOnly() {
+        assertThrows(UnsupportedOperationException.class, () -> database.getUsers().remove("user"),
+            "The users of the database can be changed directly.");
+    }
 }
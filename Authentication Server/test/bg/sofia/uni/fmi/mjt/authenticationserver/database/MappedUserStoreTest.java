@@ -0,0 +1,196 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.User;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthentication;
+import bg.sofia.uni.fmi.mjt.authenticationserver.user.UserAuthorization;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedUserStoreTest {
+    @TempDir
+    private Path directory;
+    private Path path;
+    private MappedUserStore store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        path = directory.resolve("users.store");
+        store = MappedUserStore.open(path);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    private static User user(String username) {
+        return new User(username, "password", "John", "Doe", username + "@example.com");
+    }
+
+    @Test
+    public void testUsersAreReadFromTheirRecords() {
+        User user = new User("user", "pässword", "John", null, "john@example.com");
+        user.setAuthorization(UserAuthorization.ADMIN);
+        user.setAuthentication(UserAuthentication.AUTHENTICATED);
+
+        assertNull(store.put("user", user));
+        User stored = store.get("user");
+
+        assertEquals("user", stored.getUsername());
+        assertEquals("pässword", stored.getPassword());
+        assertEquals("John", stored.getFirstName());
+        assertNull(stored.getLastName());
+        assertEquals("john@example.com", stored.getEmail());
+        assertEquals(UserAuthorization.ADMIN, stored.getAuthorization());
+        assertEquals(UserAuthentication.AUTHENTICATED, stored.getAuthentication());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testRemovedUserIsGone() {
+        store.put("user", user("user"));
+
+        assertEquals("user", store.remove("user").getUsername());
+        assertNull(store.get("user"));
+        assertNull(store.remove("user"));
+        assertTrue(store.isEmpty());
+    }
+
+    @Test
+    public void testComputeIfAbsentReturnsTheInsertedUser() {
+        User user = user("user");
+        AtomicInteger calls = new AtomicInteger();
+
+        assertSame(user, store.computeIfAbsent("user", key -> {
+            calls.incrementAndGet();
+            return user;
+        }));
+        User stored = store.computeIfAbsent("user", key -> {
+            calls.incrementAndGet();
+            return user("user");
+        });
+
+        assertEquals(1, calls.get(), "The function is applied to a present user.");
+        assertEquals(user, stored);
+        assertFalse(user == stored, "The stored user is not read from its record.");
+        assertNull(store.computeIfAbsent("other", key -> null));
+        assertFalse(store.containsKey("other"));
+    }
+
+    @Test
+    public void testUserChangedInPlaceIsStored() {
+        store.put("user", user("user"));
+
+        store.computeIfPresent("user", (key, user) -> {
+            user.setAuthorization(UserAuthorization.ADMIN);
+            return user;
+        });
+
+        assertEquals(UserAuthorization.ADMIN, store.get("user").getAuthorization());
+    }
+
+    @Test
+    public void testTooLongUserDoesNotFit() {
+        User user = new User("user", "p".repeat(129), "John", "Doe", "john@example.com");
+
+        assertFalse(store.fits(user));
+        assertTrue(store.fits(user("user")));
+        assertThrows(IllegalArgumentException.class, () -> store.put("user", user));
+        assertTrue(store.isEmpty());
+        assertNull(store.putIfAbsent("user", user("user")), "The record of the rejected user is not released.");
+    }
+
+    @Test
+    public void testStoreGrowsPastASegment() {
+        int userCount = 70_000;
+        for (int i = 0; i < userCount; i++) {
+            store.put("user" + i, user("user" + i));
+        }
+        for (int i = 0; i < userCount; i += 2) {
+            store.remove("user" + i);
+        }
+        for (int i = 0; i < userCount; i += 2) {
+            store.put("renamed" + i, user("renamed" + i));
+        }
+
+        assertEquals(userCount, store.size());
+        for (int i = 1; i < userCount; i += 2) {
+            assertEquals("user" + i + "@example.com", store.get("user" + i).getEmail());
+        }
+        assertNull(store.get("user0"));
+        assertEquals("renamed0", store.get("renamed0").getUsername());
+    }
+
+    @Test
+    public void testIterationListsEveryUser() {
+        Set<String> usernames = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            store.put("user" + i, user("user" + i));
+            usernames.add("user" + i);
+        }
+        store.remove("user0");
+        usernames.remove("user0");
+
+        Set<String> listed = new HashSet<>();
+        for (Map.Entry<String, User> entry : store.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue().getUsername());
+            listed.add(entry.getKey());
+        }
+        assertEquals(usernames, listed);
+    }
+
+    @Test
+    public void testConcurrentInsertsOfTheSameUsername() throws InterruptedException {
+        AtomicInteger inserted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    User user = user("user" + i);
+                    if (store.putIfAbsent(user.getUsername(), user) == null) {
+                        inserted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(5_000, inserted.get(), "A username was inserted more than once.");
+        assertEquals(5_000, store.size());
+    }
+
+    @Test
+    public void testFileIsDeletedOnClose() throws IOException {
+        store.put("user", user("user"));
+        assertTrue(Files.exists(path));
+
+        store.close();
+        assertFalse(Files.exists(path));
+    }
+}
@@ -0,0 +1,137 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.database;
+
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteAheadLogTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testRecordsAreReplayedInOrder() throws IOException {
+        Path path = directory.resolve("wal.txt");
+        try (WriteAheadLog writeAheadLog = WriteAheadLog.open(path, 0, record -> { })) {
+            writeAheadLog.append("first");
+            writeAheadLog.append("second");
+            assertTrue(writeAheadLog.sync());
+        }
+
+        List<String> records = new ArrayList<>();
+        try (WriteAheadLog writeAheadLog = WriteAheadLog.open(path, 0, records::add)) {
+            writeAheadLog.append("third");
+        }
+        assertEquals(List.of("first", "second"), records);
+
+        records.clear();
+        WriteAheadLog.open(path, 0, records::add).close();
+        assertEquals(List.of("first", "second", "third"), records, "The records are not forced on close.");
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws IOException {
+        Path path = directory.resolve("wal.txt");
+        Files.writeString(path, "complete\nto", StandardCharsets.UTF_8);
+
+        List<String> records = new ArrayList<>();
+        try (WriteAheadLog writeAheadLog = WriteAheadLog.open(path, 0, records::add)) {
+            writeAheadLog.append("next");
+        }
+        assertEquals(List.of("complete"), records);
+        assertEquals("complete\nnext\n", Files.readString(path, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testConcurrentRecordsAreForcedTogether() throws IOException, InterruptedException {
+        int threadCount = 32;
+        Path path = directory.resolve("wal.txt");
+        try (WriteAheadLog writeAheadLog = WriteAheadLog.open(path, 20, record -> { })) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                String record = "record-" + i;
+                threads.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    writeAheadLog.append(record);
+                    writeAheadLog.sync();
+                }));
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertTrue(writeAheadLog.getForceCount() < threadCount,
+                "Every record is forced to the disk on its own.");
+        }
+        assertEquals(threadCount, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void testTruncateKeepsRecordsAfterRotation() throws IOException {
+        Path path = directory.resolve("wal.txt");
+        try (WriteAheadLog writeAheadLog = WriteAheadLog.open(path, 0, record -> { })) {
+            writeAheadLog.append("before");
+            writeAheadLog.rotate();
+            writeAheadLog.append("after");
+            writeAheadLog.sync();
+            writeAheadLog.truncate();
+            writeAheadLog.append("last");
+        }
+
+        assertEquals(List.of("after", "last"), Files.readAllLines(path, StandardCharsets.UTF_8));
+        assertFalse(Files.exists(directory.resolve("wal.txt.next")), "The next file is left behind.");
+    }
+
+    @Test
+    public void testRotationWithoutTruncateIsMerged() throws IOException {
+        Path path = directory.resolve("wal.txt");
+        try (WriteAheadLog writeAheadLog = WriteAheadLog.open(path, 0, record -> { })) {
+            writeAheadLog.append("before");
+            writeAheadLog.rotate();
+            writeAheadLog.append("after");
+        }
+
+        List<String> records = new ArrayList<>();
+        WriteAheadLog.open(path, 0, records::add).close();
+        assertEquals(List.of("before", "after"), records);
+        assertEquals(List.of("before", "after"), Files.readAllLines(path, StandardCharsets.UTF_8));
+        assertFalse(Files.exists(directory.resolve("wal.txt.next")), "The next file is not merged.");
+    }
+
+    @Test
+    public void testAppendAfterClose() throws IOException {
+        WriteAheadLog writeAheadLog = WriteAheadLog.open(directory.resolve("wal.txt"), 0, record -> { });
+        writeAheadLog.close();
+
+        assertFalse(writeAheadLog.append("late"), "A record is accepted by a closed log.");
+    }
+
+    @Test
+    public void testNegativeDurabilityWindow() {
+        assertThrows(IllegalArgumentException.class,
+            () -> WriteAheadLog.open(directory.resolve("wal.txt"), -1, record -> { }),
+            "It is not thrown exception when the durability window is negative.");
+    }
+}
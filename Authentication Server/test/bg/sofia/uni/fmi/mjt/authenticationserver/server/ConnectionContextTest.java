@@ -0,0 +1,250 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.buffer.BufferPool;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.exception.InvalidFrame;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConnectionContextTest {
+    private BufferPool bufferPool;
+    private ConnectionContext context;
+
+    @BeforeEach
+    public void setUp() {
+        bufferPool = new BufferPool(4);
+        context = new ConnectionContext(bufferPool, "ipAddress");
+    }
+
+    @AfterEach
+    public void checkForLeaks() {
+        context.release();
+        assertEquals(0, bufferPool.getOutstandingBuffers(), "The connection leaked pooled buffers.");
+    }
+
+    private List<byte[]> readFrames(ByteBuffer data) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        context.readFrames(data, payload -> {
+            byte[] frame = new byte[payload.remaining()];
+            payload.get(frame);
+            frames.add(frame);
+        });
+        return frames;
+    }
+
+    private ByteBuffer pooled(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return bufferPool.acquire(bytes.length).put(bytes).flip();
+    }
+
+    private static byte[] frame(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + payload.length);
+        buffer.putInt(payload.length);
+        buffer.put(payload);
+        return buffer.array();
+    }
+
+    private static ByteBuffer wrap(byte[]... parts) {
+        int size = 0;
+        for (byte[] part : parts) {
+            size += part.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] part : parts) {
+            buffer.put(part);
+        }
+        return buffer.flip();
+    }
+
+    @Test
+    public void testReadFramesSingleCompleteFrame() throws IOException {
+        byte[] payload = "register".getBytes(StandardCharsets.UTF_8);
+
+        List<byte[]> frames = readFrames(wrap(frame(payload)));
+
+        assertEquals(1, frames.size());
+        assertArrayEquals(payload, frames.get(0));
+        assertFalse(context.hasPartialFrame());
+    }
+
+    @Test
+    public void testReadFramesCoalescedFrames() throws IOException {
+        byte[] first = "first".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "second".getBytes(StandardCharsets.UTF_8);
+
+        List<byte[]> frames = readFrames(wrap(frame(first), frame(second)));
+
+        assertEquals(2, frames.size());
+        assertArrayEquals(first, frames.get(0));
+        assertArrayEquals(second, frames.get(1));
+    }
+
+    @Test
+    public void testReadFramesSplitFrame() throws IOException {
+        byte[] payload = new byte[2000];
+        payload[1999] = 7;
+        byte[] framed = frame(payload);
+
+        for (int i = 0; i < framed.length - 1; i++) {
+            assertTrue(readFrames(wrap(new byte[] {framed[i]})).isEmpty());
+        }
+        List<byte[]> frames = readFrames(wrap(new byte[] {framed[framed.length - 1]}));
+
+        assertEquals(1, frames.size());
+        assertArrayEquals(payload, frames.get(0));
+        assertFalse(context.hasPartialFrame());
+    }
+
+    @Test
+    public void testReadFramesCompleteAndPartialFrame() throws IOException {
+        byte[] first = "first".getBytes(StandardCharsets.UTF_8);
+        byte[] second = frame("second".getBytes(StandardCharsets.UTF_8));
+        byte[] secondStart = new byte[3];
+        byte[] secondEnd = new byte[second.length - secondStart.length];
+        System.arraycopy(second, 0, secondStart, 0, secondStart.length);
+        System.arraycopy(second, secondStart.length, secondEnd, 0, secondEnd.length);
+
+        List<byte[]> frames = readFrames(wrap(frame(first), secondStart));
+        assertEquals(1, frames.size());
+        assertTrue(context.hasPartialFrame());
+
+        frames = readFrames(wrap(secondEnd));
+        assertEquals(1, frames.size());
+        assertEquals("second", new String(frames.get(0), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReadFramesInvalidLength() {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).putInt(-1).flip();
+
+        assertThrows(InvalidFrame.class, () -> readFrames(buffer),
+            "It is not thrown exception when the frame length is negative.");
+    }
+
+    @Test
+    public void testReadFramesTooLargeFrame() {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).putInt(ConnectionContext.MAX_FRAME_SIZE + 1).flip();
+
+        assertThrows(InvalidFrame.class, () -> readFrames(buffer),
+            "It is not thrown exception when the frame is larger than the maximum size.");
+    }
+
+    @Test
+    public void testEnqueueKeepsRequestOrder() throws InterruptedException {
+        final int requests = 100;
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch idle = new CountDownLatch(1);
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+
+        for (int i = 0; i < requests; i++) {
+            final int request = i;
+            context.enqueue(() -> executed.add(request), workers);
+        }
+        context.enqueue(idle::countDown, workers);
+
+        assertTrue(idle.await(5, TimeUnit.SECONDS));
+        workers.shutdown();
+        assertEquals(requests, executed.size());
+        for (int i = 0; i < requests; i++) {
+            assertEquals(i, executed.get(i));
+        }
+    }
+
+    @Test
+    public void testSubmitTracksRequestsInFlight() throws InterruptedException {
+        CountDownLatch executed = new CountDownLatch(2);
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+
+        context.submit(executed::countDown, workers);
+        context.enqueue(executed::countDown, workers);
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+        workers.shutdown();
+
+        assertEquals(2, context.getRequestsInFlight(), "The requests are in flight until they are answered.");
+        context.completeRequest();
+        context.completeRequest();
+        assertFalse(context.hasRequestsInFlight());
+    }
+
+    @Test
+    public void testFlushPartialWrites() throws IOException {
+        ThrottledChannel channel = new ThrottledChannel(3);
+        context.addResponse(pooled("first"));
+        context.addResponse(pooled("second"));
+
+        assertFalse(context.flush(channel));
+        assertEquals(8, context.getOutboundBytes());
+
+        channel.setLimit(Integer.MAX_VALUE);
+        assertTrue(context.flush(channel));
+        assertEquals(0, context.getOutboundBytes());
+        assertEquals("firstsecond", channel.written.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReleaseReturnsQueuedResponses() throws IOException {
+        context.addResponse(pooled("first"));
+        context.addResponse(pooled("second"));
+
+        assertFalse(context.flush(new ThrottledChannel(1)));
+        context.release();
+
+        assertEquals(0, context.getOutboundBytes());
+        assertEquals(0, bufferPool.getOutstandingBuffers());
+    }
+
+    private static class ThrottledChannel implements WritableByteChannel {
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private int limit;
+
+        ThrottledChannel(int limit) {
+            this.limit = limit;
+        }
+
+        void setLimit(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            int count = Math.min(limit, source.remaining());
+            for (int i = 0; i < count; i++) {
+                written.write(source.get());
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package bg.sofia.uni.fmi.mjt.authenticationserver.server;
 
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.BatchInput;
 import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Input;
 
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandBehavior;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandField;
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandStatus;
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandType;
 
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.BatchOutput;
 import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Output;
 
 import org.junit.jupiter.api.BeforeAll;
@@ -15,6 +18,9 @@ import org.mockito.Mock;
 
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import static org.mockito.Mockito.when;
@@ -216,4 +222,51 @@ public class ServerCommandExecutorTest {
         assertEquals(CommandStatus.UNSUCCESSFUL, output.status());
         assertEquals(output.loggedOut(), false);
     }
+
+    @Test
+    public void testExecuteBatchAnswersCommandsInOrder() {
+        BatchInput batchInput = new BatchInput(9, List.of(
+            new Input(1, correctLogoutCommand, CommandType.SECURE),
+            new Input(2, invalidCommand, CommandType.UNSECURE),
+            new Input(3, correctDeleteUserCommand, CommandType.SECURE)));
+
+        BatchOutput batchOutput = serverCommandExecutor.executeBatch(batchInput, ipAddress);
+
+        assertEquals(9, batchOutput.requestId());
+        assertEquals(List.of(1L, 2L, 3L), batchOutput.outputs().stream().map(Output::requestId).toList());
+        assertEquals(List.of(CommandBehavior.LOGOUT, CommandBehavior.INVALID_COMMAND, CommandBehavior.DELETE_USER),
+            batchOutput.outputs().stream().map(Output::commandBehaviour).toList());
+    }
+
+    @Test
+    public void testExecuteRequestDispatchesBatch() {
+        BatchInput batchInput = new BatchInput(List.of(new Input(invalidCommand, CommandType.UNSECURE)));
+
+        BatchOutput batchOutput = (BatchOutput) serverCommandExecutor.executeRequest(batchInput, ipAddress);
+
+        assertEquals(1, batchOutput.outputs().size());
+        assertEquals(CommandStatus.UNSUCCESSFUL, batchOutput.outputs().get(0).status());
+    }
+
+    @Test
+    public void testExecuteStructuredCommand() {
+        Input structuredInput = Input.of(CommandBehavior.LOGIN_BY_SESSION_ID, CommandType.UNSECURE,
+            Map.of(CommandField.SESSION_ID, "<sessionId>"));
+
+        Output output = serverCommandExecutor.executeCommand(structuredInput, ipAddress);
+
+        assertEquals(CommandBehavior.LOGIN_BY_SESSION_ID, output.commandBehaviour());
+        assertEquals(CommandStatus.UNSUCCESSFUL, output.status());
+    }
+
+    @Test
+    public void testExecuteStructuredCommandInvalidFields() {
+        Input structuredInput = Input.of(CommandBehavior.DELETE_USER, CommandType.SECURE,
+            Map.of(CommandField.SESSION_ID, "<sessionId>", CommandField.EMAIL, "<email>"));
+
+        Output output = serverCommandExecutor.executeCommand(structuredInput, ipAddress);
+
+        assertEquals(CommandBehavior.INVALID_COMMAND, output.commandBehaviour());
+        assertEquals(CommandStatus.UNSUCCESSFUL, output.status());
+    }
 }
@@ -0,0 +1,47 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ServerMetricsTest {
+    @Test
+    public void testTryOpenConnectionRejectsAboveLimit() {
+        ServerMetrics metrics = new ServerMetrics();
+        final int maxConnections = 2;
+
+        assertTrue(metrics.tryOpenConnection(maxConnections));
+        assertTrue(metrics.tryOpenConnection(maxConnections));
+        assertFalse(metrics.tryOpenConnection(maxConnections), "The connection above the limit was accepted.");
+        assertEquals(maxConnections, metrics.getOpenConnections());
+        assertEquals(1, metrics.getRejectedConnections());
+
+        metrics.connectionClosed();
+        assertTrue(metrics.tryOpenConnection(maxConnections), "The freed connection slot was not reused.");
+    }
+
+    @Test
+    public void testSnapshotAndRestoreTimings() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.databaseRestored(120, 1000);
+        metrics.snapshotTaken(30, 1001);
+        metrics.snapshotTaken(40, 1002);
+
+        assertEquals(120, metrics.getRestoreMillis());
+        assertEquals(1000, metrics.getRestoredUsers());
+        assertEquals(2, metrics.getSnapshots());
+        assertEquals(40, metrics.getLastSnapshotMillis());
+        assertEquals(1002, metrics.getLastSnapshotUsers());
+    }
+
+    @Test
+    public void testConnectionReapedCounts() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.connectionReaped();
+        metrics.connectionReaped();
+
+        assertEquals(2, metrics.getReapedConnections());
+    }
+}
@@ -0,0 +1,190 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandBehavior;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandField;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandStatus;
+import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandType;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.codec.MessageCodec;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Input;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Output;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ServerTest {
+    private static final String HOST = "localhost";
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final int SOCKET_TIMEOUT_MILLIS = 5000;
+    private Server server;
+
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testRequestsRoundTripThroughSeveralEventLoops() throws IOException, InterruptedException {
+        final int eventLoops = 2;
+        final int clientCount = 2 * eventLoops;
+        final int requestsPerClient = 20;
+        int port = startServer(ServerConfiguration.builder(freePort())
+            .setMode(ServerMode.MULTI_REACTOR)
+            .setEventLoops(eventLoops));
+
+        List<Socket> clients = new ArrayList<>();
+        try {
+            // The connections are spread over the event loops in turn, so every event loop serves two clients.
+            for (int i = 0; i < clientCount; i++) {
+                clients.add(connect(port));
+            }
+            for (int i = 0; i < clientCount; i++) {
+                DataOutputStream output = new DataOutputStream(clients.get(i).getOutputStream());
+                for (int j = 0; j < requestsPerClient; j++) {
+                    send(output, i * requestsPerClient + j + 1);
+                }
+            }
+
+            for (int i = 0; i < clientCount; i++) {
+                DataInputStream input = new DataInputStream(clients.get(i).getInputStream());
+                List<Long> requestIds = new ArrayList<>();
+                for (int j = 0; j < requestsPerClient; j++) {
+                    Output output = receive(input);
+                    assertEquals(CommandStatus.UNSUCCESSFUL, output.status());
+                    requestIds.add(output.requestId());
+                }
+                for (int j = 0; j < requestsPerClient; j++) {
+                    assertTrue(requestIds.contains((long) i * requestsPerClient + j + 1),
+                        "A response went to another connection or was lost.");
+                }
+            }
+            assertEquals(clientCount, server.getMetrics().getOpenConnections());
+        } finally {
+            for (Socket client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testConnectionAboveMaxConnectionsIsRejected() throws IOException, InterruptedException {
+        int port = startServer(ServerConfiguration.builder(freePort())
+            .setMode(ServerMode.MULTI_REACTOR)
+            .setEventLoops(2)
+            .setMaxConnections(1));
+
+        try (Socket accepted = connect(port)) {
+            DataOutputStream output = new DataOutputStream(accepted.getOutputStream());
+            send(output, 1);
+            assertEquals(1, receive(new DataInputStream(accepted.getInputStream())).requestId());
+
+            try (Socket rejected = connect(port)) {
+                assertEquals(-1, rejected.getInputStream().read(), "The connection above the limit is open.");
+            }
+            assertEquals(1, server.getMetrics().getRejectedConnections());
+            assertEquals(1, server.getMetrics().getOpenConnections());
+        }
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (server.getMetrics().getOpenConnections() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        try (Socket reopened = connect(port)) {
+            send(new DataOutputStream(reopened.getOutputStream()), 2);
+            assertEquals(2, receive(new DataInputStream(reopened.getInputStream())).requestId(),
+                "The slot of the closed connection was not freed.");
+        }
+    }
+
+    @Test
+    public void testShutdownReleasesOpenConnections() throws IOException, InterruptedException {
+        int port = startServer(ServerConfiguration.builder(freePort())
+            .setMode(ServerMode.MULTI_REACTOR)
+            .setEventLoops(2));
+
+        try (Socket client = connect(port)) {
+            send(new DataOutputStream(client.getOutputStream()), 1);
+            assertEquals(1, receive(new DataInputStream(client.getInputStream())).requestId());
+
+            server.shutdown();
+            assertEquals(-1, client.getInputStream().read(), "The connection is open after the shutdown.");
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (server.getMetrics().getOpenConnections() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, server.getMetrics().getOpenConnections(),
+                "The connection closed by the shutdown is still counted.");
+        }
+    }
+
+    private int startServer(ServerConfiguration.ServerConfigurationBuilder builder) {
+        ServerConfiguration configuration = builder.build();
+        server = new Server(configuration);
+        Thread thread = new Thread(server::startServer, "server");
+        thread.setDaemon(true);
+        thread.start();
+        return configuration.getPort();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Connect once the server is listening
+     */
+    private static Socket connect(int port) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                Socket socket = new Socket(HOST, port);
+                socket.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+                return socket;
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static void send(DataOutputStream output, long requestId) throws IOException {
+        Input input = Input.of(CommandBehavior.LOGIN_BY_SESSION_ID, CommandType.UNSECURE,
+            Map.of(CommandField.SESSION_ID, "missing")).withRequestId(requestId);
+        ByteBuffer buffer = ByteBuffer.allocate(MessageCodec.encodedSize(input));
+        MessageCodec.encode(input, buffer);
+        output.writeInt(buffer.capacity());
+        output.write(buffer.array());
+        output.flush();
+    }
+
+    private static Output receive(DataInputStream input) throws IOException {
+        byte[] message = new byte[input.readInt()];
+        input.readFully(message);
+        return (Output) MessageCodec.decodeResponse(ByteBuffer.wrap(message));
+    }
+}
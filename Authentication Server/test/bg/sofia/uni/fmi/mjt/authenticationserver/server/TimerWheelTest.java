@@ -0,0 +1,95 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.server;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimerWheelTest {
+    private static final long TICK = 10;
+    private static final int WHEEL_SIZE = 8;
+    private TimerWheel timerWheel;
+    private List<String> expired;
+
+    @BeforeEach
+    public void setUp() {
+        timerWheel = new TimerWheel(TICK, WHEEL_SIZE, 0);
+        expired = new ArrayList<>();
+    }
+
+    @Test
+    public void testAdvanceRunsTimeoutAtItsDeadline() {
+        TimerWheel.Timeout timeout = timerWheel.schedule(() -> expired.add("first"), 30);
+
+        timerWheel.advance(29);
+        assertTrue(expired.isEmpty(), "The timeout expired before its deadline.");
+        assertTrue(timeout.isPending());
+
+        timerWheel.advance(30);
+        assertEquals(List.of("first"), expired);
+        assertFalse(timeout.isPending());
+        assertTrue(timerWheel.isEmpty());
+    }
+
+    @Test
+    public void testAdvanceRunsTimeoutsFurtherThanOneTurn() {
+        final long delay = TICK * WHEEL_SIZE * 3 + TICK;
+        timerWheel.schedule(() -> expired.add("far"), delay);
+        timerWheel.schedule(() -> expired.add("near"), TICK);
+
+        timerWheel.advance(delay - TICK);
+        assertEquals(List.of("near"), expired, "Only the near timeout was expected to expire.");
+
+        timerWheel.advance(delay);
+        assertEquals(List.of("near", "far"), expired);
+    }
+
+    @Test
+    public void testCancelRemovesTimeout() {
+        TimerWheel.Timeout first = timerWheel.schedule(() -> expired.add("first"), 20);
+        timerWheel.schedule(() -> expired.add("second"), 20);
+        first.cancel();
+        first.cancel();
+
+        assertEquals(1, timerWheel.size());
+        timerWheel.advance(100);
+        assertEquals(List.of("second"), expired);
+    }
+
+    @Test
+    public void testTaskCanCancelAnotherExpiredTimeout() {
+        List<TimerWheel.Timeout> timeouts = new ArrayList<>();
+        timeouts.add(timerWheel.schedule(() -> timeouts.get(1).cancel(), 20));
+        timeouts.add(timerWheel.schedule(() -> expired.add("second"), 20));
+
+        timerWheel.advance(20);
+        assertTrue(expired.isEmpty(), "The cancelled timeout has run.");
+        assertEquals(0, timerWheel.size());
+    }
+
+    @Test
+    public void testTaskCanReschedule() {
+        timerWheel.schedule(() -> timerWheel.schedule(() -> expired.add("rescheduled"), TICK), TICK);
+
+        timerWheel.advance(TICK);
+        assertTrue(expired.isEmpty());
+        assertEquals(1, timerWheel.size());
+
+        timerWheel.advance(2 * TICK);
+        assertEquals(List.of("rescheduled"), expired);
+    }
+
+    @Test
+    public void testConstructorInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(0, WHEEL_SIZE, 0),
+            "IllegalArgumentException expected to be thrown for non-positive tick.");
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(TICK, 0, 0),
+            "IllegalArgumentException expected to be thrown for non-positive wheel size.");
+    }
+}
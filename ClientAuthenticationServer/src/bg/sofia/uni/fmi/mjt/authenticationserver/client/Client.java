@@ -3,15 +3,16 @@ package bg.sofia.uni.fmi.mjt.authenticationserver.client;
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandBehavior;
 import bg.sofia.uni.fmi.mjt.authenticationserver.command.CommandStatus;
 
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.buffer.BufferPool;
+
+import bg.sofia.uni.fmi.mjt.authenticationserver.communication.codec.MessageCodec;
+
 import bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Input;
 import bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.Output;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
 
 import java.net.InetSocketAddress;
 
@@ -21,20 +22,23 @@ import java.nio.channels.SocketChannel;
 import java.util.Scanner;
 
 public class Client {
-    private static final Integer BUFFER_SIZE = 1024;
-    private static final ByteBuffer BUFFER = ByteBuffer.allocateDirect(BUFFER_SIZE);
     private static final Integer MAX_FAILED_LOGIN_ATTEMPTS = 3;
     private static final Integer SLEEP_TIME = 60000;
     private final String host;
     private final Integer serverPort;
     private final ClientRequestParser clientRequest;
+    private final BufferPool bufferPool;
+    private final ByteBuffer lengthBuffer;
     private Integer failedLoginAttempts;
+    private long lastRequestId;
 
     public Client(String host, int serverPort) {
         this.host = host;
         this.serverPort = serverPort;
         Scanner scanner = new Scanner(System.in);
         this.clientRequest = new ClientRequestParser(scanner);
+        this.bufferPool = BufferPool.getInstance();
+        this.lengthBuffer = ByteBuffer.allocateDirect(Integer.BYTES);
         this.failedLoginAttempts = 0;
     }
 
@@ -74,7 +78,7 @@ public class Client {
         }
     }
 
-    private String authenticateClient(SocketChannel socketChannel) throws IOException, ClassNotFoundException {
+    private String authenticateClient(SocketChannel socketChannel) throws IOException {
         String emptySpace = "";
         String message = emptySpace;
 
@@ -86,9 +90,7 @@ public class Client {
             if (shouldDisconnect(message)) {
                 break;
             }
-            sendObject(socketChannel, input);
-
-            Output output = getServerOutput(socketChannel);
+            Output output = sendRequest(socketChannel, input);
             System.out.println(output.message() + System.lineSeparator());
             countFailedLoginAttempts(output.commandBehaviour(), output.status());
 
@@ -102,7 +104,7 @@ public class Client {
         return message;
     }
 
-    private String performClientActions(SocketChannel socketChannel) throws IOException, ClassNotFoundException {
+    private String performClientActions(SocketChannel socketChannel) throws IOException {
         String emptySpace = "";
         String message = emptySpace;
         while (!shouldDisconnect(message)) {
@@ -111,8 +113,7 @@ public class Client {
             if (shouldDisconnect(message)) {
                 break;
             }
-            sendObject(socketChannel, input);
-            Output output = getServerOutput(socketChannel);
+            Output output = sendRequest(socketChannel, input);
             countFailedLoginAttempts(output.commandBehaviour(), output.status());
 
             if (isStatusSuccessful(output.status()) && isCommandBehaviorLogout(output.commandBehaviour())) {
@@ -144,46 +145,63 @@ public class Client {
         } catch (IOException e) {
             System.out.println("There is a problem with the network communication" +
                 "Try again later or contact your administrator.");
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException(e);
         }
     }
 
-    private Output deserializeOutput(byte[] serializedData) throws IOException, ClassNotFoundException {
-        try (ByteArrayInputStream byteArray = new ByteArrayInputStream(serializedData);
-             ObjectInputStream objectStream = new ObjectInputStream(byteArray)) {
-
-            return (Output) objectStream.readObject();
+    private void readFully(SocketChannel socketChannel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (socketChannel.read(buffer) < 0) {
+                throw new EOFException("The server closed the connection.");
+            }
         }
     }
 
-    private Output getServerOutput(SocketChannel socketChannel) throws IOException, ClassNotFoundException {
-        BUFFER.clear();
-        socketChannel.read(BUFFER);
-        BUFFER.flip();
-
-        int length = BUFFER.getInt();
-        byte[] serializedOutput = new byte[length];
-        BUFFER.get(serializedOutput);
+    private Output getServerOutput(SocketChannel socketChannel) throws IOException {
+        lengthBuffer.clear();
+        readFully(socketChannel, lengthBuffer);
+        int length = lengthBuffer.getInt(0);
+        if (length < 0 || length > MessageCodec.MAX_FRAME_SIZE) {
+            throw new StreamCorruptedException("The server answered with a frame of invalid length " + length + ".");
+        }
 
-        return deserializeOutput(serializedOutput);
+        ByteBuffer serializedOutput = bufferPool.acquire(length);
+        try {
+            serializedOutput.limit(length);
+            readFully(socketChannel, serializedOutput);
+            serializedOutput.flip();
+            if (MessageCodec.decodeResponse(serializedOutput) instanceof Output output) {
+                return output;
+            }
+            throw new StreamCorruptedException("The server answered a single command with a batch.");
+        } finally {
+            bufferPool.release(serializedOutput);
+        }
     }
 
-    private void sendObject(SocketChannel clientChannel, Input input) throws IOException {
-        try (ByteArrayOutputStream byteArray = new ByteArrayOutputStream();
-             ObjectOutputStream objectStream = new ObjectOutputStream(byteArray)) {
-
-            objectStream.writeObject(input);
-            objectStream.flush();
+    private Output sendRequest(SocketChannel socketChannel, Input input) throws IOException {
+        Input request = input.withRequestId(++lastRequestId);
+        sendObject(socketChannel, request);
 
-            byte[] serializedInput = byteArray.toByteArray();
+        Output output = getServerOutput(socketChannel);
+        if (output.requestId() != request.requestId()) {
+            throw new IOException("The server answered request " + output.requestId() + " instead of request " +
+                request.requestId() + ".");
+        }
+        return output;
+    }
 
-            ByteBuffer buffer = ByteBuffer.allocate(serializedInput.length + Integer.BYTES);
-            buffer.putInt(serializedInput.length);
-            buffer.put(serializedInput);
+    private void sendObject(SocketChannel clientChannel, Input input) throws IOException {
+        int size = MessageCodec.encodedSize(input);
+        ByteBuffer buffer = bufferPool.acquire(Integer.BYTES + size);
+        try {
+            buffer.putInt(size);
+            MessageCodec.encode(input, buffer);
             buffer.flip();
-
-            clientChannel.write(buffer);
+            while (buffer.hasRemaining()) {
+                clientChannel.write(buffer);
+            }
+        } finally {
+            bufferPool.release(buffer);
         }
     }
 
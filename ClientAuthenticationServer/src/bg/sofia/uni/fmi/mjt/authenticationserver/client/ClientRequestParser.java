@@ -44,8 +44,10 @@ public class ClientRequestParser {
             4.add-admin-user --session-id <sessionId> --username <username>
             5.remove-admin-user --session-id <sessionId> --username <username>
             6.delete-user --session-id <sessionId> --username <username>
-            7.download-database --session-id <sessionId>
-            8.disconnect""";
+            7.download-database --session-id <sessionId> [--since <sequence>]
+            8.list-users --session-id <sessionId> [--prefix <prefix>] [--limit <limit>] [--cursor <cursor>]
+            9.find-user --session-id <sessionId> --email <email>
+            10.disconnect""";
     }
 
     public Input setStartingMessage() {
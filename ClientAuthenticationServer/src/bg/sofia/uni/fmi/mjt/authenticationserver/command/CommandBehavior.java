@@ -12,6 +12,8 @@ public enum CommandBehavior {
     REMOVE_ADMIN_USER("remove-admin-user"),
     DELETE_USER("delete-user"),
     DOWNLOAD_DATABASE("download-database"),
+    LIST_USERS("list-users"),
+    FIND_USER("find-user"),
     INVALID_COMMAND("invalid command");
 
     private final String commandDescription;
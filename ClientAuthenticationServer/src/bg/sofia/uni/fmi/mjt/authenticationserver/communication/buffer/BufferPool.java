@@ -0,0 +1,87 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.communication.buffer;
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct buffers split in size classes of powers of two between {@link #MIN_BUFFER_SIZE} and
+ * {@link #MAX_BUFFER_SIZE}. Requests for larger buffers are served with heap buffers which are not pooled.
+ * Every acquired buffer must be released exactly once - the count of the buffers that are acquired and not
+ * released yet is available through {@link #getOutstandingBuffers()} to detect leaks.
+ */
+public class BufferPool {
+    public static final int MIN_BUFFER_SIZE = 512;
+    public static final int MAX_BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_POOLED_BUFFERS_PER_CLASS = 256;
+    private static final BufferPool BUFFER_POOL = new BufferPool(MAX_POOLED_BUFFERS_PER_CLASS);
+    private final List<ArrayBlockingQueue<ByteBuffer>> freeBuffers;
+    private final AtomicLong outstandingBuffers;
+    private final AtomicLong allocatedBuffers;
+
+    public BufferPool(int maxPooledBuffersPerClass) {
+        int sizeClasses = sizeClassOf(MAX_BUFFER_SIZE) + 1;
+        this.freeBuffers = new ArrayList<>(sizeClasses);
+        for (int i = 0; i < sizeClasses; i++) {
+            freeBuffers.add(new ArrayBlockingQueue<>(maxPooledBuffersPerClass));
+        }
+        this.outstandingBuffers = new AtomicLong();
+        this.allocatedBuffers = new AtomicLong();
+    }
+
+    public static BufferPool getInstance() {
+        return BUFFER_POOL;
+    }
+
+    /**
+     * Returns a cleared buffer with capacity of at least the requested one.
+     *
+     * @param capacity - the minimal capacity of the buffer
+     * @return buffer in write mode
+     */
+    public ByteBuffer acquire(int capacity) {
+        outstandingBuffers.incrementAndGet();
+        if (capacity > MAX_BUFFER_SIZE) {
+            allocatedBuffers.incrementAndGet();
+            return ByteBuffer.allocate(capacity);
+        }
+
+        int sizeClass = sizeClassOf(capacity);
+        ByteBuffer buffer = freeBuffers.get(sizeClass).poll();
+        if (buffer == null) {
+            allocatedBuffers.incrementAndGet();
+            return ByteBuffer.allocateDirect(MIN_BUFFER_SIZE << sizeClass);
+        }
+        return buffer.clear();
+    }
+
+    public void release(ByteBuffer buffer) {
+        outstandingBuffers.decrementAndGet();
+        int capacity = buffer.capacity();
+        if (!buffer.isDirect() || capacity > MAX_BUFFER_SIZE || Integer.bitCount(capacity) != 1 ||
+            capacity < MIN_BUFFER_SIZE) {
+            return;
+        }
+        freeBuffers.get(sizeClassOf(capacity)).offer(buffer);
+    }
+
+    public long getOutstandingBuffers() {
+        return outstandingBuffers.get();
+    }
+
+    public long getAllocatedBuffers() {
+        return allocatedBuffers.get();
+    }
+
+    private static int sizeClassOf(int capacity) {
+        if (capacity <= MIN_BUFFER_SIZE) {
+            return 0;
+        }
+        int roundedCapacity = Integer.highestOneBit(capacity - 1) << 1;
+        return Integer.numberOfTrailingZeros(roundedCapacity) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+}
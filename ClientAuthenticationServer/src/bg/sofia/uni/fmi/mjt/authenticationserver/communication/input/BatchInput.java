@@ -0,0 +1,18 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.communication.input;
+
+import java.util.List;
+
+/**
+ * Commands executed by the server in a single pass and answered with a single
+ * {@link bg.sofia.uni.fmi.mjt.authenticationserver.communication.output.BatchOutput}, holding the outputs
+ * of the commands in the same order.
+ */
+public record BatchInput(long requestId, List<Input> inputs) implements Request {
+    public BatchInput {
+        inputs = List.copyOf(inputs);
+    }
+
+    public BatchInput(List<Input> inputs) {
+        this(Input.NO_REQUEST_ID, inputs);
+    }
+}
@@ -0,0 +1,16 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.communication.input;
+
+/**
+ * A message sent by the client - a single command or a batch of commands. The request id is echoed in the
+ * response, so a client can have many requests outstanding on one connection. Requests without an id
+ * ({@link #NO_REQUEST_ID}) are answered in the order they were sent.
+ */
+public sealed interface Request permits Input, BatchInput {
+    long NO_REQUEST_ID = 0;
+
+    long requestId();
+
+    default boolean hasRequestId() {
+        return requestId() != NO_REQUEST_ID;
+    }
+}
@@ -0,0 +1,9 @@
+package bg.sofia.uni.fmi.mjt.authenticationserver.communication.output;
+
+/**
+ * A message sent by the server in answer to a
+ * {@link bg.sofia.uni.fmi.mjt.authenticationserver.communication.input.Request}.
+ */
+public sealed interface Response permits Output, BatchOutput {
+    long requestId();
+}